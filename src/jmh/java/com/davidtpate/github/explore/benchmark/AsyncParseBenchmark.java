@@ -0,0 +1,57 @@
+package com.davidtpate.github.explore.benchmark;
+
+import com.davidtpate.github.explore.ingest.AsyncMessageParser;
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A load generator for {@link AsyncMessageParser}, one client per core submits a message and waits for the result, over
+ * and over, like the requests coming in to a server. Throughput against the number of parsing threads shows how it
+ * scales with cores, SampleTime gives the latency percentiles a client sees. Pass -t to change the number of clients.
+ * The virtual thread runs only differ from the pooled ones on a JVM that has them, the thread count doesn't matter
+ * for those.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class AsyncParseBenchmark {
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    private AsyncMessageParser parser;
+    private byte[][] corpus;
+
+    @State(Scope.Thread)
+    public static class Client {
+        private int next;
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        corpus = Corpus.messages(1000, 50);
+        parser = new AsyncMessageParser.Builder().threads(threads).virtualThreads(virtualThreads).build();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        parser.close();
+    }
+
+    @Benchmark
+    public GithubExploreMessage submit(Client client) throws InterruptedException {
+        byte[] message = corpus[client.next];
+        client.next = (client.next + 1) % corpus.length;
+        return parser.submit(ByteBuffer.wrap(message)).join();
+    }
+}
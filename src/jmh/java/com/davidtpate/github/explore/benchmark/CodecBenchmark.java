@@ -0,0 +1,58 @@
+package com.davidtpate.github.explore.benchmark;
+
+import com.davidtpate.github.explore.GithubExploreMessageParser;
+import com.davidtpate.github.explore.codec.MessageCodec;
+import com.davidtpate.github.explore.codec.MessageView;
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a stored message against parsing the mail it came from, which is what the codec is there to save.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CodecBenchmark {
+    @Param({"5", "50", "500"})
+    public int repositories;
+
+    private final GithubExploreMessageParser parser = new GithubExploreMessageParser();
+    private ByteBuffer mail;
+    private GithubExploreMessage message;
+    private ByteBuffer encoded;
+
+    @Setup
+    public void setup() throws IOException {
+        mail = ByteBuffer.wrap(Corpus.messages(1, repositories)[0]);
+        message = parser.parse(mail.duplicate());
+        encoded = ByteBuffer.wrap(MessageCodec.encode(message));
+    }
+
+    @Benchmark
+    public GithubExploreMessage parse() {
+        return parser.parse(mail.duplicate());
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return MessageCodec.encode(message);
+    }
+
+    @Benchmark
+    public GithubExploreMessage decode() {
+        return MessageCodec.decode(encoded);
+    }
+
+    @Benchmark
+    public long viewField() {
+        MessageView view = new MessageView(encoded);
+        return view.getDateMillis() + view.getRepositoryStars(GithubExploreMessageParser.RepositoryListType.POPULAR, 0);
+    }
+}
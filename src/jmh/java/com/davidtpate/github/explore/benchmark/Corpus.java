@@ -0,0 +1,89 @@
+package com.davidtpate.github.explore.benchmark;
+
+import com.davidtpate.github.explore.util.Util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Builds synthetic explore digests out of src/test/resources/Example.msg. The headers and the HTML part are kept as
+ * they are, the Plaintext lists are replaced with as many generated repositories as asked for, and every variant gets
+ * its own Message-ID and repository owners so nothing can be cached between messages. Set -Dcorpus.template to use a
+ * different message as the template.
+ */
+public class Corpus {
+    /**
+     * Past this many bytes the corpus starts repeating variants instead of generating new ones, which keeps the 100k
+     * message corpora inside a normal heap.
+     */
+    private static final int MAX_DISTINCT_BYTES = 64 * 1024 * 1024;
+    private static final String[] SECTIONS = {"Stars from people you follow", "Trending Repositories", "Stars from GitHub Staff"};
+    private static final String[] LANGUAGES = {"Java", "JavaScript", "CSS", "Ruby", "", "Go", "C++"};
+    private static final String SECTION_START = "Stars from people you follow";
+    private static final String SECTION_END = "Unsubscribe from these newsletters.";
+
+    private static String template;
+
+    /**
+     * @return count messages, each listing the given number of repositories in every section.
+     */
+    public static byte[][] messages(int count, int repositories) throws IOException {
+        byte[][] messages = new byte[count][];
+        long distinctBytes = 0;
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinctBytes < MAX_DISTINCT_BYTES) {
+                messages[i] = message(i, repositories);
+                distinctBytes += messages[i].length;
+                distinct++;
+            } else {
+                messages[i] = messages[i % distinct];
+            }
+        }
+        return messages;
+    }
+
+    public static byte[] message(int variant, int repositories) throws IOException {
+        String template = template();
+        int start = template.indexOf(SECTION_START);
+        int end = template.indexOf(SECTION_END);
+
+        StringBuilder message = new StringBuilder(template.length() + repositories * SECTIONS.length * 128);
+        message.append(template, 0, start);
+        for (String section : SECTIONS) {
+            message.append(section).append(" today Mar 10 - Mar 11\n-------------\n\n");
+            for (int i = 1; i <= repositories; i++) {
+                String language = LANGUAGES[(variant + i) % LANGUAGES.length];
+                message.append(i).append(". https://github.com/owner").append(variant).append('-').append(i)
+                        .append("/repository-").append(i).append(' ').append(language).append('\n');
+                message.append("Description of repository ").append(i).append(" for message ").append(variant)
+                        .append(", long enough to look like the real thing.\n\n");
+            }
+            message.append('\n');
+        }
+        message.append(template, end, template.length());
+
+        String result = message.toString().replace("<531f0a82bda53_", "<" + variant + "_");
+        return result.getBytes("UTF-8");
+    }
+
+    private static synchronized String template() throws IOException {
+        if (template == null) {
+            InputStream input = new FileInputStream(System.getProperty("corpus.template", "src/test/resources/Example.msg"));
+            try {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    output.write(buffer, 0, read);
+                }
+                template = output.toString("UTF-8");
+            } finally {
+                Util.closeQuietly(input);
+            }
+        }
+        return template;
+    }
+}
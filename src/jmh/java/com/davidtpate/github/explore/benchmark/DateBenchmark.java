@@ -0,0 +1,43 @@
+package com.davidtpate.github.explore.benchmark;
+
+import com.davidtpate.github.explore.util.DateParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DateParser} against the SimpleDateFormat the parser used to build for every message.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DateBenchmark {
+    private static final String[] DATES = {
+            "Tue, 11 Mar 2014 06:07:14 -0700",
+            "Wed, 12 Mar 2014 13:07:14 +0000",
+            "Thu, 1 May 2014 09:00:01 +0100",
+            "Fri, 31 Oct 2014 23:59:59 -0500"
+    };
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public void dateParser(Blackhole blackhole) throws ParseException {
+        for (String date : DATES) {
+            blackhole.consume(DateParser.parse(date));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public void simpleDateFormat(Blackhole blackhole) throws ParseException {
+        for (String date : DATES) {
+            blackhole.consume(new SimpleDateFormat("EEE, d MMM yyyy HH:mm:ss Z").parse(date));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.davidtpate.github.explore.benchmark;
+
+import com.davidtpate.github.explore.dedup.MessageFingerprint;
+import com.davidtpate.github.explore.util.Strings;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fingerprinting a message against hashing all of it with MD5, which is what telling copies apart would otherwise take.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DedupBenchmark {
+    @Param({"5", "50"})
+    public int repositories;
+
+    private ByteBuffer message;
+    private String text;
+
+    @Setup
+    public void setup() throws IOException {
+        byte[] bytes = Corpus.messages(1, repositories)[0];
+        message = ByteBuffer.wrap(bytes);
+        text = new String(bytes, "UTF-8");
+    }
+
+    @Benchmark
+    public long fingerprint() {
+        return MessageFingerprint.of(message);
+    }
+
+    @Benchmark
+    public String md5() {
+        return Strings.md5(text);
+    }
+}
@@ -0,0 +1,68 @@
+package com.davidtpate.github.explore.benchmark;
+
+import com.davidtpate.github.explore.GithubExploreMessageParser;
+import com.davidtpate.github.explore.model.Field;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Header handling, run over the header lines of Example.msg so the mix of fields we care about and fields we skip is
+ * realistic.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HeaderBenchmark {
+    private static final String[] LINES = {
+            "Delivered-To: davidtpate@gmail.com",
+            "Received: by 10.194.187.134 with SMTP id fs6csp154248wjc;",
+            "X-Received: by 10.66.175.4 with SMTP id bw4mr47587041pac.56.1394543236260;",
+            "Return-Path: <bounces+848413-7590-davidtpate=gmail.com@sgmail.github.com>",
+            "Received-SPF: pass (google.com: domain of bounces+848413-7590-davidtpate=gmail.com@sgmail.github.com)",
+            "Authentication-Results: mx.google.com;",
+            "DKIM-Signature: v=1; a=rsa-sha1; c=relaxed; d=sgmail.github.com;",
+            "Date: Tue, 11 Mar 2014 06:07:14 -0700",
+            "From: GitHub <noreply@github.com>",
+            "To: David Pate <davidtpate@gmail.com>",
+            "Message-ID: <531f0a82bda53_426d3fc7963d12a46736c@github-lowworker7-cp1-prd.iad.github.net.mail>",
+            "Subject: GitHub explore today Mar 11",
+            "Mime-Version: 1.0",
+            "Content-Type: multipart/alternative;",
+            "Content-Transfer-Encoding: 7bit",
+            "X-Auto-Response-Suppress: All",
+            "tracking: true",
+            "categories: explore,explore-period-daily",
+            "X-SG-ID: Bc4JW+xVSelhQo5SaiCrmaHirxKbrqGWb3uj2rssPD8lqALlVr++cctjM/jE32ZK"
+    };
+
+    private String[] names;
+
+    @Setup
+    public void setup() {
+        names = new String[LINES.length];
+        for (int i = 0; i < LINES.length; i++) {
+            names[i] = LINES[i].substring(0, LINES[i].indexOf(':'));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(19)
+    public void parseField(Blackhole blackhole) {
+        for (String line : LINES) {
+            blackhole.consume(Field.parseField(line));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(19)
+    public void findHeader(Blackhole blackhole) {
+        for (String name : names) {
+            blackhole.consume(GithubExploreMessageParser.Header.findHeader(name));
+        }
+    }
+}
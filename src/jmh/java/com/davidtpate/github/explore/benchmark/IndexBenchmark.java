@@ -0,0 +1,87 @@
+package com.davidtpate.github.explore.benchmark;
+
+import com.davidtpate.github.explore.GithubExploreMessageParser;
+import com.davidtpate.github.explore.index.RepositoryIndex;
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+import com.davidtpate.github.explore.model.Repository;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Range scans and group-by counts over an index of a few years of synthetic digests, one digest an hour.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IndexBenchmark {
+    private static final long HOUR = 60L * 60 * 1000;
+    private static final long WEEK = 7 * 24 * HOUR;
+
+    @Param({"1000000", "10000000"})
+    public int rows;
+
+    private RepositoryIndex index;
+    private File directory;
+    private long start;
+    private long end;
+
+    @Setup
+    public void setup() throws IOException {
+        GithubExploreMessage template = new GithubExploreMessageParser().parse(ByteBuffer.wrap(Corpus.messages(1, 50)[0]));
+        directory = File.createTempFile("explore", ".index");
+        directory.delete();
+        index = new RepositoryIndex(directory);
+
+        start = template.getDateMillis();
+        long date = start;
+        // Rotate the names so there are a realistic number of distinct repositories.
+        int digest = 0;
+        while (index.size() < rows) {
+            GithubExploreMessage.Builder builder = new GithubExploreMessage.Builder().date(date);
+            for (Repository repository : template.getPopularRepositoryList()) {
+                builder.popularRepository(new Repository.Builder()
+                        .name(repository.getName() + (digest % 997))
+                        .type(repository.getType())
+                        .rank(repository.getRank())
+                        .build());
+            }
+            for (Repository repository : template.getSocialRepositoryList()) {
+                builder.socialRepository(repository);
+            }
+            index.append(builder.build());
+            date += HOUR;
+            digest++;
+        }
+        end = date;
+        index.flush();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        index.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public int[] countByRepository() throws IOException {
+        return index.countByRepository(GithubExploreMessageParser.RepositoryListType.POPULAR, start + (end - start) / 4, end);
+    }
+
+    @Benchmark
+    public int[][] weeklyLanguages() throws IOException {
+        return index.countByLanguage(GithubExploreMessageParser.RepositoryListType.SOCIAL, start, end, WEEK);
+    }
+}
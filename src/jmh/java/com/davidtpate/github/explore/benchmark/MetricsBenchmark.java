@@ -0,0 +1,45 @@
+package com.davidtpate.github.explore.benchmark;
+
+import com.davidtpate.github.explore.GithubExploreMessageParser;
+import com.davidtpate.github.explore.metrics.ParseMetrics;
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What reporting to a {@link ParseMetrics} costs a parse, run it with several threads to see the sink being shared.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+    @Param({"5", "50"})
+    public int repositories;
+
+    private final GithubExploreMessageParser parser = new GithubExploreMessageParser();
+    private final GithubExploreMessageParser measuredParser = new GithubExploreMessageParser.Builder()
+            .metrics(new ParseMetrics())
+            .build();
+    private ByteBuffer message;
+
+    @Setup
+    public void setup() throws IOException {
+        message = ByteBuffer.wrap(Corpus.messages(1, repositories)[0]);
+    }
+
+    @Benchmark
+    public GithubExploreMessage withoutMetrics() {
+        return parser.parse(message.duplicate());
+    }
+
+    @Benchmark
+    public GithubExploreMessage withMetrics() {
+        return measuredParser.parse(message.duplicate());
+    }
+}
@@ -0,0 +1,78 @@
+package com.davidtpate.github.explore.benchmark;
+
+import com.davidtpate.github.explore.GithubExploreMessageParser;
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses one message of a synthetic corpus per operation, walking through the corpus in order so that larger corpora
+ * don't stay in the CPU caches. Run with -prof gc for allocation rates, the SampleTime mode gives the percentiles.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int messages;
+
+    @Param({"5", "50", "500"})
+    public int repositories;
+
+    private final GithubExploreMessageParser parser = new GithubExploreMessageParser();
+    private final GithubExploreMessageParser partsParser = new GithubExploreMessageParser.Builder()
+            .parallelParts(ForkJoinPool.commonPool())
+            .build();
+    private byte[][] corpus;
+    private ByteBuffer[] buffers;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        corpus = Corpus.messages(messages, repositories);
+        buffers = new ByteBuffer[corpus.length];
+        for (int i = 0; i < corpus.length; i++) {
+            buffers[i] = ByteBuffer.wrap(corpus[i]);
+        }
+    }
+
+    @Benchmark
+    public GithubExploreMessage parseBuffer() {
+        ByteBuffer buffer = buffers[next].duplicate();
+        next = (next + 1) % buffers.length;
+        return parser.parse(buffer);
+    }
+
+    /**
+     * Only pays off with more than one core and a message large enough to cover handing the parts out.
+     */
+    @Benchmark
+    public GithubExploreMessage parseBufferParts() {
+        ByteBuffer buffer = buffers[next].duplicate();
+        next = (next + 1) % buffers.length;
+        return partsParser.parse(buffer);
+    }
+
+    @Benchmark
+    public GithubExploreMessage parseStream() {
+        byte[] message = corpus[next];
+        next = (next + 1) % corpus.length;
+        return parser.parse(new ByteArrayInputStream(message));
+    }
+
+    @Benchmark
+    public GithubExploreMessage parseReader() throws IOException {
+        byte[] message = corpus[next];
+        next = (next + 1) % corpus.length;
+        return parser.parse(new InputStreamReader(new ByteArrayInputStream(message), "UTF-8"));
+    }
+}
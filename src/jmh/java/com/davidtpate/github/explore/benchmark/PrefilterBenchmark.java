@@ -0,0 +1,41 @@
+package com.davidtpate.github.explore.benchmark;
+
+import com.davidtpate.github.explore.GithubExploreMessageParser;
+import com.davidtpate.github.explore.MessagePrefilter;
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning away a message that isn't a digest, with the prefilter against letting the parser find out for itself.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PrefilterBenchmark {
+    private final GithubExploreMessageParser parser = new GithubExploreMessageParser();
+    private final MessagePrefilter prefilter = new MessagePrefilter();
+    private ByteBuffer other;
+
+    @Setup
+    public void setup() throws IOException {
+        String digest = new String(Corpus.messages(1, 5)[0], "UTF-8");
+        other = ByteBuffer.wrap(digest.replace("From: GitHub <noreply@github.com>", "From: someone@example.com").getBytes("UTF-8"));
+    }
+
+    @Benchmark
+    public boolean prefilter() {
+        return prefilter.accept(other);
+    }
+
+    @Benchmark
+    public GithubExploreMessage parser() {
+        return parser.parse(other.duplicate());
+    }
+}
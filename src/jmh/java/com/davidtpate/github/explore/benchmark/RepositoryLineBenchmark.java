@@ -0,0 +1,75 @@
+package com.davidtpate.github.explore.benchmark;
+
+import com.davidtpate.github.explore.RepositoryLineScanner;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the single pass {@link RepositoryLineScanner} with the regular expressions the parser used to match list
+ * items. Each invocation works through a mix of lines from a real message, including ones that aren't list items. The
+ * SampleTime mode gives the percentiles.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RepositoryLineBenchmark {
+    private static final Pattern LIST_ITEM_PATTERN = Pattern.compile("^[\\d]+\\..*");
+    private static final Pattern REPOSITORY_ITEM_PATTERN = Pattern.compile("^[\\d]+\\. (https://github.com/(.*/.*)) (.*)?$");
+
+    private final RepositoryLineScanner scanner = new RepositoryLineScanner();
+    private String[] lines;
+
+    @Setup
+    public void setup() {
+        StringBuilder longDescription = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            longDescription.append("A description that goes on/and on with slashes ");
+        }
+
+        lines = new String[] {
+                "1. https://github.com/gabrielecirulli/2048 CSS",
+                "A small clone of 1024 (https://play.google.com/store/apps/details?id=com.veewo.a1024)",
+                "2. https://github.com/OfficeDev/Office-365-SDK-for-Android Java",
+                "Office 365 SDK for Android Preview by Microsoft Open Technologies, Inc.",
+                "5. https://github.com/papers-we-love/papers-we-love ",
+                "Papers from the computer science community to read and discuss.",
+                "12. https://github.com/carlosgaldino/alfred-emoji-workflow Ruby",
+                "Trending Repositories",
+                "",
+                "13. https://github.com/person/example " + longDescription
+        };
+    }
+
+    @Benchmark
+    public void regex(Blackhole blackhole) {
+        for (String line : lines) {
+            if (LIST_ITEM_PATTERN.matcher(line).matches()) {
+                Matcher matcher = REPOSITORY_ITEM_PATTERN.matcher(line);
+                if (matcher.find()) {
+                    blackhole.consume(matcher.group(1));
+                    blackhole.consume(matcher.group(2));
+                    blackhole.consume(matcher.group(3));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void scanner(Blackhole blackhole) {
+        for (String line : lines) {
+            if (scanner.scan(line)) {
+                blackhole.consume(scanner.getRank());
+                blackhole.consume(scanner.getUrl());
+                blackhole.consume(scanner.getName());
+                blackhole.consume(scanner.getType());
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.davidtpate.github.explore;
+
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+import com.davidtpate.github.explore.model.Repository;
+
+/**
+ * Gathers the callbacks back up into a {@link GithubExploreMessage}, for callers that want the whole message at once.
+ */
+final class CollectingMessageHandler implements ExploreMessageHandler {
+    private final GithubExploreMessage.Builder mMessageBuilder = new GithubExploreMessage.Builder();
+    private GithubExploreMessage mMessage;
+
+    public void onHeader(GithubExploreMessageParser.Header header, String value) {
+        switch (header) {
+            case TO:
+                mMessageBuilder.to(value);
+                break;
+            case FROM:
+                mMessageBuilder.from(value);
+                break;
+            case SUBJECT:
+                mMessageBuilder.subject(value);
+                break;
+            case MESSAGE_ID:
+                mMessageBuilder.messageId(value);
+                break;
+            case LIST_ID:
+                mMessageBuilder.listId(value);
+                break;
+            default:
+                break;
+        }
+    }
+
+    public void onDate(long date) {
+        mMessageBuilder.date(date);
+    }
+
+    public void onRepository(GithubExploreMessageParser.RepositoryListType listType, Repository repository) {
+        switch (listType) {
+            case SOCIAL:
+                mMessageBuilder.socialRepository(repository);
+                break;
+            case STAFF:
+                mMessageBuilder.staffRepository(repository);
+                break;
+            case POPULAR:
+                mMessageBuilder.popularRepository(repository);
+                break;
+            default:
+                break;
+        }
+    }
+
+    public void onEnd() {
+        mMessage = mMessageBuilder.build();
+    }
+
+    GithubExploreMessage getMessage() {
+        return mMessage;
+    }
+}
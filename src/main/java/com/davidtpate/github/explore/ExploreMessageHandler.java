@@ -0,0 +1,31 @@
+package com.davidtpate.github.explore;
+
+import com.davidtpate.github.explore.model.Repository;
+
+/**
+ * Receives the pieces of an explore message as they are parsed, so nothing has to be held on to until the end of the
+ * message. Callbacks come in the order things appear in the message, headers first, and always on the thread that
+ * called parse.
+ */
+public interface ExploreMessageHandler {
+    /**
+     * Called for each header the parser knows about, with the unfolded value.
+     */
+    void onHeader(GithubExploreMessageParser.Header header, String value);
+
+    /**
+     * Called after the Date header if it could be read, with the date in milliseconds since the epoch.
+     */
+    void onDate(long date);
+
+    /**
+     * Called as soon as each repository has been read.
+     */
+    void onRepository(GithubExploreMessageParser.RepositoryListType listType, Repository repository);
+
+    /**
+     * Called once the parser is done with the message, including when it stopped early because the message isn't an
+     * explore message.
+     */
+    void onEnd();
+}
@@ -1,28 +1,47 @@
 package com.davidtpate.github.explore;
 
 
-import com.davidtpate.github.explore.exception.HaltProcessingException;
+import com.davidtpate.github.explore.io.ByteBufferLineReader;
+import com.davidtpate.github.explore.io.HeaderTokenizer;
+import com.davidtpate.github.explore.io.InputStreamLineReader;
+import com.davidtpate.github.explore.io.LineReader;
+import com.davidtpate.github.explore.io.ReaderLineReader;
+import com.davidtpate.github.explore.io.TransferEncoding;
+import com.davidtpate.github.explore.metrics.MetricsSink;
+import com.davidtpate.github.explore.metrics.ParseCounter;
+import com.davidtpate.github.explore.metrics.ParseStage;
 import com.davidtpate.github.explore.model.Field;
 import com.davidtpate.github.explore.model.GithubExploreMessage;
 import com.davidtpate.github.explore.model.Repository;
+import com.davidtpate.github.explore.model.RepositoryPool;
+import com.davidtpate.github.explore.util.BoyerMooreHorspool;
+import com.davidtpate.github.explore.util.CharSequences;
+import com.davidtpate.github.explore.util.DateParser;
+import com.davidtpate.github.explore.util.MimeHeaders;
 import com.davidtpate.github.explore.util.Strings;
 import com.davidtpate.github.explore.util.Util;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class GithubExploreMessageParser extends MessageParser<GithubExploreMessage> {
+    /**
+     * Bump this whenever a change means the same message parses to something different, anything holding on to parse
+     * results keys on it.
+     */
+    public static final int VERSION = 1;
     /**
      * We want to restrict the messages we look at to only those that are claimed to be from Github.
      */
-    private static final String GITHUB_FROM = "GitHub <noreply@github.com>";
+    static final String GITHUB_FROM = "GitHub <noreply@github.com>";
     /**
      * We want to restrict processing to emails that have close enough subject, otherwise the processing is pointless.
      */
-    private static final String GITHUB_SUBJECT = "GitHub explore";
+    static final String GITHUB_SUBJECT = "GitHub explore";
     /**
      * Beginning part of the Plaintext section for "People you follow"
      */
@@ -35,228 +54,565 @@ public class GithubExploreMessageParser extends MessageParser<GithubExploreMessa
      * Beginning part of the Plaintext section for "Stars from GitHub Staff"
      */
     private static final String GITHUB_STAFF_PREFIX = "Stars from GitHub Staff";
-    GithubExploreMessage.Builder mMessageBuilder = new GithubExploreMessage.Builder();
-    Repository.Builder mRepositoryBuilder = new Repository.Builder();
     /**
-     * Pattern for matching the Plaintext repository list items. Matches strings like "1." and "12.", the period is required.
+     * Only changes how the body is read, so it's handled here rather than being passed on as a Header.
+     */
+    private static final String CONTENT_TRANSFER_ENCODING = "Content-Transfer-Encoding";
+
+    /**
+     * Whether to read the HTML part for the star counts and for repositories missing from the Plaintext part. When it
+     * is on the repositories are held back until the end of the message so the two parts can be merged.
+     */
+    private boolean mExtractHtml;
+    /**
+     * Shares equal repositories between messages, off unless one is given to the builder.
+     */
+    private RepositoryPool mRepositoryPool;
+    /**
+     * Checked before a buffer is parsed, off unless one is given to the builder.
+     */
+    private MessagePrefilter mPrefilter;
+    /**
+     * Told how long each stage and message took, off unless one is given to the builder.
      */
-    private Pattern mPlainTextListItemPattern = Pattern.compile("^[\\d]+\\..*");
+    private MetricsSink mMetricsSink;
     /**
-     * Pattern for extracting the details of the first line of the repository. Matches strings like "1. https://github.com/person/example " and "2. https://github.com/person/example2 Java".
-     * It separates the string into 3 pieces. The url, the repository name, and the repository type (if available).
-     * For example, given the following: "2. https://github.com/person/example2 Java" it would resolve the parts as follows:
-     * url: https://github.com/person/example2
-     * name: person/example2
-     * type: Java
+     * Where the parts of a message in memory are parsed side by side, off unless one is given to the builder.
      */
-    private Pattern mPlainTextRepositoryItemPattern = Pattern.compile("^[\\d]+\\. (https://github.com/(.*/.*)) (.*)?$");
+    private ForkJoinPool mPartPool;
 
     public GithubExploreMessage parse(String path) throws FileNotFoundException, IllegalArgumentException {
-        // If we don't have a path to anything, no point in continuing.
-        if (Strings.isEmpty(path)) {
-            throw new IllegalArgumentException("Path is Null or Blank");
+        CollectingMessageHandler handler = new CollectingMessageHandler();
+        parse(path, handler);
+        return handler.getMessage();
+    }
+
+    public GithubExploreMessage parse(InputStream stream) throws IllegalArgumentException {
+        CollectingMessageHandler handler = new CollectingMessageHandler();
+        parse(stream, handler);
+        return handler.getMessage();
+    }
+
+    public GithubExploreMessage parse(Reader reader) throws IllegalArgumentException {
+        CollectingMessageHandler handler = new CollectingMessageHandler();
+        parse(reader, handler);
+        return handler.getMessage();
+    }
+
+    public GithubExploreMessage parse(ByteBuffer buffer) throws IllegalArgumentException {
+        CollectingMessageHandler handler = new CollectingMessageHandler();
+        parse(buffer, handler);
+        return handler.getMessage();
+    }
+
+    /**
+     * Streams the message to the handler instead of building it up, repositories are handed over as they are read.
+     */
+    public void parse(String path, ExploreMessageHandler handler) throws FileNotFoundException, IllegalArgumentException {
+        checkHandler(handler);
+        parse(new FileInputStream(checkPath(path)), handler);
+    }
+
+    public void parse(InputStream stream, ExploreMessageHandler handler) throws IllegalArgumentException {
+        // If we don't have anything to read, no point in continuing.
+        if (stream == null) {
+            throw new IllegalArgumentException("Stream is Null");
         }
+        checkHandler(handler);
+
+        // Read the raw bytes, each part is decoded with its own charset rather than the platform default.
+        parseMessage(new InputStreamLineReader(stream, DEFAULT_CHARSET), handler);
+    }
 
-        File file = new File(path);
-        // If we don't have a file or it doesn't exist no point in continuing.
-        if (file == null || !file.exists()) {
-            throw new FileNotFoundException("File Null or Not Found");
+    public void parse(Reader reader, ExploreMessageHandler handler) throws IllegalArgumentException {
+        // If we don't have anything to read, no point in continuing.
+        if (reader == null) {
+            throw new IllegalArgumentException("Reader is Null");
         }
+        checkHandler(handler);
 
-        return parseMessage(new FileReader(path));
+        parseMessage(new ReaderLineReader(reader), handler);
     }
 
-    private GithubExploreMessage parseMessage(FileReader fileReader) {
-        // This can only be called internally so inputStream should never be null, but just in case.
-        if (fileReader == null) {
-            return null;
+    public void parse(byte[] data, ExploreMessageHandler handler) throws IllegalArgumentException {
+        // If we don't have anything to read, no point in continuing.
+        if (data == null) {
+            throw new IllegalArgumentException("Data is Null");
         }
 
-        BufferedReader reader = new BufferedReader(fileReader);
-        String line;
-        boolean haltProcessing = false;
+        parse(ByteBuffer.wrap(data), handler);
+    }
+
+    public void parse(ByteBuffer buffer, ExploreMessageHandler handler) throws IllegalArgumentException {
+        // If we don't have anything to read, no point in continuing.
+        if (buffer == null) {
+            throw new IllegalArgumentException("Buffer is Null");
+        }
+        checkHandler(handler);
+
+        long start = mMetricsSink != null ? System.nanoTime() : 0;
+        if (mPrefilter != null && !mPrefilter.accept(buffer)) {
+            if (mMetricsSink != null) {
+                mMetricsSink.increment(ParseCounter.MESSAGES, 1);
+                mMetricsSink.increment(ParseCounter.REJECTED, 1);
+                mMetricsSink.recordMessage(System.nanoTime() - start);
+            }
+            handler.onEnd();
+            return;
+        }
+        parseMessage(new ByteBufferLineReader(buffer, DEFAULT_CHARSET), handler, buffer);
+    }
+
+    private static void checkHandler(ExploreMessageHandler handler) throws IllegalArgumentException {
+        if (handler == null) {
+            throw new IllegalArgumentException("Handler is Null");
+        }
+    }
+
+    private void parseMessage(LineReader reader, ExploreMessageHandler handler) {
+        parseMessage(reader, handler, null);
+    }
+
+    /**
+     * @param message The whole message when it's in memory, lets the parts be parsed in parallel.
+     */
+    private void parseMessage(LineReader reader, ExploreMessageHandler handler, ByteBuffer message) {
+        // This can only be called internally so the reader should never be null, but just in case.
+        if (reader == null) {
+            return;
+        }
+
+        // All of the state for this message lives in the context, so concurrent parses don't step on each other.
+        ParseContext context = new ParseContext(reader, handler, mExtractHtml, mRepositoryPool, mMetricsSink);
+        boolean rejected = false;
         try {
-            while ((line = reader.readLine()) != null && !haltProcessing) {
-                // If we are in the header.
-                switch (readerLocation) {
-                    case HEADER:
-                        // If we are leaving the header and we encounter a new mime part figure out what it is.
-                        if (line.startsWith(MIME_PREFIX)) {
-                            handleMimePart(reader);
-                        } else {
-                            try {
-                                handleHeaderField(Field.parseField(line));
-                            } catch (HaltProcessingException e) {
-                                haltProcessing = true;
-                            } catch (ParseException e) {
-                                e.printStackTrace();
-                            }
-                        }
-                        break;
-                    case PLAINTEXT_BODY:
-                        // If we are leaving the header and we encounter a new mime part figure out what it is.
-                        if (line.startsWith(MIME_PREFIX)) {
-                            handleMimePart(reader);
-                        } else {
-                            // Find the repositories in the list and add them as "social" or "staff" repositories.
-                            if (line.startsWith(PEOPLE_YOU_FOLLOW_PREFIX)) {
-                                parseRepositoryList(reader, RepositoryListType.SOCIAL);
-                            } else if (line.startsWith(GITHUB_STAFF_PREFIX)) {
-                                // If the person has no friends that Star stuff, take a moment of silence and then parse the list.
-                                parseRepositoryList(reader, RepositoryListType.STAFF);
-                            } else if (line.startsWith(POPULAR_PREFIX)) {
-                                parseRepositoryList(reader, RepositoryListType.POPULAR);
-                            }
-                        }
-                        break;
-                    case HTML_BODY:
-                        // If we are leaving the header and we encounter a new mime part figure out what it is.
-                        if (line.startsWith(MIME_PREFIX)) {
-                            handleMimePart(reader);
-                        } else {
-                            // For this example we're only processing PlainText, so let's stop here.
-                            haltProcessing = true;
-                        }
-                        break;
-                    default:
-                        haltProcessing = true;
-                        break;
-                }
+            // Everything up to the first empty line is the message header.
+            long start = context.startStage();
+            rejected = !parseHeaders(context);
+            context.endStage(ParseStage.HEADERS, start);
+            if (!rejected && (message == null || mPartPool == null || !parseParts(context, message))) {
+                parseBody(context);
             }
         } catch (IOException e) {
-            e.printStackTrace();
+            context.error(e);
         } finally {
             Util.closeQuietly(reader);
         }
 
-        return mMessageBuilder.build();
+        context.finish();
+        context.endMessage(rejected);
+        handler.onEnd();
+    }
+
+    /**
+     * Finds where each part of the message starts and parses them all at once on the pool. What each part finds is held
+     * until they're all done and then handed over in the order the parts appear, so the result is the same as reading
+     * them one after another.
+     *
+     * @return false if there's nothing to split up, the body is left for the caller to read.
+     */
+    private boolean parseParts(ParseContext context, ByteBuffer message) {
+        if (!context.multipart) {
+            return false;
+        }
+
+        int[] starts = findParts(message, context.delimiter);
+        if (starts.length < 2) {
+            return false;
+        }
+
+        PartTask[] parts = new PartTask[starts.length];
+        for (int i = 0; i < starts.length; i++) {
+            ByteBuffer part = message.duplicate();
+            part.limit(i + 1 < starts.length ? starts[i + 1] : message.limit());
+            part.position(starts[i]);
+            parts[i] = new PartTask(context, part);
+        }
+        mPartPool.invoke(new PartsTask(parts));
+
+        for (PartTask part : parts) {
+            part.recorder.replay(context);
+        }
+        return true;
     }
 
-    private void parseRepositoryList(BufferedReader reader, RepositoryListType repositoryListType) throws IOException {
-        String line;
+    /**
+     * @return Where each delimiter line begins, in order.
+     */
+    private static int[] findParts(ByteBuffer message, String delimiter) {
+        BoyerMooreHorspool search = new BoyerMooreHorspool("\n" + delimiter);
+        int[] starts = new int[8];
+        int count = 0;
+        int match = message.position() - 1;
+        while ((match = search.indexOf(message, match + 1, message.limit())) != -1) {
+            if (!isDelimiterEnd(message, match + 1 + delimiter.length())) {
+                continue;
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+            }
+            starts[count++] = match + 1;
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    /**
+     * @return true if what follows a delimiter at the offset is what {@link CharSequences#isDelimiter} allows.
+     */
+    private static boolean isDelimiterEnd(ByteBuffer message, int offset) {
+        int limit = message.limit();
+        if (offset + 1 < limit && message.get(offset) == '-' && message.get(offset + 1) == '-') {
+            offset += 2;
+        }
+        for (; offset < limit && message.get(offset) != '\n'; offset++) {
+            byte b = message.get(offset);
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the body from wherever the reader is up to, the header or the start of a part, to the end.
+     */
+    private void parseBody(ParseContext context) throws IOException {
+        CharSequence line;
+        boolean haltProcessing = false;
+        while (!haltProcessing && (line = context.readLine()) != null) {
+            switch (context.readerLocation) {
+                case PLAINTEXT_BODY:
+                    // If we are leaving the header and we encounter a new mime part figure out what it is.
+                    if (context.isDelimiter(line)) {
+                        handleMimePart(context);
+                    } else {
+                        // Find the repositories in the list and add them as "social" or "staff" repositories.
+                        if (CharSequences.startsWith(line, PEOPLE_YOU_FOLLOW_PREFIX)) {
+                            parseRepositoryList(context, RepositoryListType.SOCIAL);
+                        } else if (CharSequences.startsWith(line, GITHUB_STAFF_PREFIX)) {
+                            // If the person has no friends that Star stuff, take a moment of silence and then parse the list.
+                            parseRepositoryList(context, RepositoryListType.STAFF);
+                        } else if (CharSequences.startsWith(line, POPULAR_PREFIX)) {
+                            parseRepositoryList(context, RepositoryListType.POPULAR);
+                        }
+                    }
+                    break;
+                case HTML_BODY:
+                    if (context.htmlExtractor == null) {
+                        // Without HTML extraction this part gets skipped like any other.
+                        haltProcessing = !skipPart(context, line);
+                    } else if (context.isDelimiter(line)) {
+                        context.htmlExtractor.end();
+                        handleMimePart(context);
+                    } else {
+                        context.htmlExtractor.scan(line);
+                    }
+                    break;
+                case SKIPPED_PART:
+                    haltProcessing = !skipPart(context, line);
+                    break;
+                default:
+                    haltProcessing = true;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Jumps straight to the next part without looking at the lines in between.
+     *
+     * @param line The line just read, it may already be the delimiter.
+     * @return false if the message ended before another part started.
+     */
+    private boolean skipPart(ParseContext context, CharSequence line) throws IOException {
+        if (context.isDelimiter(line) || context.skipToDelimiter() != null) {
+            handleMimePart(context);
+            return true;
+        }
+        return false;
+    }
+
+    private void parseRepositoryList(ParseContext context, RepositoryListType repositoryListType) throws IOException {
+        long start = context.startStage();
+        CharSequence line;
         boolean stopProcessing = false;
         // Bubble up the exceptions, no need to handle them down here.
-        while ((line = reader.readLine()) != null && !stopProcessing) {
+        while (!stopProcessing && (line = context.readLine()) != null) {
             // If we hit the next MIME part, stop processing.
-            if (line.startsWith(MIME_PREFIX)) {
-                handleMimePart(reader);
+            if (context.isDelimiter(line)) {
+                handleMimePart(context);
                 stopProcessing = true;
             }
-            else if (line.startsWith(PEOPLE_YOU_FOLLOW_PREFIX)) {
+            else if (CharSequences.startsWith(line, PEOPLE_YOU_FOLLOW_PREFIX)) {
                 // If we run into the People You Follow section, head off to process it. This could happen if they are out of order.
-                parseRepositoryList(reader, RepositoryListType.SOCIAL);
+                parseRepositoryList(context, RepositoryListType.SOCIAL);
                 stopProcessing = true;
-            } else if (line.startsWith(GITHUB_STAFF_PREFIX)) {
+            } else if (CharSequences.startsWith(line, GITHUB_STAFF_PREFIX)) {
                 // If we run into the Staff section, head off to process it.
-                parseRepositoryList(reader, RepositoryListType.STAFF);
+                parseRepositoryList(context, RepositoryListType.STAFF);
+                stopProcessing = true;
+            } else if (CharSequences.startsWith(line, POPULAR_PREFIX)) {
+                parseRepositoryList(context, RepositoryListType.POPULAR);
                 stopProcessing = true;
-            } else if (line.startsWith(POPULAR_PREFIX)) {
-                parseRepositoryList(reader, RepositoryListType.POPULAR);
             }
             // If the line begins with a number followed directly by a period assume it is a repository.
-            else if (mPlainTextListItemPattern.matcher(line).matches()) {
-                switch (repositoryListType) {
-                    case SOCIAL:
-                        mMessageBuilder.socialRepository(parseRepository(line, reader));
-                        break;
-                    case STAFF:
-                        mMessageBuilder.staffRepository(parseRepository(line, reader));
-                        break;
-                    case POPULAR:
-                        mMessageBuilder.popularRepository(parseRepository(line, reader));
-                        break;
-                    default:
-                        break;
-                }
+            else if (context.repositoryLineScanner.scan(line)) {
+                context.addRepository(repositoryListType, parseRepository(context));
             }
         }
+        context.endStage(ParseStage.REPOSITORY_LIST, start);
     }
 
-    private Repository parseRepository(String lastLine, BufferedReader reader) throws IOException {
-        String line = lastLine;
-        Matcher matcher = mPlainTextRepositoryItemPattern.matcher(line);
-        if (matcher.find()) {
-            mRepositoryBuilder.url(matcher.group(1));
-            mRepositoryBuilder.name(matcher.group(2));
-            String type = matcher.group(3);
-            if (Strings.notEmpty(type)) {
-                mRepositoryBuilder.type(type);
-            }
-        }
+    /**
+     * Builds the repository from the item the scanner has just matched.
+     */
+    private Repository parseRepository(ParseContext context) throws IOException {
+        Repository.Builder repositoryBuilder = context.repositoryBuilder;
+        RepositoryLineScanner scanner = context.repositoryLineScanner;
+        repositoryBuilder.rank(scanner.getRank());
+        repositoryBuilder.url(scanner.getUrl());
+        repositoryBuilder.name(scanner.getName());
+        repositoryBuilder.type(scanner.getType());
 
         // Grab the description which is always on the next line. Also, bubble up the exceptions, no need to handle them this low.
-        line = reader.readLine();
-        mRepositoryBuilder.description(line);
+        CharSequence line = context.readLine();
+        repositoryBuilder.description(line != null ? line.toString() : null);
 
-        return mRepositoryBuilder.build();
+        return repositoryBuilder.build();
     }
 
-    private void handleMimePart(BufferedReader reader) throws IOException {
-        // Since we just shifted to a new section we want to read in the headers to determine which section it is.
-        String headerLine;
-        boolean stopParsingHeaders = false;
-        while ((headerLine = reader.readLine()) != null && !stopParsingHeaders) {
-            // If we've reached whitespace, then we are done with the headers.
-            if (Strings.isEmpty(headerLine)) {
-                // If we have reached a new MIME part but have no headers then we are likely at the end of the file.
-                stopParsingHeaders = true;
-                break;
+    /**
+     * Reads the message header and works out where the body starts.
+     *
+     * @return false if the header shows that this message isn't worth processing.
+     */
+    private boolean parseHeaders(ParseContext context) throws IOException {
+        HeaderTokenizer tokenizer = context.headerTokenizer;
+        while (tokenizer.next()) {
+            if (CharSequences.equalsIgnoreCase(tokenizer.getName(), CONTENT_TRANSFER_ENCODING)) {
+                context.transferEncoding = TransferEncoding.forName(tokenizer.getValue());
+                continue;
             }
 
-            Field field = Field.parseField(headerLine);
-            if (field == null) {
-                break;
-            }
-            Header header = Header.findHeader(field.getName());
+            Header header = Header.findHeader(tokenizer.getName());
+
+            // If we didn't resolve the header, then we don't need to pay attention to it.
             if (header == null) {
-                break;
+                continue;
             }
 
-            // If we have the Content Type header, use it to figure out what's the MIME area contains.
-            if (header == Header.CONTENT_TYPE) {
-                if (field.getValue().equals(CONTENT_TYPE_PLAIN)) {
-                    readerLocation = ReaderLocation.PLAINTEXT_BODY;
-                } else if (field.getValue().equals(CONTENT_TYPE_HTML)) {
-                    readerLocation = ReaderLocation.HTML_BODY;
+            try {
+                if (!handleHeaderField(context, header, new Field(header.getHeader(), tokenizer.getValue()))) {
+                    return false;
                 }
+            } catch (ParseException e) {
+                context.error(e);
             }
         }
-    }
 
-    private void handleHeaderField(Field field) throws HaltProcessingException, ParseException {
-        // If we don't have a field, no point continuing.
-        if (field == null) {
-            return;
+        if (context.multipart) {
+            // Skip the preamble and go straight to the first part.
+            context.readerLocation = ReaderLocation.SKIPPED_PART;
+        } else if (CONTENT_TYPE_PLAIN.equals(context.contentType)) {
+            context.readerLocation = ReaderLocation.PLAINTEXT_BODY;
+        } else if (CONTENT_TYPE_HTML.equals(context.contentType)) {
+            context.readerLocation = ReaderLocation.HTML_BODY;
+        } else {
+            // Without a boundary of our own, look for the usual one.
+            context.readerLocation = ReaderLocation.SKIPPED_PART;
         }
 
-        Header header = Header.findHeader(field.getName());
+        if (!context.multipart) {
+            // The body is the whole rest of the message.
+            context.reader.startPart(context.transferEncoding, context.charset, null);
+        }
+        return true;
+    }
 
-        // If we didn't resolve the header, then we don't need to pay attention to it.
-        if (header == null) {
-            return;
+    private void handleMimePart(ParseContext context) throws IOException {
+        long start = context.startStage();
+        // Anything we don't recognize below gets skipped.
+        context.readerLocation = ReaderLocation.SKIPPED_PART;
+
+        // Since we just shifted to a new section we want to read in the headers to determine which section it is.
+        HeaderTokenizer tokenizer = context.headerTokenizer;
+        tokenizer.reset();
+        context.transferEncoding = TransferEncoding.IDENTITY;
+        context.charset = DEFAULT_CHARSET;
+        while (tokenizer.next()) {
+            // If we have the Content Type header, use it to figure out what's the MIME area contains.
+            if (Header.findHeader(tokenizer.getName()) == Header.CONTENT_TYPE) {
+                String value = tokenizer.getValue();
+                String mediaType = MimeHeaders.getMediaType(value);
+                if (CONTENT_TYPE_PLAIN.equals(mediaType)) {
+                    context.readerLocation = ReaderLocation.PLAINTEXT_BODY;
+                } else if (CONTENT_TYPE_HTML.equals(mediaType)) {
+                    context.readerLocation = ReaderLocation.HTML_BODY;
+                }
+                context.charset = MimeHeaders.getCharset(value, DEFAULT_CHARSET);
+            } else if (CharSequences.equalsIgnoreCase(tokenizer.getName(), CONTENT_TRANSFER_ENCODING)) {
+                context.transferEncoding = TransferEncoding.forName(tokenizer.getValue());
+            }
         }
 
+        // The body of the part gets decoded on the way in, until the next boundary.
+        context.reader.startPart(context.transferEncoding, context.charset, context.delimiter);
+        context.endStage(ParseStage.MIME_PART, start);
+    }
+
+    /**
+     * @return false if the field shows that this message isn't worth processing. Most of a mixed mailbox gets turned
+     * away here, so it's a plain return rather than an exception.
+     */
+    private boolean handleHeaderField(ParseContext context, Header header, Field field) throws ParseException {
         String value = field.getValue();
 
         switch (header) {
-            case TO:
-                mMessageBuilder.to(value);
-                break;
             case FROM:
                 if (!GITHUB_FROM.equalsIgnoreCase(value)) {
-                    throw new HaltProcessingException();
+                    return false;
                 }
-                mMessageBuilder.from(value);
                 break;
             case SUBJECT:
                 if (!value.startsWith(GITHUB_SUBJECT)) {
-                    throw new HaltProcessingException();
+                    return false;
                 }
-                mMessageBuilder.subject(value);
                 break;
-            case DATE:
-                SimpleDateFormat simpleDateFormat = new SimpleDateFormat("EEE, d MMM yyyy HH:mm:ss Z");
-                mMessageBuilder.date(simpleDateFormat.parse(value));
+            case CONTENT_TYPE:
+                context.contentType = MimeHeaders.getMediaType(value);
+                context.charset = MimeHeaders.getCharset(value, DEFAULT_CHARSET);
+                // Use the real boundary to find the parts, rather than guessing at it.
+                String boundary = MimeHeaders.getParameter(value, "boundary");
+                if (Strings.notEmpty(boundary)) {
+                    context.delimiter = "--" + boundary;
+                    context.multipart = true;
+                }
+                break;
+        }
+
+        context.handler.onHeader(header, value);
+        if (header == Header.DATE) {
+            long start = context.startStage();
+            long date = DateParser.parse(value);
+            context.endStage(ParseStage.DATE, start);
+            context.handler.onDate(date);
+        }
+        return true;
+    }
+
+    /**
+     * Parses one part of a message, from its delimiter line up to the next one.
+     */
+    private final class PartTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final RecordingMerger recorder = new RecordingMerger();
+        private final ParseContext mMessage;
+        private final ByteBuffer mPart;
+
+        PartTask(ParseContext message, ByteBuffer part) {
+            mMessage = message;
+            mPart = part;
+        }
+
+        @Override
+        protected void compute() {
+            ParseContext context = new ParseContext(mMessage, new ByteBufferLineReader(mPart, DEFAULT_CHARSET), recorder);
+            try {
+                parseBody(context);
+            } catch (IOException e) {
+                context.error(e);
+            }
+            context.finishPart();
+        }
+    }
+
+    private static final class PartsTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final PartTask[] mParts;
+
+        PartsTask(PartTask[] parts) {
+            mParts = parts;
+        }
+
+        @Override
+        protected void compute() {
+            invokeAll(mParts);
+        }
+    }
+
+    /**
+     * @return The settings that change what a parse returns, as bits. Results from parsers that differ here can't stand
+     * in for each other.
+     */
+    public int getConfiguration() {
+        int configuration = 0;
+        if (mExtractHtml) {
+            configuration |= 1;
+        }
+        if (mPrefilter != null) {
+            configuration |= 2;
+        }
+        if (mRepositoryPool != null) {
+            configuration |= 4;
+        }
+        return configuration;
+    }
+
+    public static class Builder {
+        private GithubExploreMessageParser parser = new GithubExploreMessageParser();
+
+        /**
+         * Off by default, so the HTML part is skipped and repositories are streamed out as soon as they are read. Turn it on
+         * for star counts, the repositories are then held until the end of the message.
+         */
+        public Builder extractHtml(boolean extractHtml) {
+            parser.mExtractHtml = extractHtml;
+            return this;
+        }
+
+        /**
+         * Has every repository swapped for its canonical instance in the pool before it reaches the handler. The same
+         * pool can be given to several parsers.
+         */
+        public Builder repositoryPool(RepositoryPool repositoryPool) {
+            parser.mRepositoryPool = repositoryPool;
+            return this;
+        }
+
+        /**
+         * Runs buffers, and so mapped files, past the prefilter first. A rejected message ends straight away without
+         * any headers being handed over. Readers and files read as a stream aren't prefiltered.
+         */
+        public Builder prefilter(MessagePrefilter prefilter) {
+            parser.mPrefilter = prefilter;
+            return this;
+        }
+
+        /**
+         * Reports stage timings, counts and message latencies to the sink, which can be shared between parsers. Errors
+         * the parser carries on past go to the sink instead of being printed.
+         */
+        public Builder metrics(MetricsSink metricsSink) {
+            parser.mMetricsSink = metricsSink;
+            return this;
+        }
+
+        /**
+         * Parses the parts of a multipart message side by side on the pool, when the whole message is in memory as a
+         * buffer, an array or a mapped file. Streams and readers are still read from start to finish. The parts are
+         * merged in the order they appear, so the message comes out the same either way.
+         */
+        public Builder parallelParts(ForkJoinPool pool) {
+            parser.mPartPool = pool;
+            return this;
+        }
+
+        public GithubExploreMessageParser build() {
+            GithubExploreMessageParser builtParser = parser;
+            parser = new GithubExploreMessageParser();
+            return builtParser;
         }
     }
 
@@ -265,18 +621,60 @@ public class GithubExploreMessageParser extends MessageParser<GithubExploreMessa
     }
 
     public enum Header {
-        TO("Delivered-To"), FROM("From"), SUBJECT("Subject"), DATE("Date"), CONTENT_TYPE("Content-Type");
+        TO("Delivered-To"), FROM("From"), SUBJECT("Subject"), DATE("Date"), CONTENT_TYPE("Content-Type"),
+        MESSAGE_ID("Message-ID"), LIST_ID("List-Id");
 
-        protected String mHeader;
+        /**
+         * Headers bucketed by the length of their name. Every header line gets looked up, so this is built once and
+         * a lookup only compares against the one or two names of the same length.
+         */
+        private static final Header[][] HEADERS_BY_LENGTH;
+
+        static {
+            int longest = 0;
+            for (Header header : values()) {
+                longest = Math.max(longest, header.mHeader.length());
+            }
+
+            HEADERS_BY_LENGTH = new Header[longest + 1][];
+            for (Header header : values()) {
+                Header[] bucket = HEADERS_BY_LENGTH[header.mHeader.length()];
+                Header[] grown = new Header[bucket == null ? 1 : bucket.length + 1];
+                if (bucket != null) {
+                    System.arraycopy(bucket, 0, grown, 0, bucket.length);
+                }
+                grown[grown.length - 1] = header;
+                HEADERS_BY_LENGTH[header.mHeader.length()] = grown;
+            }
+        }
+
+        protected final String mHeader;
+        /**
+         * Lower cased first character of the name, checked before comparing the rest of it.
+         */
+        private final char mFirst;
 
         Header(String mHeader) {
             this.mHeader = mHeader;
+            this.mFirst = Character.toLowerCase(mHeader.charAt(0));
         }
 
-        public static Header findHeader(String value) {
-            // The list is short for now, so don't need anything fancy at this point.
-            for (Header header : Header.values()) {
-                if (header.getHeader().equalsIgnoreCase(value)) {
+        /**
+         * Finds the header with the given name, ignoring case. New headers only need to be added to the enum.
+         */
+        public static Header findHeader(CharSequence value) {
+            if (value == null || value.length() >= HEADERS_BY_LENGTH.length) {
+                return null;
+            }
+
+            Header[] bucket = HEADERS_BY_LENGTH[value.length()];
+            if (bucket == null) {
+                return null;
+            }
+
+            char first = Character.toLowerCase(value.charAt(0));
+            for (Header header : bucket) {
+                if (header.mFirst == first && CharSequences.equalsIgnoreCase(value, header.mHeader)) {
                     return header;
                 }
             }
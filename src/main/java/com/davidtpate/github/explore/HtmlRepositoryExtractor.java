@@ -0,0 +1,237 @@
+package com.davidtpate.github.explore;
+
+import com.davidtpate.github.explore.io.HtmlTagScanner;
+import com.davidtpate.github.explore.model.Repository;
+import com.davidtpate.github.explore.util.CharSequences;
+
+/**
+ * Pulls the repositories out of the HTML part of a digest as its lines go by. The markup is the same for every section:
+ * an h2 naming the section, then per repository an h3 with the name, a "extra-stars-column" paragraph with the
+ * language, a paragraph with the description and a "stars-column" cell with the star count.
+ */
+final class HtmlRepositoryExtractor implements HtmlTagScanner.Listener {
+    private static final String GITHUB_URL_PREFIX = "https://github.com/";
+
+    private static final int CAPTURE_NONE = 0;
+    private static final int CAPTURE_SECTION = 1;
+    private static final int CAPTURE_NAME = 2;
+    private static final int CAPTURE_LANGUAGE = 3;
+    private static final int CAPTURE_DESCRIPTION = 4;
+    private static final int CAPTURE_STARS = 5;
+
+    private final HtmlTagScanner mScanner = new HtmlTagScanner(this);
+    private final RepositorySink mSink;
+    private final Repository.Builder mRepositoryBuilder = new Repository.Builder();
+    /**
+     * Text of the element being captured, only collected while we're inside one we care about.
+     */
+    private final StringBuilder mText = new StringBuilder();
+    private int mCapture = CAPTURE_NONE;
+    /**
+     * The end tag that finishes the current capture.
+     */
+    private String mCaptureEnd;
+    private GithubExploreMessageParser.RepositoryListType mListType;
+    private int mRank;
+    private String mName;
+    private String mType;
+    private String mDescription;
+
+    HtmlRepositoryExtractor(RepositorySink sink) {
+        mSink = sink;
+    }
+
+    void scan(CharSequence line) {
+        mScanner.scan(line);
+    }
+
+    /**
+     * Finishes off the repository in progress, for the end of the HTML part.
+     */
+    void end() {
+        addRepository(Repository.NO_STARS);
+        mScanner.reset();
+        mCapture = CAPTURE_NONE;
+        mListType = null;
+    }
+
+    public void onStartTag(CharSequence name, CharSequence cssClass) {
+        // Nothing nested inside the element we're capturing matters, only its text.
+        if (mCapture != CAPTURE_NONE) {
+            return;
+        }
+
+        if (CharSequences.equalsIgnoreCase(name, "h2")) {
+            addRepository(Repository.NO_STARS);
+            capture(CAPTURE_SECTION, "h2");
+        } else if (mListType == null) {
+            return;
+        } else if (CharSequences.equalsIgnoreCase(name, "h3")) {
+            // A repository without a star count, don't lose it.
+            addRepository(Repository.NO_STARS);
+            capture(CAPTURE_NAME, "h3");
+        } else if (mName == null) {
+            return;
+        } else if (CharSequences.equalsIgnoreCase(name, "p")) {
+            if (cssClass != null && CharSequences.equalsIgnoreCase(cssClass, "extra-stars-column")) {
+                capture(CAPTURE_LANGUAGE, "p");
+            } else if (mDescription == null) {
+                capture(CAPTURE_DESCRIPTION, "p");
+            }
+        } else if (CharSequences.equalsIgnoreCase(name, "td") && cssClass != null
+                && CharSequences.equalsIgnoreCase(cssClass, "stars-column")) {
+            capture(CAPTURE_STARS, "td");
+        }
+    }
+
+    public void onEndTag(CharSequence name) {
+        if (mCapture == CAPTURE_NONE || !CharSequences.equalsIgnoreCase(name, mCaptureEnd)) {
+            return;
+        }
+
+        int capture = mCapture;
+        mCapture = CAPTURE_NONE;
+        String text = normalize(mText);
+        switch (capture) {
+            case CAPTURE_SECTION:
+                mListType = findListType(text);
+                mRank = 0;
+                break;
+            case CAPTURE_NAME:
+                mName = text.indexOf('/') > 0 ? text : null;
+                break;
+            case CAPTURE_LANGUAGE:
+                mType = text.length() > 0 ? text : null;
+                break;
+            case CAPTURE_DESCRIPTION:
+                mDescription = text;
+                break;
+            case CAPTURE_STARS:
+                addRepository(parseStars(text));
+                break;
+        }
+    }
+
+    public void onText(CharSequence text, int start, int end) {
+        if (mCapture != CAPTURE_NONE) {
+            // Going through toString() lets views over raw bytes decode themselves.
+            mText.append(text.subSequence(start, end).toString());
+        }
+    }
+
+    private void capture(int capture, String end) {
+        mCapture = capture;
+        mCaptureEnd = end;
+        mText.setLength(0);
+    }
+
+    private void addRepository(int stars) {
+        if (mName != null) {
+            mSink.addHtml(mListType, mRepositoryBuilder.name(mName)
+                    .url(GITHUB_URL_PREFIX + mName)
+                    .type(mType)
+                    .description(mDescription)
+                    .rank(++mRank)
+                    .stars(stars)
+                    .build());
+        }
+        mName = null;
+        mType = null;
+        mDescription = null;
+    }
+
+    private static GithubExploreMessageParser.RepositoryListType findListType(String heading) {
+        String lowerCaseHeading = heading.toLowerCase();
+        if (lowerCaseHeading.contains("people you follow")) {
+            return GithubExploreMessageParser.RepositoryListType.SOCIAL;
+        } else if (lowerCaseHeading.contains("trending")) {
+            return GithubExploreMessageParser.RepositoryListType.POPULAR;
+        } else if (lowerCaseHeading.contains("staff")) {
+            return GithubExploreMessageParser.RepositoryListType.STAFF;
+        }
+        return null;
+    }
+
+    /**
+     * @return The digits in the text as a number, so "1,024" is read as 1024.
+     */
+    private static int parseStars(String text) {
+        long stars = 0;
+        boolean found = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                stars = Math.min(stars * 10 + (c - '0'), Integer.MAX_VALUE);
+                found = true;
+            } else if (c != ',' && found) {
+                break;
+            }
+        }
+        return found ? (int) stars : Repository.NO_STARS;
+    }
+
+    /**
+     * Collapses whitespace the way a browser would and decodes the common entities.
+     */
+    private static String normalize(CharSequence text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = normalized.length() > 0;
+                continue;
+            }
+            if (space) {
+                normalized.append(' ');
+                space = false;
+            }
+
+            if (c == '&') {
+                int end = i + 1;
+                while (end < text.length() && end - i <= 10 && text.charAt(end) != ';') {
+                    end++;
+                }
+                if (end < text.length() && text.charAt(end) == ';') {
+                    int decoded = decodeEntity(text, i + 1, end);
+                    if (decoded >= 0) {
+                        normalized.append((char) decoded);
+                        i = end;
+                        continue;
+                    }
+                }
+            }
+            normalized.append(c);
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * @return The character for the entity between the ampersand and the semicolon, or -1 if we don't know it.
+     */
+    private static int decodeEntity(CharSequence text, int start, int end) {
+        String entity = text.subSequence(start, end).toString();
+        if (entity.equals("amp")) {
+            return '&';
+        } else if (entity.equals("lt")) {
+            return '<';
+        } else if (entity.equals("gt")) {
+            return '>';
+        } else if (entity.equals("quot")) {
+            return '"';
+        } else if (entity.equals("apos")) {
+            return '\'';
+        } else if (entity.equals("nbsp")) {
+            return ' ';
+        } else if (entity.startsWith("#")) {
+            try {
+                int codePoint = entity.startsWith("#x") || entity.startsWith("#X")
+                        ? Integer.parseInt(entity.substring(2), 16) : Integer.parseInt(entity.substring(1));
+                return codePoint <= Character.MAX_VALUE ? codePoint : -1;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+}
@@ -1,32 +1,100 @@
 package com.davidtpate.github.explore;
 
 import com.davidtpate.github.explore.model.Message;
+import com.davidtpate.github.explore.util.Strings;
+import com.davidtpate.github.explore.util.Util;
 
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 
+/**
+ * Parsers don't hold on to any state between messages, implementations must be safe to share between threads.
+ */
 public abstract class MessageParser<T extends Message> {
     /**
-     * MIME Separator for parsing through the email.
+     * MIME Separator for parsing through the email, only used when the message doesn't declare its own boundary.
      */
     protected static final String MIME_PREFIX = "----==_mimepart";
     /**
      * The Plaintext Content Type
      */
-    protected static final String CONTENT_TYPE_PLAIN = "text/plain;";
+    protected static final String CONTENT_TYPE_PLAIN = "text/plain";
     /**
      * The HTML Content Type
      */
-    protected static final String CONTENT_TYPE_HTML = "text/html;";
+    protected static final String CONTENT_TYPE_HTML = "text/html";
+    /**
+     * Charset used for messages handed to us as raw bytes.
+     */
+    protected static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
 
     public abstract T parse(String path) throws FileNotFoundException, IllegalArgumentException;
 
-    public enum ReaderLocation {
-        HEADER, PLAINTEXT_BODY, HTML_BODY;
+    /**
+     * Parses a message straight from its raw bytes, like a socket or an IMAP fetch, the stream is closed once the
+     * message has been read.
+     */
+    public abstract T parse(InputStream stream) throws IllegalArgumentException;
+
+    /**
+     * Parses a message that has already been opened, the reader is closed once the message has been read.
+     */
+    public abstract T parse(Reader reader) throws IllegalArgumentException;
+
+    /**
+     * Parses the message between the position and the limit of the buffer. Lines are scanned in place and only the
+     * values that end up in the message are decoded.
+     */
+    public abstract T parse(ByteBuffer buffer) throws IllegalArgumentException;
+
+    /**
+     * Parses a message that's already in memory, the array is read in place.
+     */
+    public T parse(byte[] data) throws IllegalArgumentException {
+        // If we don't have anything to read, no point in continuing.
+        if (data == null) {
+            throw new IllegalArgumentException("Data is Null");
+        }
+
+        return parse(ByteBuffer.wrap(data));
     }
 
     /**
-     * State variable of the current parsing location, the header should always be first.
+     * Memory maps the file and parses it straight out of the mapping, which avoids copying large messages into the heap
+     * just to throw most of them away.
      */
-    protected ReaderLocation readerLocation = ReaderLocation.HEADER;
+    public T parseMapped(String path) throws IOException, IllegalArgumentException {
+        RandomAccessFile file = new RandomAccessFile(checkPath(path), "r");
+        try {
+            FileChannel channel = file.getChannel();
+            // The mapping stays valid after the channel is closed.
+            return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            Util.closeQuietly(file);
+        }
+    }
 
+    /**
+     * Makes sure we were given a path. Whether there's a file there is left to opening it, which has to check anyway,
+     * rather than stat'ing it first.
+     */
+    protected static File checkPath(String path) throws IllegalArgumentException {
+        // If we don't have a path to anything, no point in continuing.
+        if (Strings.isEmpty(path)) {
+            throw new IllegalArgumentException("Path is Null or Blank");
+        }
+
+        return new File(path);
+    }
+
+    public enum ReaderLocation {
+        HEADER, PLAINTEXT_BODY, HTML_BODY, SKIPPED_PART;
+    }
 }
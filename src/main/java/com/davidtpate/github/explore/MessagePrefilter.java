@@ -0,0 +1,180 @@
+package com.davidtpate.github.explore;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Turns away mail that isn't an explore digest by looking at the raw bytes of its header block, before the parser
+ * decodes a single line or allocates anything. Only the start of each header line is looked at until a From or Subject
+ * line turns up, and the scan stops at the blank line that ends the header. A message is only rejected when the bytes
+ * leave no doubt, anything the parser might read differently, like a folded or encoded value, is let through for the
+ * parser to decide. A prefilter keeps count of what it accepted and rejected and can be shared between threads.
+ */
+public final class MessagePrefilter {
+    private static final byte[] FROM_NAME = ascii("from:");
+    private static final byte[] SUBJECT_NAME = ascii("subject:");
+    private static final byte[] GITHUB_FROM = ascii(GithubExploreMessageParser.GITHUB_FROM);
+    private static final byte[] GITHUB_SUBJECT = ascii(GithubExploreMessageParser.GITHUB_SUBJECT);
+
+    private final AtomicLong mAccepted = new AtomicLong();
+    private final AtomicLong mRejected = new AtomicLong();
+
+    /**
+     * Looks at the message between the position and the limit of the buffer, the buffer itself isn't changed.
+     *
+     * @return false if the message can't be an explore digest.
+     */
+    public boolean accept(ByteBuffer message) {
+        if (message == null) {
+            throw new IllegalArgumentException("Buffer is Null");
+        }
+
+        boolean accepted = check(message);
+        if (accepted) {
+            mAccepted.incrementAndGet();
+        } else {
+            mRejected.incrementAndGet();
+        }
+        return accepted;
+    }
+
+    public long getAccepted() {
+        return mAccepted.get();
+    }
+
+    public long getRejected() {
+        return mRejected.get();
+    }
+
+    private static boolean check(ByteBuffer buffer) {
+        int limit = buffer.limit();
+        int line = buffer.position();
+        while (line < limit) {
+            int end = indexOfNewLine(buffer, line, limit);
+            int contentEnd = end > line && buffer.get(end - 1) == '\r' ? end - 1 : end;
+            if (contentEnd == line) {
+                // The end of the header, nothing in it ruled the message out.
+                return true;
+            }
+
+            // Most lines are turned down on their first byte.
+            int first = buffer.get(line) | 0x20;
+            if (first == 'f' && startsWithIgnoreCase(buffer, line, contentEnd, FROM_NAME)) {
+                int value = skipWhitespace(buffer, line + FROM_NAME.length, contentEnd);
+                if (!equalsIgnoreCase(buffer, value, trimEnd(buffer, value, contentEnd), GITHUB_FROM)
+                        && !isFolded(buffer, end + 1, limit)) {
+                    return false;
+                }
+            } else if (first == 's' && startsWithIgnoreCase(buffer, line, contentEnd, SUBJECT_NAME)) {
+                int value = skipWhitespace(buffer, line + SUBJECT_NAME.length, contentEnd);
+                if (!startsWith(buffer, value, contentEnd, GITHUB_SUBJECT)
+                        && !isEncodedWord(buffer, value, contentEnd) && !isFolded(buffer, end + 1, limit)) {
+                    return false;
+                }
+            }
+            line = end + 1;
+        }
+        return true;
+    }
+
+    /**
+     * Nearly all of the time goes into finding the ends of lines, so heap buffers are searched through their array.
+     */
+    private static int indexOfNewLine(ByteBuffer buffer, int start, int limit) {
+        if (buffer.hasArray()) {
+            byte[] array = buffer.array();
+            int offset = buffer.arrayOffset();
+            int end = offset + limit;
+            for (int i = offset + start; i < end; i++) {
+                if (array[i] == '\n') {
+                    return i - offset;
+                }
+            }
+            return limit;
+        }
+
+        while (start < limit && buffer.get(start) != '\n') {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * A value carried on to the next line has to be unfolded before it can be compared.
+     */
+    private static boolean isFolded(ByteBuffer buffer, int next, int limit) {
+        return next < limit && (buffer.get(next) == ' ' || buffer.get(next) == '\t');
+    }
+
+    /**
+     * An RFC 2047 encoded value, like "=?UTF-8?Q?...?=", only reads as text once it has been decoded.
+     */
+    private static boolean isEncodedWord(ByteBuffer buffer, int start, int end) {
+        return end - start >= 2 && buffer.get(start) == '=' && buffer.get(start + 1) == '?';
+    }
+
+    private static int skipWhitespace(ByteBuffer buffer, int start, int end) {
+        while (start < end && (buffer.get(start) == ' ' || buffer.get(start) == '\t')) {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(ByteBuffer buffer, int start, int end) {
+        while (end > start && (buffer.get(end - 1) == ' ' || buffer.get(end - 1) == '\t')) {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int start, int end, byte[] prefix) {
+        if (end - start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(start + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param prefix Lower case.
+     */
+    private static boolean startsWithIgnoreCase(ByteBuffer buffer, int start, int end, byte[] prefix) {
+        if (end - start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (toLowerCase(buffer.get(start + i)) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalsIgnoreCase(ByteBuffer buffer, int start, int end, byte[] value) {
+        if (end - start != value.length) {
+            return false;
+        }
+        for (int i = 0; i < value.length; i++) {
+            if (toLowerCase(buffer.get(start + i)) != toLowerCase(value[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte toLowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b | 0x20) : b;
+    }
+
+    private static byte[] ascii(String value) {
+        byte[] bytes = new byte[value.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) value.charAt(i);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,198 @@
+package com.davidtpate.github.explore;
+
+import com.davidtpate.github.explore.io.DecodingLineReader;
+import com.davidtpate.github.explore.io.HeaderTokenizer;
+import com.davidtpate.github.explore.io.LineReader;
+import com.davidtpate.github.explore.io.TransferEncoding;
+import com.davidtpate.github.explore.metrics.MetricsSink;
+import com.davidtpate.github.explore.metrics.ParseCounter;
+import com.davidtpate.github.explore.metrics.ParseStage;
+import com.davidtpate.github.explore.model.Repository;
+import com.davidtpate.github.explore.model.RepositoryPool;
+import com.davidtpate.github.explore.util.CharSequences;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Everything that changes while a single message is parsed. A context is created at the start of a parse and thrown
+ * away at the end, which keeps the parsers themselves free of state so one instance can be shared between threads.
+ */
+final class ParseContext {
+    /**
+     * Sits on top of the reader the message came from and undoes the transfer encoding of each part.
+     */
+    final DecodingLineReader reader;
+    final HeaderTokenizer headerTokenizer;
+    /**
+     * Where everything we find in the message goes.
+     */
+    final ExploreMessageHandler handler;
+    final Repository.Builder repositoryBuilder = new Repository.Builder();
+    final RepositoryLineScanner repositoryLineScanner = new RepositoryLineScanner();
+    /**
+     * State variable of the current parsing location, the header should always be first.
+     */
+    MessageParser.ReaderLocation readerLocation = MessageParser.ReaderLocation.HEADER;
+    /**
+     * The line that starts each MIME part. Until the message tells us its boundary we fall back to the usual prefix.
+     */
+    String delimiter = MessageParser.MIME_PREFIX;
+    /**
+     * Set once the top level Content-Type has given us a boundary to look for.
+     */
+    boolean multipart;
+    /**
+     * The media type of the message itself, for a message that isn't split into parts this says what the body is.
+     */
+    String contentType;
+    /**
+     * How the body of the message, or of the current part, was encoded for transport, and the charset it's in.
+     */
+    TransferEncoding transferEncoding = TransferEncoding.IDENTITY;
+    Charset charset = MessageParser.DEFAULT_CHARSET;
+
+    /**
+     * Holds back the repositories until both parts have been read, only set when the HTML part is being read and never
+     * for a part parsed on its own.
+     */
+    final RepositoryMerger merger;
+    /**
+     * Where repositories are held back, the merger, or the recorder of a part parsed on its own.
+     */
+    private final RepositorySink sink;
+    final HtmlRepositoryExtractor htmlExtractor;
+
+    /**
+     * Null unless the parser was given a sink, in which case the clock is only read while there's something to time.
+     */
+    final MetricsSink metrics;
+    private final long startNanos;
+    private int repositories;
+
+    ParseContext(LineReader reader, ExploreMessageHandler handler, boolean extractHtml, RepositoryPool repositoryPool,
+                 MetricsSink metrics) {
+        this.metrics = metrics;
+        this.startNanos = metrics != null ? System.nanoTime() : 0;
+        this.reader = new DecodingLineReader(reader, MessageParser.DEFAULT_CHARSET);
+        this.handler = repositoryPool != null ? new PooledMessageHandler(handler, repositoryPool) : handler;
+        this.merger = extractHtml ? new RepositoryMerger() : null;
+        this.sink = merger;
+        this.htmlExtractor = extractHtml ? new HtmlRepositoryExtractor(merger) : null;
+        this.headerTokenizer = new HeaderTokenizer(this.reader);
+    }
+
+    /**
+     * For one part of a message whose parts are being parsed side by side. The part starts at its delimiter line, and
+     * what it finds goes to the recorder to be handed over in order once every part is done.
+     */
+    ParseContext(ParseContext message, LineReader reader, RecordingMerger recorder) {
+        this.reader = new DecodingLineReader(reader, MessageParser.DEFAULT_CHARSET);
+        this.handler = message.handler;
+        this.merger = null;
+        this.sink = recorder;
+        this.htmlExtractor = message.htmlExtractor != null ? new HtmlRepositoryExtractor(recorder) : null;
+        this.headerTokenizer = new HeaderTokenizer(this.reader);
+        this.metrics = message.metrics;
+        this.startNanos = 0;
+        this.delimiter = message.delimiter;
+        this.multipart = true;
+        this.readerLocation = MessageParser.ReaderLocation.SKIPPED_PART;
+    }
+
+    /**
+     * Passes on a repository from the Plaintext part, straight to the handler unless it has to wait for the HTML part.
+     */
+    void addRepository(GithubExploreMessageParser.RepositoryListType listType, Repository repository) {
+        if (sink != null) {
+            sink.addPlaintext(listType, repository);
+        } else {
+            handler.onRepository(listType, repository);
+            repositories++;
+        }
+    }
+
+    /**
+     * Lets go of anything that was held back, called once the whole message has been read.
+     */
+    void finish() {
+        if (merger != null) {
+            htmlExtractor.end();
+            repositories += merger.flush(handler);
+        }
+    }
+
+    /**
+     * Finishes off a part parsed on its own, what it found stays with the recorder.
+     */
+    void finishPart() {
+        if (htmlExtractor != null) {
+            htmlExtractor.end();
+        }
+    }
+
+    /**
+     * @return What to hand to {@link #endStage} once the stage is over.
+     */
+    long startStage() {
+        return metrics != null ? System.nanoTime() : 0;
+    }
+
+    void endStage(ParseStage stage, long start) {
+        if (metrics != null) {
+            metrics.recordStage(stage, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Something the parse carried on past, without a sink it's printed like it always has been.
+     */
+    void error(Exception e) {
+        if (metrics != null) {
+            metrics.recordError(e);
+        } else {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reports the whole message, called after {@link #finish()}.
+     *
+     * @param rejected Whether the message was turned away before its body was read.
+     */
+    void endMessage(boolean rejected) {
+        if (metrics == null) {
+            return;
+        }
+
+        metrics.increment(ParseCounter.MESSAGES, 1);
+        if (rejected) {
+            metrics.increment(ParseCounter.REJECTED, 1);
+        } else if (repositories > 0) {
+            metrics.increment(ParseCounter.REPOSITORIES, repositories);
+        }
+        metrics.recordMessage(System.nanoTime() - startNanos);
+    }
+
+    CharSequence readLine() throws IOException {
+        return reader.readLine();
+    }
+
+    boolean isDelimiter(CharSequence line) {
+        return CharSequences.isDelimiter(line, delimiter);
+    }
+
+    /**
+     * Jumps over the rest of the current part.
+     *
+     * @return The delimiter line of the next part, or null if there isn't one.
+     */
+    CharSequence skipToDelimiter() throws IOException {
+        // The reader stops at anything starting with the delimiter, keep going past lines that only look like one.
+        CharSequence line = reader.skipTo(delimiter);
+        while (line != null && !isDelimiter(line)) {
+            line = reader.skipTo(delimiter);
+        }
+        return line;
+    }
+}
@@ -0,0 +1,33 @@
+package com.davidtpate.github.explore;
+
+import com.davidtpate.github.explore.model.Repository;
+import com.davidtpate.github.explore.model.RepositoryPool;
+
+/**
+ * Swaps each repository for its canonical instance from a {@link RepositoryPool} on the way to another handler.
+ */
+final class PooledMessageHandler implements ExploreMessageHandler {
+    private final ExploreMessageHandler mHandler;
+    private final RepositoryPool mPool;
+
+    PooledMessageHandler(ExploreMessageHandler handler, RepositoryPool pool) {
+        mHandler = handler;
+        mPool = pool;
+    }
+
+    public void onHeader(GithubExploreMessageParser.Header header, String value) {
+        mHandler.onHeader(header, value);
+    }
+
+    public void onDate(long date) {
+        mHandler.onDate(date);
+    }
+
+    public void onRepository(GithubExploreMessageParser.RepositoryListType listType, Repository repository) {
+        mHandler.onRepository(listType, mPool.intern(repository));
+    }
+
+    public void onEnd() {
+        mHandler.onEnd();
+    }
+}
@@ -0,0 +1,48 @@
+package com.davidtpate.github.explore;
+
+import com.davidtpate.github.explore.model.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stands in for the {@link RepositoryMerger} of a part that's parsed on its own, keeping everything it's given in order
+ * so it can be replayed into the message once the parts before it have been.
+ */
+final class RecordingMerger implements RepositorySink {
+    private final List<Added> mAdded = new ArrayList<Added>();
+
+    public void addPlaintext(GithubExploreMessageParser.RepositoryListType listType, Repository repository) {
+        mAdded.add(new Added(listType, repository, false));
+    }
+
+    public void addHtml(GithubExploreMessageParser.RepositoryListType listType, Repository repository) {
+        mAdded.add(new Added(listType, repository, true));
+    }
+
+    /**
+     * Hands everything over to the message as if the part had been read there.
+     */
+    void replay(ParseContext message) {
+        for (Added added : mAdded) {
+            if (added.html) {
+                message.merger.addHtml(added.listType, added.repository);
+            } else {
+                message.addRepository(added.listType, added.repository);
+            }
+        }
+        mAdded.clear();
+    }
+
+    private static final class Added {
+        final GithubExploreMessageParser.RepositoryListType listType;
+        final Repository repository;
+        final boolean html;
+
+        Added(GithubExploreMessageParser.RepositoryListType listType, Repository repository, boolean html) {
+            this.listType = listType;
+            this.repository = repository;
+            this.html = html;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.davidtpate.github.explore;
+
+import com.davidtpate.github.explore.util.CharSequences;
+
+/**
+ * Picks apart the first line of a Plaintext repository list item, like "2. https://github.com/person/example2 Java",
+ * in a single left to right walk with no backtracking. The pieces are:
+ * rank: 2
+ * url: https://github.com/person/example2
+ * name: person/example2
+ * type: Java (optional, the line may end right after the url or with trailing whitespace)
+ * A scanner keeps the pieces of the last line it was given, so each thread needs its own.
+ */
+public final class RepositoryLineScanner {
+    private static final String GITHUB_URL_PREFIX = "https://github.com/";
+
+    private int mRank;
+    private String mUrl;
+    private String mName;
+    private String mType;
+
+    /**
+     * @return true if the line is a list item, a number followed directly by a period. The repository pieces are only
+     * set if the item also points at a GitHub repository.
+     */
+    public boolean scan(CharSequence line) {
+        mRank = 0;
+        mUrl = null;
+        mName = null;
+        mType = null;
+
+        int length = line.length();
+        int position = 0;
+        long rank = 0;
+        while (position < length) {
+            char c = line.charAt(position);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            rank = Math.min(rank * 10 + (c - '0'), Integer.MAX_VALUE);
+            position++;
+        }
+        if (position == 0 || position == length || line.charAt(position) != '.') {
+            return false;
+        }
+        mRank = (int) rank;
+
+        // A single space separates the period from the url.
+        position++;
+        if (position == length || line.charAt(position) != ' ') {
+            return true;
+        }
+        position++;
+
+        int urlStart = position;
+        if (!CharSequences.regionMatches(line, urlStart, GITHUB_URL_PREFIX, false)) {
+            return true;
+        }
+
+        // The name is "owner/name", it runs to the first whitespace and needs a slash somewhere after the owner.
+        int nameStart = urlStart + GITHUB_URL_PREFIX.length();
+        int slash = -1;
+        position = nameStart;
+        while (position < length) {
+            char c = line.charAt(position);
+            if (c == ' ' || c == '\t') {
+                break;
+            }
+            if (c == '/' && slash < 0) {
+                slash = position;
+            }
+            position++;
+        }
+        if (slash <= nameStart) {
+            return true;
+        }
+        int urlEnd = position;
+
+        // Whatever follows the url, trimmed, is the language.
+        while (position < length && isWhitespace(line.charAt(position))) {
+            position++;
+        }
+        int typeEnd = length;
+        while (typeEnd > position && isWhitespace(line.charAt(typeEnd - 1))) {
+            typeEnd--;
+        }
+
+        mUrl = line.subSequence(urlStart, urlEnd).toString();
+        mName = mUrl.substring(nameStart - urlStart);
+        if (typeEnd > position) {
+            mType = line.subSequence(position, typeEnd).toString();
+        }
+        return true;
+    }
+
+    /**
+     * @return The number the item was listed under, or 0 if the last line wasn't a list item.
+     */
+    public int getRank() {
+        return mRank;
+    }
+
+    public String getUrl() {
+        return mUrl;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public String getType() {
+        return mType;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+}
@@ -0,0 +1,106 @@
+package com.davidtpate.github.explore;
+
+import com.davidtpate.github.explore.model.Repository;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lines up the repositories found in the Plaintext part with the ones found in the HTML part, matching them by list and
+ * name. The Plaintext part wins where both have a value, the HTML part fills in the star counts and anything the
+ * Plaintext part left out, including whole repositories.
+ */
+final class RepositoryMerger implements RepositorySink {
+    private static final String GITHUB_URL_PREFIX = "https://github.com/";
+
+    private final Map<GithubExploreMessageParser.RepositoryListType, Entries> mLists =
+            new EnumMap<GithubExploreMessageParser.RepositoryListType, Entries>(GithubExploreMessageParser.RepositoryListType.class);
+
+    public void addPlaintext(GithubExploreMessageParser.RepositoryListType listType, Repository repository) {
+        Entry entry = entries(listType).find(repository.getName(), true);
+        entry.plaintext = repository;
+    }
+
+    public void addHtml(GithubExploreMessageParser.RepositoryListType listType, Repository repository) {
+        Entry entry = entries(listType).find(repository.getName(), false);
+        entry.html = repository;
+    }
+
+    /**
+     * Hands the merged repositories to the handler, list by list, in the order they were first seen.
+     *
+     * @return How many were handed over.
+     */
+    int flush(ExploreMessageHandler handler) {
+        Repository.Builder repositoryBuilder = new Repository.Builder();
+        int count = 0;
+        for (Map.Entry<GithubExploreMessageParser.RepositoryListType, Entries> list : mLists.entrySet()) {
+            for (Entry entry : list.getValue().entries) {
+                handler.onRepository(list.getKey(), merge(entry, repositoryBuilder));
+                count++;
+            }
+        }
+        mLists.clear();
+        return count;
+    }
+
+    private Entries entries(GithubExploreMessageParser.RepositoryListType listType) {
+        Entries entries = mLists.get(listType);
+        if (entries == null) {
+            entries = new Entries();
+            mLists.put(listType, entries);
+        }
+        return entries;
+    }
+
+    private static Repository merge(Entry entry, Repository.Builder repositoryBuilder) {
+        Repository plaintext = entry.plaintext;
+        Repository html = entry.html;
+        if (html == null) {
+            return plaintext;
+        } else if (plaintext == null) {
+            return html;
+        }
+
+        String name = plaintext.getName() != null ? plaintext.getName() : html.getName();
+        String url = plaintext.getUrl() != null ? plaintext.getUrl() : html.getUrl();
+        if (url == null && name != null) {
+            url = GITHUB_URL_PREFIX + name;
+        }
+        return repositoryBuilder.name(name)
+                .url(url)
+                .type(plaintext.getType() != null ? plaintext.getType() : html.getType())
+                .description(plaintext.getDescription() != null ? plaintext.getDescription() : html.getDescription())
+                .rank(plaintext.getRank() > 0 ? plaintext.getRank() : html.getRank())
+                .stars(html.getStars())
+                .build();
+    }
+
+    private static final class Entries {
+        final List<Entry> entries = new ArrayList<Entry>();
+        final Map<String, Entry> entriesByName = new HashMap<String, Entry>();
+
+        /**
+         * @return The entry for the name that doesn't have a repository from the given part yet, added if needed.
+         */
+        Entry find(String name, boolean plaintext) {
+            Entry entry = name != null ? entriesByName.get(name) : null;
+            if (entry == null || (plaintext ? entry.plaintext : entry.html) != null) {
+                entry = new Entry();
+                entries.add(entry);
+                if (name != null && !entriesByName.containsKey(name)) {
+                    entriesByName.put(name, entry);
+                }
+            }
+            return entry;
+        }
+    }
+
+    private static final class Entry {
+        Repository plaintext;
+        Repository html;
+    }
+}
@@ -0,0 +1,12 @@
+package com.davidtpate.github.explore;
+
+import com.davidtpate.github.explore.model.Repository;
+
+/**
+ * Where the repositories of a message go while the HTML part is being read, so the two parts can be lined up.
+ */
+interface RepositorySink {
+    void addPlaintext(GithubExploreMessageParser.RepositoryListType listType, Repository repository);
+
+    void addHtml(GithubExploreMessageParser.RepositoryListType listType, Repository repository);
+}
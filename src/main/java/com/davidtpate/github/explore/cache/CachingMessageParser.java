@@ -0,0 +1,92 @@
+package com.davidtpate.github.explore.cache;
+
+import com.davidtpate.github.explore.GithubExploreMessageParser;
+import com.davidtpate.github.explore.MessageParser;
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+
+/**
+ * Puts a {@link ParseCache} in front of a parser. Only messages read from a path are cached, readers and buffers don't
+ * have anything to fingerprint them by so they're always parsed. A cache that can't be read or written is never fatal,
+ * the message is just parsed as if there were no cache.
+ */
+public class CachingMessageParser extends MessageParser<GithubExploreMessage> {
+    private final GithubExploreMessageParser mParser;
+    private final ParseCache mCache;
+
+    public CachingMessageParser(GithubExploreMessageParser parser, ParseCache cache) {
+        if (parser == null) {
+            throw new IllegalArgumentException("Parser is Null");
+        }
+        if (cache == null) {
+            throw new IllegalArgumentException("Cache is Null");
+        }
+
+        mParser = parser;
+        mCache = cache;
+    }
+
+    public GithubExploreMessage parse(String path) throws FileNotFoundException, IllegalArgumentException {
+        String fingerprint = fingerprint(checkPath(path));
+        GithubExploreMessage message = fingerprint != null ? mCache.get(fingerprint, mParser.getConfiguration()) : null;
+        if (message == null) {
+            message = mParser.parse(path);
+            store(fingerprint, message);
+        }
+        return message;
+    }
+
+    @Override
+    public GithubExploreMessage parseMapped(String path) throws IOException, IllegalArgumentException {
+        String fingerprint = fingerprint(checkPath(path));
+        GithubExploreMessage message = fingerprint != null ? mCache.get(fingerprint, mParser.getConfiguration()) : null;
+        if (message == null) {
+            message = mParser.parseMapped(path);
+            store(fingerprint, message);
+        }
+        return message;
+    }
+
+    public GithubExploreMessage parse(InputStream stream) throws IllegalArgumentException {
+        return mParser.parse(stream);
+    }
+
+    public GithubExploreMessage parse(Reader reader) throws IllegalArgumentException {
+        return mParser.parse(reader);
+    }
+
+    public GithubExploreMessage parse(ByteBuffer buffer) throws IllegalArgumentException {
+        return mParser.parse(buffer);
+    }
+
+    public ParseCache getCache() {
+        return mCache;
+    }
+
+    private String fingerprint(File file) {
+        try {
+            return mCache.fingerprint(file);
+        } catch (IOException e) {
+            // Let the parser report what's wrong with the file.
+            return null;
+        }
+    }
+
+    private void store(String fingerprint, GithubExploreMessage message) {
+        if (fingerprint == null || message == null) {
+            return;
+        }
+
+        try {
+            mCache.put(fingerprint, mParser.getConfiguration(), message);
+        } catch (IOException e) {
+            // The message is still good, it just won't be cached.
+        }
+    }
+}
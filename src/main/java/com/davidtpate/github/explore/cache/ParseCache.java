@@ -0,0 +1,381 @@
+package com.davidtpate.github.explore.cache;
+
+import com.davidtpate.github.explore.GithubExploreMessageParser;
+import com.davidtpate.github.explore.codec.MessageCodec;
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+import com.davidtpate.github.explore.util.Strings;
+import com.davidtpate.github.explore.util.Util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps parsed messages in a directory, in the form {@link MessageCodec} writes, so files that haven't changed don't
+ * need to be parsed again. Entries are keyed by the MD5 of the file's contents and the configuration of the parser that
+ * produced them, so parsers set up differently can share a directory without seeing each other's results. A file whose
+ * size and modification time are the same as the last time it was hashed isn't hashed again. The directory is capped at
+ * a number of bytes, the least recently used entries go first. Everything is thrown away when the parser version
+ * changes. A cache can be shared between threads.
+ * <p/>
+ * The index is only written by {@link #flush()} and {@link #close()}. Entries stored since then are dropped the next
+ * time the directory is opened, so a run that doesn't finish cleanly costs a reparse, never a wrong result.
+ */
+public class ParseCache implements Closeable {
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final int MAGIC = 0x47484543;
+    /**
+     * Version of the files in the cache directory, separate from the parser version.
+     */
+    private static final int FORMAT_VERSION = 3;
+    /**
+     * Magic, format version and parser version, entries add the parser configuration.
+     */
+    private static final int HEADER_LENGTH = 12;
+    private static final int ENTRY_HEADER_LENGTH = HEADER_LENGTH + 4;
+    private static final String INDEX_NAME = "index";
+    private static final String ENTRY_SUFFIX = ".cache";
+
+    private final File mDirectory;
+    private final long mMaxBytes;
+    /**
+     * Size of each entry by key, least recently used first.
+     */
+    private final Map<String, Long> mEntries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+    /**
+     * What each file looked like the last time it was hashed, by canonical path.
+     */
+    private final Map<String, Stamp> mStamps = new HashMap<String, Stamp>();
+    private long mBytes;
+    /**
+     * Set when the index in memory has moved on from the one on disk.
+     */
+    private boolean mDirty;
+
+    public ParseCache(File directory) throws IOException {
+        this(directory, DEFAULT_MAX_BYTES);
+    }
+
+    public ParseCache(File directory, long maxBytes) throws IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("Directory is Null");
+        }
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("Max Bytes must be at least 1");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+        load();
+    }
+
+    /**
+     * @return The MD5 of the file's contents, only worked out again if its size or modification time changed.
+     */
+    public String fingerprint(File file) throws IOException {
+        String path = file.getCanonicalPath();
+        long length = file.length();
+        long lastModified = file.lastModified();
+        synchronized (this) {
+            Stamp stamp = mStamps.get(path);
+            if (stamp != null && stamp.length == length && stamp.lastModified == lastModified) {
+                return stamp.hash;
+            }
+        }
+
+        // New, touched or rewritten, only the contents can tell us which.
+        String hash = Strings.md5(file);
+        synchronized (this) {
+            mStamps.put(path, new Stamp(length, lastModified, hash));
+            mDirty = true;
+        }
+        return hash;
+    }
+
+    /**
+     * @param configuration What {@link GithubExploreMessageParser#getConfiguration()} returns for the parser in use.
+     * @return The message stored for the fingerprint by a parser set up the same way, or null if there isn't one.
+     */
+    public GithubExploreMessage get(String fingerprint, int configuration) {
+        String key = key(fingerprint, configuration);
+        synchronized (this) {
+            if (mEntries.get(key) == null) {
+                return null;
+            }
+            // Reading moved the entry to the back of the line.
+            mDirty = true;
+        }
+
+        try {
+            return readEntry(entryFile(key), configuration);
+        } catch (IOException e) {
+            // Evicted while we were reading it, or damaged, either way it's a miss.
+            return null;
+        }
+    }
+
+    public void put(String fingerprint, int configuration, GithubExploreMessage message) throws IOException {
+        String key = key(fingerprint, configuration);
+        byte[] entry = encode(message, configuration);
+        if (entry.length > mMaxBytes) {
+            return;
+        }
+
+        // Written off to the side so a reader never sees half an entry.
+        File temp = File.createTempFile("entry", ".tmp", mDirectory);
+        try {
+            write(temp, entry);
+            synchronized (this) {
+                File file = entryFile(key);
+                if (file.exists() && !file.delete() || !temp.renameTo(file)) {
+                    throw new IOException("Unable to store " + file);
+                }
+                Long previous = mEntries.put(key, Long.valueOf(entry.length));
+                mBytes += entry.length - (previous != null ? previous.longValue() : 0);
+                evict();
+                mDirty = true;
+            }
+        } finally {
+            temp.delete();
+        }
+    }
+
+    /**
+     * Writes out the index if anything has changed since it was last written. Nothing stored since the last flush is
+     * kept otherwise, call this at the end of a run or every so often during a long one.
+     */
+    public synchronized void flush() throws IOException {
+        if (mDirty) {
+            writeIndex();
+        }
+    }
+
+    /**
+     * Flushes the index, the cache can still be used afterwards.
+     */
+    public void close() throws IOException {
+        flush();
+    }
+
+    /**
+     * Throws away every entry.
+     */
+    public synchronized void clear() throws IOException {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(ENTRY_SUFFIX)) {
+                    file.delete();
+                }
+            }
+        }
+        mEntries.clear();
+        mStamps.clear();
+        mBytes = 0;
+        writeIndex();
+    }
+
+    /**
+     * @return How many messages are stored.
+     */
+    public synchronized int size() {
+        return mEntries.size();
+    }
+
+    /**
+     * @return How many bytes the stored messages take up.
+     */
+    public synchronized long bytes() {
+        return mBytes;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = mEntries.entrySet().iterator();
+        while (mBytes > mMaxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            mBytes -= eldest.getValue().longValue();
+            entryFile(eldest.getKey()).delete();
+
+            // Nothing might be found under the hash anymore, remembering which files have it can go too.
+            String hash = eldest.getKey().substring(0, eldest.getKey().lastIndexOf('-'));
+            Iterator<Stamp> stamps = mStamps.values().iterator();
+            while (stamps.hasNext()) {
+                if (stamps.next().hash.equals(hash)) {
+                    stamps.remove();
+                }
+            }
+        }
+    }
+
+    private File entryFile(String key) {
+        return new File(mDirectory, key + ENTRY_SUFFIX);
+    }
+
+    private static String key(String fingerprint, int configuration) {
+        return fingerprint + "-" + Integer.toHexString(configuration);
+    }
+
+    /**
+     * Reads the index back in, starting over if it is missing, damaged or was written by another version.
+     */
+    private void load() throws IOException {
+        File index = new File(mDirectory, INDEX_NAME);
+        if (!index.exists() || !readIndex(index)) {
+            clear();
+            return;
+        }
+
+        // Entries that went missing are forgotten, entries the index doesn't know about are deleted.
+        Iterator<Map.Entry<String, Long>> iterator = mEntries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            if (entryFile(entry.getKey()).length() != entry.getValue().longValue()) {
+                iterator.remove();
+                mBytes -= entry.getValue().longValue();
+                mDirty = true;
+            }
+        }
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(ENTRY_SUFFIX)
+                        && !mEntries.containsKey(name.substring(0, name.length() - ENTRY_SUFFIX.length()))) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    private boolean readIndex(File index) {
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(index)));
+            if (!readHeader(input)) {
+                return false;
+            }
+
+            int entries = input.readInt();
+            for (int i = 0; i < entries; i++) {
+                String fingerprint = input.readUTF();
+                long length = input.readLong();
+                mEntries.put(fingerprint, Long.valueOf(length));
+                mBytes += length;
+            }
+            int stamps = input.readInt();
+            for (int i = 0; i < stamps; i++) {
+                String path = input.readUTF();
+                long length = input.readLong();
+                long lastModified = input.readLong();
+                mStamps.put(path, new Stamp(length, lastModified, input.readUTF()));
+            }
+            return true;
+        } catch (IOException e) {
+            mEntries.clear();
+            mStamps.clear();
+            mBytes = 0;
+            return false;
+        } finally {
+            Util.closeQuietly(input);
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        writeHeader(output);
+        output.writeInt(mEntries.size());
+        for (Map.Entry<String, Long> entry : mEntries.entrySet()) {
+            output.writeUTF(entry.getKey());
+            output.writeLong(entry.getValue().longValue());
+        }
+        output.writeInt(mStamps.size());
+        for (Map.Entry<String, Stamp> stamp : mStamps.entrySet()) {
+            output.writeUTF(stamp.getKey());
+            output.writeLong(stamp.getValue().length);
+            output.writeLong(stamp.getValue().lastModified);
+            output.writeUTF(stamp.getValue().hash);
+        }
+        output.flush();
+
+        File temp = new File(mDirectory, INDEX_NAME + ".tmp");
+        write(temp, bytes.toByteArray());
+        File index = new File(mDirectory, INDEX_NAME);
+        if (index.exists() && !index.delete() || !temp.renameTo(index)) {
+            throw new IOException("Unable to write " + index);
+        }
+        mDirty = false;
+    }
+
+    private static void write(File file, byte[] data) throws IOException {
+        OutputStream output = new FileOutputStream(file);
+        try {
+            output.write(data);
+        } finally {
+            output.close();
+        }
+    }
+
+    private static void writeHeader(DataOutputStream output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        output.writeInt(GithubExploreMessageParser.VERSION);
+    }
+
+    private static boolean readHeader(DataInputStream input) throws IOException {
+        return input.readInt() == MAGIC
+                && input.readInt() == FORMAT_VERSION
+                && input.readInt() == GithubExploreMessageParser.VERSION;
+    }
+
+    private static byte[] encode(GithubExploreMessage message, int configuration) throws IOException {
+        byte[] encoded = MessageCodec.encode(message);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(ENTRY_HEADER_LENGTH + encoded.length);
+        DataOutputStream output = new DataOutputStream(bytes);
+        writeHeader(output);
+        output.writeInt(configuration);
+        output.write(encoded);
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static GithubExploreMessage readEntry(File file, int configuration) throws IOException {
+        byte[] entry = new byte[(int) file.length()];
+        DataInputStream input = new DataInputStream(new FileInputStream(file));
+        try {
+            input.readFully(entry);
+        } finally {
+            Util.closeQuietly(input);
+        }
+
+        DataInputStream header = new DataInputStream(new ByteArrayInputStream(entry));
+        if (entry.length < ENTRY_HEADER_LENGTH || !readHeader(header) || header.readInt() != configuration) {
+            throw new IOException("Stale entry " + file);
+        }
+        try {
+            return MessageCodec.decode(ByteBuffer.wrap(entry, ENTRY_HEADER_LENGTH, entry.length - ENTRY_HEADER_LENGTH));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Damaged entry " + file);
+        }
+    }
+
+    private static final class Stamp {
+        final long length;
+        final long lastModified;
+        final String hash;
+
+        Stamp(long length, long lastModified, String hash) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.davidtpate.github.explore.codec;
+
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+import com.davidtpate.github.explore.model.Repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary form of {@link GithubExploreMessage}, for storing parsed messages and loading them back without
+ * parsing the mail again. The layout is:
+ * magic: "GEXM"
+ * version: one byte, {@link #VERSION}
+ * date: eight bytes, big endian millis, at a fixed offset so it can be read without looking at anything else
+ * dictionary: a varint count, then each string. Repository names, languages and descriptions are stored once here
+ * and referred to by index, the same repository shows up in more than one list
+ * headers: from, subject, to, message id and list id as strings
+ * lists: social, popular and staff, each a varint count followed by the repositories
+ * Every string is a varint length followed by its UTF-8 bytes, the length is biased by what it has to make room for.
+ * Dictionary strings are never null and use the plain length. Headers use the length plus one, with zero for null.
+ * Dictionary references are the index plus one (zero for null). A repository is its name, url, language and
+ * description followed by the rank and stars as zigzag varints. The url is zero for null, one when it's the GitHub url
+ * of the name, otherwise its length plus two.
+ */
+public final class MessageCodec {
+    /**
+     * Bump this whenever the layout changes, {@link MessageView} refuses anything else.
+     */
+    public static final int VERSION = 1;
+
+    static final byte[] MAGIC = {'G', 'E', 'X', 'M'};
+    static final int VERSION_OFFSET = 4;
+    static final int DATE_OFFSET = 5;
+    static final int DICTIONARY_OFFSET = 13;
+
+    static final int URL_NULL = 0;
+    static final int URL_FROM_NAME = 1;
+    static final String GITHUB_URL_PREFIX = "https://github.com/";
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private MessageCodec() {
+    }
+
+    public static byte[] encode(GithubExploreMessage message) {
+        if (message == null) {
+            throw new IllegalArgumentException("Message is Null");
+        }
+
+        Map<String, Integer> dictionary = new LinkedHashMap<String, Integer>();
+        addToDictionary(dictionary, message.getSocialRepositoryList());
+        addToDictionary(dictionary, message.getPopularRepositoryList());
+        addToDictionary(dictionary, message.getStaffRepositoryList());
+
+        Output output = new Output(256 + dictionary.size() * 32);
+        output.writeBytes(MAGIC);
+        output.writeByte(VERSION);
+        output.writeLong(message.getDateMillis());
+
+        output.writeVarint(dictionary.size());
+        for (String value : dictionary.keySet()) {
+            output.writeString(value, 0);
+        }
+
+        output.writeString(message.getFrom(), 1);
+        output.writeString(message.getSubject(), 1);
+        output.writeString(message.getTo(), 1);
+        output.writeString(message.getMessageId(), 1);
+        output.writeString(message.getListId(), 1);
+
+        writeRepositories(output, dictionary, message.getSocialRepositoryList());
+        writeRepositories(output, dictionary, message.getPopularRepositoryList());
+        writeRepositories(output, dictionary, message.getStaffRepositoryList());
+        return output.toByteArray();
+    }
+
+    /**
+     * Decodes the message between the position and the limit of the buffer.
+     */
+    public static GithubExploreMessage decode(ByteBuffer buffer) throws IllegalArgumentException {
+        return new MessageView(buffer).toMessage();
+    }
+
+    private static void addToDictionary(Map<String, Integer> dictionary, List<Repository> repositories) {
+        if (repositories == null) {
+            return;
+        }
+
+        for (Repository repository : repositories) {
+            addToDictionary(dictionary, repository.getName());
+            addToDictionary(dictionary, repository.getType());
+            addToDictionary(dictionary, repository.getDescription());
+        }
+    }
+
+    private static void addToDictionary(Map<String, Integer> dictionary, String value) {
+        if (value != null && !dictionary.containsKey(value)) {
+            dictionary.put(value, Integer.valueOf(dictionary.size()));
+        }
+    }
+
+    private static void writeRepositories(Output output, Map<String, Integer> dictionary, List<Repository> repositories) {
+        if (repositories == null) {
+            output.writeVarint(0);
+            return;
+        }
+
+        output.writeVarint(repositories.size());
+        for (Repository repository : repositories) {
+            String name = repository.getName();
+            String url = repository.getUrl();
+            output.writeVarint(reference(dictionary, name));
+            if (url == null) {
+                output.writeVarint(URL_NULL);
+            } else if (isUrlOfName(url, name)) {
+                output.writeVarint(URL_FROM_NAME);
+            } else {
+                output.writeString(url, 2);
+            }
+            output.writeVarint(reference(dictionary, repository.getType()));
+            output.writeVarint(reference(dictionary, repository.getDescription()));
+            output.writeVarint(zigzag(repository.getRank()));
+            output.writeVarint(zigzag(repository.getStars()));
+        }
+    }
+
+    private static int reference(Map<String, Integer> dictionary, String value) {
+        return value == null ? 0 : dictionary.get(value).intValue() + 1;
+    }
+
+    private static boolean isUrlOfName(String url, String name) {
+        return name != null && url.length() == GITHUB_URL_PREFIX.length() + name.length()
+                && url.startsWith(GITHUB_URL_PREFIX) && url.endsWith(name);
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * A growable byte array, cheaper than a ByteArrayOutputStream since nothing here needs to be synchronized.
+     */
+    private static final class Output {
+        private byte[] bytes;
+        private int length;
+
+        Output(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        void writeByte(int b) {
+            ensureCapacity(1);
+            bytes[length++] = (byte) b;
+        }
+
+        void writeBytes(byte[] data) {
+            ensureCapacity(data.length);
+            System.arraycopy(data, 0, bytes, length, data.length);
+            length += data.length;
+        }
+
+        void writeLong(long value) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[length++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeVarint(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7f) != 0) {
+                bytes[length++] = (byte) (value & 0x7f | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        /**
+         * @param bias Added to the length, so the values below it are free to mean something else.
+         */
+        void writeString(String value, int bias) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+
+            int chars = value.length();
+            boolean ascii = true;
+            for (int i = 0; i < chars && ascii; i++) {
+                ascii = value.charAt(i) < 0x80;
+            }
+
+            if (ascii) {
+                writeVarint(chars + bias);
+                ensureCapacity(chars);
+                for (int i = 0; i < chars; i++) {
+                    bytes[length++] = (byte) value.charAt(i);
+                }
+            } else {
+                ByteBuffer encoded = UTF_8.encode(value);
+                writeVarint(encoded.remaining() + bias);
+                ensureCapacity(encoded.remaining());
+                int count = encoded.remaining();
+                encoded.get(bytes, length, count);
+                length += count;
+            }
+        }
+
+        byte[] toByteArray() {
+            byte[] result = new byte[length];
+            System.arraycopy(bytes, 0, result, 0, length);
+            return result;
+        }
+
+        private void ensureCapacity(int needed) {
+            if (length + needed > bytes.length) {
+                byte[] grown = new byte[Math.max(bytes.length * 2, length + needed)];
+                System.arraycopy(bytes, 0, grown, 0, length);
+                bytes = grown;
+            }
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.davidtpate.github.explore.codec;
+
+import com.davidtpate.github.explore.GithubExploreMessageParser;
+import com.davidtpate.github.explore.io.ByteSequence;
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+import com.davidtpate.github.explore.model.Repository;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reads single fields straight out of a message encoded by {@link MessageCodec}, without decoding the rest of it.
+ * Opening a view only walks the buffer to find where things are, ASCII strings are handed out as {@link ByteSequence}
+ * views over the buffer. Anything else is decoded to a String, a ByteSequence has one char per byte which would split up
+ * multi-byte UTF-8 characters. The buffer must not change while the view is in use, and a view keeps its place in the buffer
+ * between calls so each thread needs its own.
+ */
+public final class MessageView {
+    private static final int FIELD_NAME = 0;
+    private static final int FIELD_URL = 1;
+    private static final int FIELD_TYPE = 2;
+    private static final int FIELD_DESCRIPTION = 3;
+    private static final int FIELD_RANK = 4;
+    private static final int FIELD_STARS = 5;
+
+    private static final int HEADER_FROM = 0;
+    private static final int HEADER_SUBJECT = 1;
+    private static final int HEADER_TO = 2;
+    private static final int HEADER_MESSAGE_ID = 3;
+    private static final int HEADER_LIST_ID = 4;
+
+    private final ByteBuffer mBuffer;
+    private final int mBase;
+    /**
+     * Where each dictionary entry, header and repository starts.
+     */
+    private final int[] mDictionary;
+    private final int[] mHeaders = new int[5];
+    private final int[][] mRepositories = new int[GithubExploreMessageParser.RepositoryListType.values().length][];
+    /**
+     * Dictionary entries that have been turned into Strings, so a repository in two lists shares them.
+     */
+    private final String[] mDictionaryStrings;
+    private int mCursor;
+
+    /**
+     * Opens the message between the position and the limit of the buffer, the buffer's position isn't changed.
+     */
+    public MessageView(ByteBuffer buffer) throws IllegalArgumentException {
+        if (buffer == null) {
+            throw new IllegalArgumentException("Buffer is Null");
+        }
+
+        mBuffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        mBase = buffer.position();
+        if (buffer.remaining() < MessageCodec.DICTIONARY_OFFSET) {
+            throw new IllegalArgumentException("Encoded Message is Truncated");
+        }
+        for (int i = 0; i < MessageCodec.MAGIC.length; i++) {
+            if (mBuffer.get(mBase + i) != MessageCodec.MAGIC[i]) {
+                throw new IllegalArgumentException("Not an Encoded Message");
+            }
+        }
+        int version = mBuffer.get(mBase + MessageCodec.VERSION_OFFSET);
+        if (version != MessageCodec.VERSION) {
+            throw new IllegalArgumentException("Unsupported Encoded Message Version " + version);
+        }
+
+        try {
+            mCursor = mBase + MessageCodec.DICTIONARY_OFFSET;
+            mDictionary = new int[checkCount(readVarint())];
+            for (int i = 0; i < mDictionary.length; i++) {
+                mDictionary[i] = mCursor;
+                skipString(0);
+            }
+            mDictionaryStrings = new String[mDictionary.length];
+
+            for (int i = 0; i < mHeaders.length; i++) {
+                mHeaders[i] = mCursor;
+                skipString(1);
+            }
+
+            for (int list = 0; list < mRepositories.length; list++) {
+                int[] offsets = new int[checkCount(readVarint())];
+                for (int i = 0; i < offsets.length; i++) {
+                    offsets[i] = mCursor;
+                    skipFields(FIELD_STARS + 1);
+                }
+                mRepositories[list] = offsets;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Encoded Message is Truncated");
+        }
+        if (mCursor > mBuffer.limit()) {
+            throw new IllegalArgumentException("Encoded Message is Truncated");
+        }
+    }
+
+    public long getDateMillis() {
+        return mBuffer.getLong(mBase + MessageCodec.DATE_OFFSET);
+    }
+
+    public CharSequence getFrom() {
+        return header(HEADER_FROM);
+    }
+
+    public CharSequence getSubject() {
+        return header(HEADER_SUBJECT);
+    }
+
+    public CharSequence getTo() {
+        return header(HEADER_TO);
+    }
+
+    public CharSequence getMessageId() {
+        return header(HEADER_MESSAGE_ID);
+    }
+
+    public CharSequence getListId() {
+        return header(HEADER_LIST_ID);
+    }
+
+    public int getRepositoryCount(GithubExploreMessageParser.RepositoryListType listType) {
+        return mRepositories[listType.ordinal()].length;
+    }
+
+    public CharSequence getRepositoryName(GithubExploreMessageParser.RepositoryListType listType, int index) {
+        seek(listType, index, FIELD_NAME);
+        return dictionaryView(readVarint());
+    }
+
+    /**
+     * @return A view of the url, or a new String when the url was left for the name to stand in for.
+     */
+    public CharSequence getRepositoryUrl(GithubExploreMessageParser.RepositoryListType listType, int index) {
+        seek(listType, index, FIELD_URL);
+        int url = readVarint();
+        if (url == MessageCodec.URL_NULL) {
+            return null;
+        }
+        if (url == MessageCodec.URL_FROM_NAME) {
+            return MessageCodec.GITHUB_URL_PREFIX + getRepositoryName(listType, index);
+        }
+        return view(mCursor, url - 2);
+    }
+
+    public CharSequence getRepositoryType(GithubExploreMessageParser.RepositoryListType listType, int index) {
+        seek(listType, index, FIELD_TYPE);
+        return dictionaryView(readVarint());
+    }
+
+    public CharSequence getRepositoryDescription(GithubExploreMessageParser.RepositoryListType listType, int index) {
+        seek(listType, index, FIELD_DESCRIPTION);
+        return dictionaryView(readVarint());
+    }
+
+    public int getRepositoryRank(GithubExploreMessageParser.RepositoryListType listType, int index) {
+        seek(listType, index, FIELD_RANK);
+        return unzigzag(readVarint());
+    }
+
+    public int getRepositoryStars(GithubExploreMessageParser.RepositoryListType listType, int index) {
+        seek(listType, index, FIELD_STARS);
+        return unzigzag(readVarint());
+    }
+
+    public Repository getRepository(GithubExploreMessageParser.RepositoryListType listType, int index) {
+        seek(listType, index, FIELD_NAME);
+        String name = dictionaryString(readVarint());
+        int url = readVarint();
+        String urlString = null;
+        if (url == MessageCodec.URL_FROM_NAME) {
+            urlString = MessageCodec.GITHUB_URL_PREFIX + name;
+        } else if (url != MessageCodec.URL_NULL) {
+            urlString = decode(mCursor, url - 2);
+            mCursor += url - 2;
+        }
+
+        return new Repository.Builder()
+                .name(name)
+                .url(urlString)
+                .type(dictionaryString(readVarint()))
+                .description(dictionaryString(readVarint()))
+                .rank(unzigzag(readVarint()))
+                .stars(unzigzag(readVarint()))
+                .build();
+    }
+
+    /**
+     * Decodes everything, the message doesn't hold on to the buffer.
+     */
+    public GithubExploreMessage toMessage() {
+        GithubExploreMessage.Builder builder = new GithubExploreMessage.Builder()
+                .from(headerString(HEADER_FROM))
+                .subject(headerString(HEADER_SUBJECT))
+                .to(headerString(HEADER_TO))
+                .date(getDateMillis())
+                .messageId(headerString(HEADER_MESSAGE_ID))
+                .listId(headerString(HEADER_LIST_ID));
+
+        for (GithubExploreMessageParser.RepositoryListType listType : GithubExploreMessageParser.RepositoryListType.values()) {
+            int count = getRepositoryCount(listType);
+            for (int i = 0; i < count; i++) {
+                Repository repository = getRepository(listType, i);
+                switch (listType) {
+                    case SOCIAL:
+                        builder.socialRepository(repository);
+                        break;
+                    case POPULAR:
+                        builder.popularRepository(repository);
+                        break;
+                    case STAFF:
+                        builder.staffRepository(repository);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private CharSequence header(int header) {
+        mCursor = mHeaders[header];
+        int length = readVarint();
+        if (length == 0) {
+            return null;
+        }
+        return view(mCursor, length - 1);
+    }
+
+    private String headerString(int header) {
+        mCursor = mHeaders[header];
+        int length = readVarint();
+        return length == 0 ? null : decode(mCursor, length - 1);
+    }
+
+    private CharSequence dictionaryView(int reference) {
+        if (reference == 0) {
+            return null;
+        }
+
+        int cursor = mCursor;
+        mCursor = mDictionary[reference - 1];
+        int length = readVarint();
+        CharSequence view = view(mCursor, length);
+        mCursor = cursor;
+        return view;
+    }
+
+    private String dictionaryString(int reference) {
+        if (reference == 0) {
+            return null;
+        }
+
+        String value = mDictionaryStrings[reference - 1];
+        if (value == null) {
+            int cursor = mCursor;
+            mCursor = mDictionary[reference - 1];
+            int length = readVarint();
+            value = decode(mCursor, length);
+            mDictionaryStrings[reference - 1] = value;
+            mCursor = cursor;
+        }
+        return value;
+    }
+
+    private CharSequence view(int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            if (mBuffer.get(i) < 0) {
+                return decode(start, length);
+            }
+        }
+        return new ByteSequence(mBuffer, start, start + length, MessageCodec.UTF_8);
+    }
+
+    private String decode(int start, int length) {
+        return new ByteSequence(mBuffer, start, start + length, MessageCodec.UTF_8).toString();
+    }
+
+    private void seek(GithubExploreMessageParser.RepositoryListType listType, int index, int field) {
+        mCursor = mRepositories[listType.ordinal()][index];
+        skipFields(field);
+    }
+
+    private void skipFields(int fields) {
+        for (int field = 0; field < fields; field++) {
+            int value = readVarint();
+            if (field == FIELD_URL && value > MessageCodec.URL_FROM_NAME) {
+                skipBytes(value - 2);
+            } else if (field == FIELD_NAME || field == FIELD_TYPE || field == FIELD_DESCRIPTION) {
+                checkReference(value);
+            }
+        }
+    }
+
+    private void skipString(int bias) {
+        int length = readVarint();
+        if (length > 0) {
+            skipBytes(length - bias);
+        }
+    }
+
+    private void skipBytes(int count) {
+        if (count < 0 || count > mBuffer.limit() - mCursor) {
+            throw new IllegalArgumentException("Encoded Message is Truncated");
+        }
+        mCursor += count;
+    }
+
+    private void checkReference(int reference) {
+        if (reference > mDictionary.length) {
+            throw new IllegalArgumentException("Dictionary Reference Out of Range");
+        }
+    }
+
+    /**
+     * Every entry takes at least a byte, so a count bigger than what's left can only be damage.
+     */
+    private int checkCount(int count) {
+        if (count < 0 || count > mBuffer.limit() - mCursor) {
+            throw new IllegalArgumentException("Encoded Message is Truncated");
+        }
+        return count;
+    }
+
+    private int readVarint() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = mBuffer.get(mCursor++);
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed Varint");
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,145 @@
+package com.davidtpate.github.explore.dedup;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Turns away messages that have been seen before, so copies of a digest aren't parsed and stored again. Each message is
+ * reduced to its {@link MessageFingerprint} and checked against a {@link ScalableBloomFilter}, a new message nearly
+ * always misses the filter and is let through without going near the disk. Only when the filter thinks it may have
+ * seen the fingerprint is the exact {@link FingerprintSet} asked, which is what makes the answer certain. The set is
+ * kept in the directory so copies are still caught across runs, the filter is rebuilt from it on open. A filter can be
+ * shared between threads, fingerprinting happens outside the lock.
+ * <p/>
+ * A caller that might fail to do anything with a message can {@link #claim(long)} it first and only {@link #record(long)}
+ * it once it's done, or {@link #release(long)} it so a later copy gets a chance.
+ */
+public class DuplicateFilter implements Closeable {
+    public static final int DEFAULT_EXPECTED_MESSAGES = 100000;
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    private static final String SET_NAME = "fingerprints.set";
+
+    private final FingerprintSet mSeen;
+    private final ScalableBloomFilter mFilter;
+    /**
+     * Fingerprints that have been claimed but not recorded yet, copies are turned away while they're here.
+     */
+    private final Set<Long> mClaimed = new HashSet<Long>();
+    private long mAccepted;
+    private long mDuplicates;
+    /**
+     * Times the filter thought it had seen a fingerprint that turned out to be new.
+     */
+    private long mFalsePositives;
+
+    public DuplicateFilter(File directory) throws IOException {
+        this(directory, DEFAULT_EXPECTED_MESSAGES, DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * @param expectedMessages  Sizes the first stage of the filter, it grows past this if it has to.
+     * @param falsePositiveRate How often a new message may have to be looked up on disk.
+     */
+    public DuplicateFilter(File directory, int expectedMessages, double falsePositiveRate) throws IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("Directory is Null");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+
+        mSeen = new FingerprintSet(new File(directory, SET_NAME));
+        mFilter = new ScalableBloomFilter(expectedMessages, falsePositiveRate);
+        mSeen.addAllTo(mFilter);
+    }
+
+    /**
+     * Looks at the message between the position and the limit of the buffer, the buffer itself isn't changed.
+     *
+     * @return true the first time a message is seen, false for every copy after that.
+     */
+    public boolean accept(ByteBuffer message) throws IOException {
+        return accept(MessageFingerprint.of(message));
+    }
+
+    public synchronized boolean accept(long fingerprint) throws IOException {
+        if (!claim(fingerprint)) {
+            return false;
+        }
+        record(fingerprint);
+        return true;
+    }
+
+    /**
+     * Holds on to a fingerprint without remembering it yet, follow up with {@link #record(long)} or
+     * {@link #release(long)}.
+     *
+     * @return true if the fingerprint is new and hasn't been claimed already.
+     */
+    public synchronized boolean claim(long fingerprint) {
+        if (mClaimed.contains(fingerprint)) {
+            mDuplicates++;
+            return false;
+        }
+        if (mFilter.mightContain(fingerprint)) {
+            if (mSeen.contains(fingerprint)) {
+                mDuplicates++;
+                return false;
+            }
+            mFalsePositives++;
+        }
+
+        mClaimed.add(fingerprint);
+        return true;
+    }
+
+    /**
+     * Remembers a claimed fingerprint for good, copies are turned away from now on.
+     */
+    public synchronized void record(long fingerprint) throws IOException {
+        mClaimed.remove(fingerprint);
+        if (mSeen.add(fingerprint)) {
+            mFilter.add(fingerprint);
+            mAccepted++;
+        }
+    }
+
+    /**
+     * Gives up a claimed fingerprint, the next copy is let through as if this one had never been seen.
+     */
+    public synchronized void release(long fingerprint) {
+        mClaimed.remove(fingerprint);
+    }
+
+    public synchronized long getAccepted() {
+        return mAccepted;
+    }
+
+    public synchronized long getDuplicates() {
+        return mDuplicates;
+    }
+
+    public synchronized long getFalsePositives() {
+        return mFalsePositives;
+    }
+
+    /**
+     * @return Every fingerprint on disk, including the ones from earlier runs.
+     */
+    public synchronized long size() {
+        return mSeen.size();
+    }
+
+    public synchronized void flush() {
+        mSeen.flush();
+    }
+
+    public synchronized void close() throws IOException {
+        mSeen.close();
+    }
+}
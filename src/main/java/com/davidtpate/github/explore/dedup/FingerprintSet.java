@@ -0,0 +1,201 @@
+package com.davidtpate.github.explore.dedup;
+
+import com.davidtpate.github.explore.util.Util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Every fingerprint ever added, in an open addressing hash table that lives in a memory mapped file. A lookup is a
+ * probe or two into the mapping, so the set can be far larger than the heap and is already on disk when the process
+ * dies. The table doubles into a new file once it's half full. Not thread-safe, callers synchronize.
+ */
+public class FingerprintSet implements Closeable {
+    private static final int MAGIC = 0x47455846; // "GEXF"
+    private static final int FORMAT_VERSION = 1;
+    /**
+     * Magic, format version and the number of fingerprints, followed by the slots.
+     */
+    private static final int HEADER_LENGTH = 16;
+    private static final int SIZE_OFFSET = 8;
+    private static final int MIN_CAPACITY = 1 << 16;
+
+    private final File mFile;
+    private MappedByteBuffer mMapping;
+    private LongBuffer mSlots;
+    private int mMask;
+    private long mSize;
+
+    public FingerprintSet(File file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File is Null");
+        }
+
+        mFile = file;
+        if (!file.exists() || file.length() == 0) {
+            use(mapFile(create(file, MIN_CAPACITY)));
+            return;
+        }
+
+        long slots = (file.length() - HEADER_LENGTH) / 8;
+        if (file.length() < HEADER_LENGTH + MIN_CAPACITY * 8L || Long.bitCount(slots) != 1 || slots > Integer.MAX_VALUE) {
+            throw new IOException("Not a fingerprint set: " + file);
+        }
+        use(mapFile(file));
+        if (mMapping.getInt(0) != MAGIC || mMapping.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Not a fingerprint set: " + file);
+        }
+        mSize = mMapping.getLong(SIZE_OFFSET);
+    }
+
+    public boolean contains(long fingerprint) {
+        checkFingerprint(fingerprint);
+
+        int slot = slot(fingerprint, mMask);
+        long value;
+        while ((value = mSlots.get(slot)) != MessageFingerprint.NONE) {
+            if (value == fingerprint) {
+                return true;
+            }
+            slot = (slot + 1) & mMask;
+        }
+        return false;
+    }
+
+    /**
+     * @return false if the fingerprint was already in the set.
+     */
+    public boolean add(long fingerprint) throws IOException {
+        checkFingerprint(fingerprint);
+
+        if ((mSize + 1) * 2 > mMask + 1L) {
+            grow();
+        }
+        if (!insert(mSlots, mMask, fingerprint)) {
+            return false;
+        }
+        mMapping.putLong(SIZE_OFFSET, ++mSize);
+        return true;
+    }
+
+    public long size() {
+        return mSize;
+    }
+
+    /**
+     * Hands every fingerprint to the filter, for rebuilding it from what's on disk.
+     */
+    void addAllTo(ScalableBloomFilter filter) {
+        for (int i = 0; i <= mMask; i++) {
+            long value = mSlots.get(i);
+            if (value != MessageFingerprint.NONE) {
+                filter.add(value);
+            }
+        }
+    }
+
+    /**
+     * Writes the mapping out to disk, it gets there on its own eventually.
+     */
+    public void flush() {
+        mMapping.force();
+    }
+
+    public void close() throws IOException {
+        flush();
+        mMapping = null;
+        mSlots = null;
+    }
+
+    private void grow() throws IOException {
+        int capacity = (mMask + 1) * 2;
+        if (capacity <= 0) {
+            throw new IOException("Fingerprint set is full: " + mFile);
+        }
+
+        File temp = new File(mFile.getPath() + ".tmp");
+        MappedByteBuffer mapping = mapFile(create(temp, capacity));
+        LongBuffer slots = slots(mapping);
+        for (int i = 0; i <= mMask; i++) {
+            long value = mSlots.get(i);
+            if (value != MessageFingerprint.NONE) {
+                insert(slots, capacity - 1, value);
+            }
+        }
+        mapping.putLong(SIZE_OFFSET, mSize);
+        mapping.force();
+
+        if (mFile.exists() && !mFile.delete() || !temp.renameTo(mFile)) {
+            throw new IOException("Unable to write " + mFile);
+        }
+        use(mapping);
+    }
+
+    private static boolean insert(LongBuffer slots, int mask, long fingerprint) {
+        int slot = slot(fingerprint, mask);
+        long value;
+        while ((value = slots.get(slot)) != MessageFingerprint.NONE) {
+            if (value == fingerprint) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots.put(slot, fingerprint);
+        return true;
+    }
+
+    private static int slot(long fingerprint, int mask) {
+        return (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+    }
+
+    private static void checkFingerprint(long fingerprint) {
+        if (fingerprint == MessageFingerprint.NONE) {
+            throw new IllegalArgumentException("Fingerprint is None");
+        }
+    }
+
+    /**
+     * Writes an empty table with room for the given number of slots.
+     */
+    private static File create(File file, int capacity) throws IOException {
+        RandomAccessFile output = new RandomAccessFile(file, "rw");
+        try {
+            output.setLength(0);
+            output.setLength(HEADER_LENGTH + capacity * 8L);
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeLong(0);
+        } finally {
+            Util.closeQuietly(output);
+        }
+        return file;
+    }
+
+    private void use(MappedByteBuffer mapping) {
+        mMapping = mapping;
+        mSlots = slots(mapping);
+        mMask = mSlots.capacity() - 1;
+    }
+
+    private static MappedByteBuffer mapFile(File file) throws IOException {
+        RandomAccessFile input = new RandomAccessFile(file, "rw");
+        try {
+            // The mapping stays valid after the channel is closed.
+            return input.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, input.length());
+        } finally {
+            Util.closeQuietly(input);
+        }
+    }
+
+    private static LongBuffer slots(MappedByteBuffer mapping) {
+        mapping.position(HEADER_LENGTH);
+        LongBuffer slots = mapping.slice().asLongBuffer();
+        mapping.position(0);
+        return slots;
+    }
+}
@@ -0,0 +1,138 @@
+package com.davidtpate.github.explore.dedup;
+
+import com.davidtpate.github.explore.util.Hashing;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Boils a raw message down to a 64-bit fingerprint that's the same for every copy of it. Copies delivered to several
+ * addresses or found in overlapping archives differ in their Received and Delivered-To lines, so only the Message-ID is
+ * used when there is one. Without one the Date, the Subject and the whole body are hashed. Only the header lines are
+ * looked at one by one, the body is hashed eight bytes at a time without being decoded.
+ */
+public final class MessageFingerprint {
+    /**
+     * Never a fingerprint, so it can mark an empty slot.
+     */
+    public static final long NONE = 0;
+
+    private static final byte[] MESSAGE_ID_NAME = ascii("message-id:");
+    private static final byte[] DATE_NAME = ascii("date:");
+    private static final byte[] SUBJECT_NAME = ascii("subject:");
+    private static final long MESSAGE_ID_SEED = 0x4D49L;
+    private static final long CONTENT_SEED = 0x4443L;
+
+    private MessageFingerprint() {
+    }
+
+    /**
+     * Fingerprints the message between the position and the limit of the buffer, the buffer itself isn't changed.
+     */
+    public static long of(ByteBuffer message) {
+        if (message == null) {
+            throw new IllegalArgumentException("Buffer is Null");
+        }
+
+        int limit = message.limit();
+        int line = message.position();
+        int date = -1;
+        int dateEnd = -1;
+        int subject = -1;
+        int subjectEnd = -1;
+        while (line < limit) {
+            int end = indexOfNewLine(message, line, limit);
+            int contentEnd = end > line && message.get(end - 1) == '\r' ? end - 1 : end;
+            if (contentEnd == line) {
+                // The end of the header, everything after the blank line is the body.
+                line = end + 1;
+                break;
+            }
+
+            // A value folded over several lines takes them all, copies of a message are byte for byte the same.
+            int next = end + 1;
+            while (next < limit && (message.get(next) == ' ' || message.get(next) == '\t')) {
+                end = indexOfNewLine(message, next, limit);
+                contentEnd = end > next && message.get(end - 1) == '\r' ? end - 1 : end;
+                next = end + 1;
+            }
+
+            int first = message.get(line) | 0x20;
+            if (first == 'm' && startsWithIgnoreCase(message, line, contentEnd, MESSAGE_ID_NAME)) {
+                int value = trimStart(message, line + MESSAGE_ID_NAME.length, contentEnd);
+                int valueEnd = trimEnd(message, value, contentEnd);
+                if (value < valueEnd) {
+                    return fingerprint(Hashing.hash64(message, value, valueEnd, MESSAGE_ID_SEED));
+                }
+            } else if (first == 'd' && date == -1 && startsWithIgnoreCase(message, line, contentEnd, DATE_NAME)) {
+                date = trimStart(message, line + DATE_NAME.length, contentEnd);
+                dateEnd = trimEnd(message, date, contentEnd);
+            } else if (first == 's' && subject == -1 && startsWithIgnoreCase(message, line, contentEnd, SUBJECT_NAME)) {
+                subject = trimStart(message, line + SUBJECT_NAME.length, contentEnd);
+                subjectEnd = trimEnd(message, subject, contentEnd);
+            }
+            line = next;
+        }
+
+        long hash = CONTENT_SEED;
+        if (date != -1) {
+            hash = Hashing.hash64(message, date, dateEnd, hash);
+        }
+        if (subject != -1) {
+            hash = Hashing.hash64(message, subject, subjectEnd, hash);
+        }
+        return fingerprint(Hashing.hash64(message, Math.min(line, limit), limit, hash));
+    }
+
+    private static long fingerprint(long hash) {
+        return hash == NONE ? 1 : hash;
+    }
+
+    private static int indexOfNewLine(ByteBuffer buffer, int start, int limit) {
+        while (start < limit && buffer.get(start) != '\n') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimStart(ByteBuffer buffer, int start, int end) {
+        while (start < end && isWhitespace(buffer.get(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(ByteBuffer buffer, int start, int end) {
+        while (end > start && isWhitespace(buffer.get(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    /**
+     * @param prefix Lower case.
+     */
+    private static boolean startsWithIgnoreCase(ByteBuffer buffer, int start, int end, byte[] prefix) {
+        if (end - start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            byte b = buffer.get(start + i);
+            if ((b >= 'A' && b <= 'Z' ? b | 0x20 : b) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String value) {
+        byte[] bytes = new byte[value.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) value.charAt(i);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,123 @@
+package com.davidtpate.github.explore.dedup;
+
+import com.davidtpate.github.explore.util.Hashing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Bloom filter of fingerprints that grows as it fills up instead of needing its size up front. It's a series of
+ * plain Bloom filters, each twice the size of the last with half the false positive rate, so the rate over all of them
+ * stays under the one asked for however many fingerprints are added. Not thread-safe, callers synchronize.
+ */
+public class ScalableBloomFilter {
+    private static final int GROWTH = 2;
+    private static final double TIGHTENING = 0.5;
+    private static final double LN_2 = Math.log(2);
+
+    private final List<Stage> mStages = new ArrayList<Stage>();
+    private final double mFalsePositiveRate;
+    private long mSize;
+
+    /**
+     * @param initialCapacity   Fingerprints the first stage holds before another is added.
+     * @param falsePositiveRate The most often a fingerprint that was never added may be reported as added.
+     */
+    public ScalableBloomFilter(int initialCapacity, double falsePositiveRate) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("Initial Capacity must be at least 1");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False Positive Rate must be between 0 and 1");
+        }
+
+        mFalsePositiveRate = falsePositiveRate;
+        // The stages' rates form a geometric series that adds up to the rate asked for.
+        mStages.add(new Stage(initialCapacity, falsePositiveRate * (1 - TIGHTENING)));
+    }
+
+    /**
+     * @return false if the fingerprint was definitely never added.
+     */
+    public boolean mightContain(long fingerprint) {
+        long hash2 = Hashing.mix(fingerprint) | 1;
+        for (int i = mStages.size() - 1; i >= 0; i--) {
+            if (mStages.get(i).mightContain(fingerprint, hash2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void add(long fingerprint) {
+        Stage stage = mStages.get(mStages.size() - 1);
+        if (stage.size >= stage.capacity) {
+            stage = new Stage(stage.capacity * GROWTH, stage.falsePositiveRate * TIGHTENING);
+            mStages.add(stage);
+        }
+        stage.add(fingerprint, Hashing.mix(fingerprint) | 1);
+        mSize++;
+    }
+
+    public long size() {
+        return mSize;
+    }
+
+    public double getFalsePositiveRate() {
+        return mFalsePositiveRate;
+    }
+
+    /**
+     * @return The memory the bits take up.
+     */
+    public long getBytes() {
+        long bytes = 0;
+        for (Stage stage : mStages) {
+            bytes += stage.bits.length * 8L;
+        }
+        return bytes;
+    }
+
+    private static final class Stage {
+        final long[] bits;
+        final long bitCount;
+        final int hashes;
+        final long capacity;
+        final double falsePositiveRate;
+        long size;
+
+        Stage(long capacity, double falsePositiveRate) {
+            long bitCount = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (LN_2 * LN_2));
+            this.bits = new long[(int) Math.min((bitCount + 63) >>> 6, Integer.MAX_VALUE - 8)];
+            this.bitCount = bits.length * 64L;
+            this.hashes = Math.max(1, (int) Math.round((double) this.bitCount / capacity * LN_2));
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+        }
+
+        /**
+         * Bits are picked by double hashing, the fingerprint is already a good hash so it's the first of the two.
+         */
+        boolean mightContain(long hash1, long hash2) {
+            long hash = hash1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = (hash & Long.MAX_VALUE) % bitCount;
+                if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+                hash += hash2;
+            }
+            return true;
+        }
+
+        void add(long hash1, long hash2) {
+            long hash = hash1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = (hash & Long.MAX_VALUE) % bitCount;
+                bits[(int) (bit >>> 6)] |= 1L << bit;
+                hash += hash2;
+            }
+            size++;
+        }
+    }
+}
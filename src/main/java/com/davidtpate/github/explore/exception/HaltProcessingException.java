@@ -1,4 +0,0 @@
-package com.davidtpate.github.explore.exception;
-
-public class HaltProcessingException extends Exception {
-}
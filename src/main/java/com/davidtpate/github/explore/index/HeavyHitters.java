@@ -0,0 +1,243 @@
+package com.davidtpate.github.explore.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The most frequent items of a stream in a fixed number of counters, using the Space-Saving algorithm. Items are
+ * counted exactly until every counter is taken, after that a new item takes over the smallest counter and inherits its
+ * count as the error. A count is never below the real one and never more than its error above it, and any item seen
+ * more than total / capacity times is guaranteed to have a counter. Not thread-safe, callers synchronize.
+ */
+public class HeavyHitters {
+    private static final Comparator<Entry> BY_COUNT = new Comparator<Entry>() {
+        public int compare(Entry a, Entry b) {
+            if (a.mCount != b.mCount) {
+                return a.mCount > b.mCount ? -1 : 1;
+            }
+            return a.mItem.compareTo(b.mItem);
+        }
+    };
+
+    private final int mCapacity;
+    private final Map<String, Counter> mCounters;
+    /**
+     * Min-heap on the count, the root is the counter a new item takes over.
+     */
+    private final Counter[] mHeap;
+    private int mSize;
+    private long mTotal;
+
+    public HeavyHitters(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+
+        mCapacity = capacity;
+        mCounters = new HashMap<String, Counter>(capacity * 2);
+        mHeap = new Counter[capacity];
+    }
+
+    public void offer(String item) {
+        offer(item, 1);
+    }
+
+    public void offer(String item, long count) {
+        if (item == null) {
+            throw new IllegalArgumentException("Item is Null");
+        }
+        if (count < 1) {
+            throw new IllegalArgumentException("Count must be at least 1");
+        }
+
+        mTotal += count;
+        Counter counter = mCounters.get(item);
+        if (counter != null) {
+            counter.count += count;
+            siftDown(counter.index);
+        } else if (mSize < mCapacity) {
+            counter = new Counter(item, count, mSize);
+            mHeap[mSize++] = counter;
+            mCounters.put(item, counter);
+            siftUp(counter.index);
+        } else {
+            // Evict the smallest, whatever it had might have been this item all along.
+            counter = mHeap[0];
+            mCounters.remove(counter.item);
+            counter.item = item;
+            counter.error = counter.count;
+            counter.count += count;
+            mCounters.put(item, counter);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * @return The count of the item, or 0 if it doesn't have a counter. An item without a counter was seen at most
+     * {@link #getMinCount()} times.
+     */
+    public long getCount(String item) {
+        Counter counter = mCounters.get(item);
+        return counter != null ? counter.count : 0;
+    }
+
+    /**
+     * @return The smallest count, or 0 while there are still free counters.
+     */
+    public long getMinCount() {
+        return mSize < mCapacity ? 0 : mHeap[0].count;
+    }
+
+    /**
+     * @return Everything offered, including what was offered to evicted items.
+     */
+    public long getTotal() {
+        return mTotal;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    /**
+     * @return Up to k items, highest count first.
+     */
+    public List<Entry> top(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("K must be at least 1");
+        }
+
+        Entry[] entries = new Entry[mSize];
+        for (int i = 0; i < mSize; i++) {
+            entries[i] = new Entry(mHeap[i].item, mHeap[i].count, mHeap[i].error);
+        }
+        return top(entries, k);
+    }
+
+    /**
+     * Sorts the entries in place and keeps the first k.
+     */
+    static List<Entry> top(Entry[] entries, int k) {
+        Arrays.sort(entries, BY_COUNT);
+        if (entries.length > k) {
+            entries = Arrays.copyOf(entries, k);
+        }
+        return Collections.unmodifiableList(new ArrayList<Entry>(Arrays.asList(entries)));
+    }
+
+    void clear() {
+        mCounters.clear();
+        Arrays.fill(mHeap, null);
+        mSize = 0;
+        mTotal = 0;
+    }
+
+    /**
+     * Visits every counter, in no particular order.
+     */
+    void forEach(Visitor visitor) {
+        for (int i = 0; i < mSize; i++) {
+            visitor.visit(mHeap[i].item, mHeap[i].count, mHeap[i].error);
+        }
+    }
+
+    private void siftUp(int index) {
+        Counter counter = mHeap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (mHeap[parent].count <= counter.count) {
+                break;
+            }
+            place(mHeap[parent], index);
+            index = parent;
+        }
+        place(counter, index);
+    }
+
+    private void siftDown(int index) {
+        Counter counter = mHeap[index];
+        int half = mSize >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < mSize && mHeap[child + 1].count < mHeap[child].count) {
+                child++;
+            }
+            if (counter.count <= mHeap[child].count) {
+                break;
+            }
+            place(mHeap[child], index);
+            index = child;
+        }
+        place(counter, index);
+    }
+
+    private void place(Counter counter, int index) {
+        mHeap[index] = counter;
+        counter.index = index;
+    }
+
+    interface Visitor {
+        void visit(String item, long count, long error);
+    }
+
+    private static final class Counter {
+        String item;
+        long count;
+        long error;
+        int index;
+
+        Counter(String item, long count, int index) {
+            this.item = item;
+            this.count = count;
+            this.index = index;
+        }
+    }
+
+    public static final class Entry {
+        private final String mItem;
+        private final long mCount;
+        private final long mError;
+
+        Entry(String item, long count, long error) {
+            mItem = item;
+            mCount = count;
+            mError = error;
+        }
+
+        public String getItem() {
+            return mItem;
+        }
+
+        /**
+         * @return At least the real count, at most {@link #getError()} above it.
+         */
+        public long getCount() {
+            return mCount;
+        }
+
+        public long getError() {
+            return mError;
+        }
+
+        /**
+         * @return The count the item is certain to have reached.
+         */
+        public long getGuaranteedCount() {
+            return mCount - mError;
+        }
+
+        @Override
+        public String toString() {
+            return mItem + "=" + mCount + (mError > 0 ? "+/-" + mError : "");
+        }
+    }
+}
@@ -0,0 +1,440 @@
+package com.davidtpate.github.explore.index;
+
+import com.davidtpate.github.explore.GithubExploreMessageParser;
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+import com.davidtpate.github.explore.model.Repository;
+import com.davidtpate.github.explore.util.Util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An append-only, column per file index of every repository listing in the messages it has been given, for answering
+ * questions across a whole archive without parsing it again. Each listing is a row of date, list, repository, language
+ * and rank. Repository names and languages are stored once in a dictionary and the rows only hold their ids, so every
+ * column is a flat array of primitives that queries read through a memory mapping. Rows are buffered and written out
+ * a batch at a time, queries see everything appended before them. An index can be shared between threads.
+ */
+public class RepositoryIndex implements Closeable {
+    /**
+     * Language id of a row whose repository didn't have one.
+     */
+    public static final int NO_LANGUAGE = -1;
+
+    private static final int BATCH_ROWS = 4096;
+    /**
+     * Period for counting everything between the dates as one.
+     */
+    private static final long WHOLE_RANGE = 0;
+
+    private final Column mDates;
+    private final Column mLists;
+    private final Column mRepositories;
+    private final Column mLanguages;
+    private final Column mRanks;
+    private final Column[] mColumns;
+    private final Dictionary mRepositoryNames;
+    private final Dictionary mLanguageNames;
+    /**
+     * Rows on disk, rows still in the batch buffers come on top of these.
+     */
+    private int mRows;
+    private int mBatchRows;
+    /**
+     * The mapping queries read from, redone once more rows have been written.
+     */
+    private Mapping mMapping;
+
+    public RepositoryIndex(File directory) throws IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("Directory is Null");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+
+        mDates = new Column(new File(directory, "date.col"), 8);
+        mLists = new Column(new File(directory, "list.col"), 1);
+        mRepositories = new Column(new File(directory, "repository.col"), 4);
+        mLanguages = new Column(new File(directory, "language.col"), 4);
+        mRanks = new Column(new File(directory, "rank.col"), 4);
+        mColumns = new Column[] {mDates, mLists, mRepositories, mLanguages, mRanks};
+        mRepositoryNames = new Dictionary(new File(directory, "repository.dict"));
+        mLanguageNames = new Dictionary(new File(directory, "language.dict"));
+
+        // A crash can leave some columns a row or two ahead of the others, the shortest one decides.
+        int rows = Integer.MAX_VALUE;
+        for (Column column : mColumns) {
+            rows = (int) Math.min(rows, column.rows());
+        }
+        for (Column column : mColumns) {
+            column.truncate(rows);
+        }
+        mRows = rows;
+    }
+
+    /**
+     * Adds a row for every repository in every list of the message.
+     */
+    public synchronized void append(GithubExploreMessage message) throws IOException {
+        if (message == null) {
+            throw new IllegalArgumentException("Message is Null");
+        }
+
+        append(message.getDateMillis(), GithubExploreMessageParser.RepositoryListType.SOCIAL, message.getSocialRepositoryList());
+        append(message.getDateMillis(), GithubExploreMessageParser.RepositoryListType.POPULAR, message.getPopularRepositoryList());
+        append(message.getDateMillis(), GithubExploreMessageParser.RepositoryListType.STAFF, message.getStaffRepositoryList());
+    }
+
+    /**
+     * Writes out the rows that are still buffered.
+     */
+    public synchronized void flush() throws IOException {
+        if (mBatchRows == 0) {
+            return;
+        }
+
+        // Names go first so a row never points at a name that didn't make it to disk.
+        mRepositoryNames.flush();
+        mLanguageNames.flush();
+        for (Column column : mColumns) {
+            column.flush();
+        }
+        mRows += mBatchRows;
+        mBatchRows = 0;
+    }
+
+    public synchronized int size() {
+        return mRows + mBatchRows;
+    }
+
+    public synchronized String getRepositoryName(int repositoryId) {
+        return mRepositoryNames.get(repositoryId);
+    }
+
+    /**
+     * @return The id the repository's rows use, or -1 if it has never been listed.
+     */
+    public synchronized int getRepositoryId(String name) {
+        return mRepositoryNames.find(name);
+    }
+
+    public synchronized int getRepositoryCount() {
+        return mRepositoryNames.size();
+    }
+
+    public synchronized String getLanguage(int languageId) {
+        return languageId == NO_LANGUAGE ? null : mLanguageNames.get(languageId);
+    }
+
+    public synchronized int getLanguageCount() {
+        return mLanguageNames.size();
+    }
+
+    /**
+     * How many times each repository was listed between the dates.
+     *
+     * @param listType The list to count, or null for all of them.
+     * @param from     Inclusive, in millis.
+     * @param to       Exclusive, in millis.
+     * @return Counts indexed by repository id.
+     */
+    public synchronized int[] countByRepository(GithubExploreMessageParser.RepositoryListType listType, long from, long to) throws IOException {
+        return count(listType, from, to, WHOLE_RANGE, false)[0];
+    }
+
+    /**
+     * How many times each language was listed between the dates, repositories without a language aren't counted.
+     *
+     * @return Counts indexed by language id.
+     */
+    public synchronized int[] countByLanguage(GithubExploreMessageParser.RepositoryListType listType, long from, long to) throws IOException {
+        return count(listType, from, to, WHOLE_RANGE, true)[0];
+    }
+
+    /**
+     * Language counts split into periods, like weeks, starting at from.
+     *
+     * @return Counts indexed by period and then language id.
+     */
+    public synchronized int[][] countByLanguage(GithubExploreMessageParser.RepositoryListType listType, long from, long to, long period) throws IOException {
+        if (period < 1) {
+            throw new IllegalArgumentException("Period must be at least 1");
+        }
+        return count(listType, from, to, period, true);
+    }
+
+    /**
+     * @return The repositories listed at least minCount times between the dates, with their counts, most listed first.
+     */
+    public synchronized Map<String, Integer> repositoriesListedAtLeast(GithubExploreMessageParser.RepositoryListType listType, long from, long to, int minCount) throws IOException {
+        final int[] counts = countByRepository(listType, from, to);
+        List<Integer> ids = new ArrayList<Integer>();
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] >= minCount && counts[id] > 0) {
+                ids.add(Integer.valueOf(id));
+            }
+        }
+
+        Integer[] sorted = ids.toArray(new Integer[ids.size()]);
+        Arrays.sort(sorted, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                int byCount = counts[b.intValue()] - counts[a.intValue()];
+                return byCount != 0 ? byCount : a.intValue() - b.intValue();
+            }
+        });
+
+        Map<String, Integer> result = new LinkedHashMap<String, Integer>();
+        for (Integer id : sorted) {
+            result.put(mRepositoryNames.get(id.intValue()), Integer.valueOf(counts[id.intValue()]));
+        }
+        return result;
+    }
+
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            mMapping = null;
+            for (Column column : mColumns) {
+                Util.closeQuietly(column);
+            }
+        }
+    }
+
+    private void append(long date, GithubExploreMessageParser.RepositoryListType listType, List<Repository> repositories) throws IOException {
+        if (repositories == null) {
+            return;
+        }
+
+        for (Repository repository : repositories) {
+            // Without a name there's nothing to count it under.
+            if (repository.getName() == null) {
+                continue;
+            }
+
+            mDates.buffer.putLong(date);
+            mLists.buffer.put((byte) listType.ordinal());
+            mRepositories.buffer.putInt(mRepositoryNames.add(repository.getName()));
+            mLanguages.buffer.putInt(repository.getType() == null ? NO_LANGUAGE : mLanguageNames.add(repository.getType()));
+            mRanks.buffer.putInt(repository.getRank());
+            if (++mBatchRows == BATCH_ROWS) {
+                flush();
+            }
+        }
+    }
+
+    private int[][] count(GithubExploreMessageParser.RepositoryListType listType, long from, long to, long period, boolean byLanguage) throws IOException {
+        long periods = 1;
+        if (to <= from) {
+            periods = 0;
+        } else if (period != WHOLE_RANGE) {
+            if (to - from < 0) {
+                throw new IllegalArgumentException("Range is Too Large to Split");
+            }
+            periods = (to - from - 1) / period + 1;
+            if (periods > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Too Many Periods");
+            }
+        }
+        int groups = byLanguage ? mLanguageNames.size() : mRepositoryNames.size();
+        int[][] counts = new int[Math.max((int) periods, 1)][groups];
+        if (periods == 0) {
+            return counts;
+        }
+
+        Mapping mapping = map();
+        LongBuffer dates = mapping.dates;
+        ByteBuffer lists = mapping.lists;
+        IntBuffer values = byLanguage ? mapping.languages : mapping.repositories;
+        int list = listType != null ? listType.ordinal() : -1;
+        for (int row = 0; row < mapping.rows; row++) {
+            long date = dates.get(row);
+            if (date < from || date >= to || list >= 0 && lists.get(row) != list) {
+                continue;
+            }
+            int value = values.get(row);
+            if (value >= 0) {
+                counts[period == WHOLE_RANGE ? 0 : (int) ((date - from) / period)][value]++;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @return A mapping of every row, after writing out whatever was still buffered.
+     */
+    private Mapping map() throws IOException {
+        flush();
+        if (mMapping == null || mMapping.rows != mRows) {
+            mMapping = new Mapping(mRows);
+        }
+        return mMapping;
+    }
+
+    /**
+     * The columns as they were when they were mapped, the files only ever grow so the mapping stays valid.
+     */
+    private final class Mapping {
+        final int rows;
+        final LongBuffer dates;
+        final ByteBuffer lists;
+        final IntBuffer repositories;
+        final IntBuffer languages;
+
+        Mapping(int rows) throws IOException {
+            this.rows = rows;
+            dates = mDates.map(rows).asLongBuffer();
+            lists = mLists.map(rows);
+            repositories = mRepositories.map(rows).asIntBuffer();
+            languages = mLanguages.map(rows).asIntBuffer();
+        }
+    }
+
+    private static final class Column implements Closeable {
+        final ByteBuffer buffer;
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final int width;
+
+        Column(File file, int width) throws IOException {
+            this.file = new RandomAccessFile(file, "rw");
+            this.channel = this.file.getChannel();
+            this.width = width;
+            this.buffer = ByteBuffer.allocate(BATCH_ROWS * width);
+        }
+
+        long rows() throws IOException {
+            return channel.size() / width;
+        }
+
+        void truncate(int rows) throws IOException {
+            channel.truncate((long) rows * width);
+            channel.position((long) rows * width);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        ByteBuffer map(int rows) throws IOException {
+            if (rows == 0) {
+                return ByteBuffer.allocate(0);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, (long) rows * width);
+        }
+
+        public void close() throws IOException {
+            file.close();
+        }
+    }
+
+    /**
+     * Strings by id, ids are handed out in the order strings are first seen and kept in an append-only file.
+     */
+    private static final class Dictionary {
+        private final File file;
+        private final List<String> values = new ArrayList<String>();
+        private final Map<String, Integer> ids = new HashMap<String, Integer>();
+        /**
+         * Where the first value that hasn't been written yet is.
+         */
+        private int written;
+
+        Dictionary(File file) throws IOException {
+            this.file = file;
+            if (!file.exists()) {
+                return;
+            }
+
+            DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            long valid = 0;
+            try {
+                while (true) {
+                    String value;
+                    try {
+                        value = input.readUTF();
+                    } catch (EOFException e) {
+                        // The end, or a value that was only half written when we went down.
+                        break;
+                    }
+                    add(value);
+                    valid += 2 + utfLength(value);
+                }
+            } finally {
+                Util.closeQuietly(input);
+            }
+            written = values.size();
+
+            if (valid != file.length()) {
+                RandomAccessFile truncate = new RandomAccessFile(file, "rw");
+                try {
+                    truncate.setLength(valid);
+                } finally {
+                    Util.closeQuietly(truncate);
+                }
+            }
+        }
+
+        int add(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = Integer.valueOf(values.size());
+                values.add(value);
+                ids.put(value, id);
+            }
+            return id.intValue();
+        }
+
+        int find(String value) {
+            Integer id = ids.get(value);
+            return id != null ? id.intValue() : -1;
+        }
+
+        String get(int id) {
+            return values.get(id);
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        void flush() throws IOException {
+            if (written == values.size()) {
+                return;
+            }
+
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+            try {
+                for (; written < values.size(); written++) {
+                    output.writeUTF(values.get(written));
+                }
+            } finally {
+                output.close();
+            }
+        }
+
+        private static int utfLength(String value) {
+            int length = 0;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                length += c >= 0x0001 && c <= 0x007f ? 1 : c > 0x07ff ? 3 : 2;
+            }
+            return length;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.davidtpate.github.explore.index;
+
+import com.davidtpate.github.explore.ExploreMessageHandler;
+import com.davidtpate.github.explore.GithubExploreMessageParser;
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+import com.davidtpate.github.explore.model.Message;
+import com.davidtpate.github.explore.model.Repository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Which repositories keep getting listed, over a sliding window of the most recent digests, in fixed memory however
+ * long the archive is. The window is a ring of periods, like days, keyed on the date of each message, and every period
+ * keeps a {@link HeavyHitters} per list. A message newer than the window slides it forward and drops the periods that
+ * fall out of it, one older than the window is ignored. Counts are approximate once a period has seen more repositories
+ * than it has counters, see {@link HeavyHitters.Entry} for the bounds. Listings can be added from any number of threads
+ * while others ask for the top repositories.
+ */
+public class TrendingWindow {
+    public static final int DEFAULT_CAPACITY = 1000;
+    public static final long DEFAULT_PERIOD = 24 * 60 * 60 * 1000L;
+    public static final int DEFAULT_PERIODS = 7;
+
+    private static final GithubExploreMessageParser.RepositoryListType[] LIST_TYPES =
+            GithubExploreMessageParser.RepositoryListType.values();
+
+    private int mCapacity = DEFAULT_CAPACITY;
+    private long mPeriod = DEFAULT_PERIOD;
+    private Period[] mPeriods = new Period[DEFAULT_PERIODS];
+    /**
+     * The newest period seen, the window ends with it.
+     */
+    private long mLatest = Long.MIN_VALUE;
+    private long mDropped;
+
+    /**
+     * Counts every repository in every list of the message.
+     */
+    public void add(GithubExploreMessage message) {
+        if (message == null) {
+            throw new IllegalArgumentException("Message is Null");
+        }
+
+        add(message.getDateMillis(), GithubExploreMessageParser.RepositoryListType.SOCIAL, message.getSocialRepositoryList());
+        add(message.getDateMillis(), GithubExploreMessageParser.RepositoryListType.POPULAR, message.getPopularRepositoryList());
+        add(message.getDateMillis(), GithubExploreMessageParser.RepositoryListType.STAFF, message.getStaffRepositoryList());
+    }
+
+    /**
+     * Counts one listing, a repository without a name or a message without a date isn't counted.
+     */
+    public synchronized void add(long date, GithubExploreMessageParser.RepositoryListType listType, Repository repository) {
+        if (listType == null) {
+            throw new IllegalArgumentException("List Type is Null");
+        }
+        if (repository == null || repository.getName() == null || date == Message.NO_DATE) {
+            return;
+        }
+
+        HeavyHitters list = period(Math.floorDiv(date, mPeriod), listType);
+        if (list != null) {
+            list.offer(repository.getName());
+        } else {
+            mDropped++;
+        }
+    }
+
+    /**
+     * A handler to give the parser, repositories are counted as they're parsed under the date of their message. Use a
+     * new one for each message.
+     */
+    public ExploreMessageHandler newHandler() {
+        return new WindowHandler();
+    }
+
+    /**
+     * @param listType The list to count, or null for all of them.
+     * @return Up to k repositories over the whole window, most listed first.
+     */
+    public List<HeavyHitters.Entry> top(GithubExploreMessageParser.RepositoryListType listType, int k) {
+        return top(listType, k, mPeriods.length);
+    }
+
+    /**
+     * @param periods How many of the most recent periods to count.
+     * @return Up to k repositories over the periods, most listed first.
+     */
+    public synchronized List<HeavyHitters.Entry> top(GithubExploreMessageParser.RepositoryListType listType, int k, int periods) {
+        if (k < 1) {
+            throw new IllegalArgumentException("K must be at least 1");
+        }
+        if (periods < 1) {
+            throw new IllegalArgumentException("Periods must be at least 1");
+        }
+
+        // Add up each repository across the periods. A period without a counter for it could still have seen it as
+        // many times as its smallest count, which is added to the count and the error so the bounds still hold.
+        final Map<String, Merged> merged = new HashMap<String, Merged>();
+        long totalMin = 0;
+        for (Period period : mPeriods) {
+            if (period == null || period.number <= mLatest - Math.min(periods, mPeriods.length)) {
+                continue;
+            }
+
+            for (GithubExploreMessageParser.RepositoryListType type : LIST_TYPES) {
+                HeavyHitters list = period.lists[type.ordinal()];
+                if (list == null || (listType != null && listType != type)) {
+                    continue;
+                }
+
+                final long min = list.getMinCount();
+                totalMin += min;
+                list.forEach(new HeavyHitters.Visitor() {
+                    public void visit(String item, long count, long error) {
+                        Merged entry = merged.get(item);
+                        if (entry == null) {
+                            entry = new Merged();
+                            merged.put(item, entry);
+                        }
+                        entry.count += count;
+                        entry.error += error;
+                        entry.min += min;
+                    }
+                });
+            }
+        }
+
+        HeavyHitters.Entry[] entries = new HeavyHitters.Entry[merged.size()];
+        int i = 0;
+        for (Map.Entry<String, Merged> entry : merged.entrySet()) {
+            Merged value = entry.getValue();
+            long unseen = totalMin - value.min;
+            entries[i++] = new HeavyHitters.Entry(entry.getKey(), value.count + unseen, value.error + unseen);
+        }
+        return HeavyHitters.top(entries, k);
+    }
+
+    /**
+     * @return The start of the newest period in the window, or {@link Message#NO_DATE} if nothing has been added.
+     */
+    public synchronized long getLatestDate() {
+        return mLatest == Long.MIN_VALUE ? Message.NO_DATE : mLatest * mPeriod;
+    }
+
+    /**
+     * @return Listings that were too old for the window when they were added.
+     */
+    public synchronized long getDropped() {
+        return mDropped;
+    }
+
+    private void add(long date, GithubExploreMessageParser.RepositoryListType listType, List<Repository> repositories) {
+        if (repositories == null) {
+            return;
+        }
+
+        for (Repository repository : repositories) {
+            add(date, listType, repository);
+        }
+    }
+
+    /**
+     * @return The list for the period, sliding the window forward if it's newer, or null if it's already out of it.
+     */
+    private HeavyHitters period(long number, GithubExploreMessageParser.RepositoryListType listType) {
+        if (mLatest != Long.MIN_VALUE && number <= mLatest - mPeriods.length) {
+            return null;
+        }
+        if (number > mLatest) {
+            mLatest = number;
+        }
+
+        int slot = (int) Math.floorMod(number, (long) mPeriods.length);
+        Period period = mPeriods[slot];
+        if (period == null) {
+            period = new Period();
+            mPeriods[slot] = period;
+            period.number = number;
+        } else if (period.number != number) {
+            // The slot still holds a period that has slid out of the window, reuse its counters.
+            period.clear();
+            period.number = number;
+        }
+
+        HeavyHitters list = period.lists[listType.ordinal()];
+        if (list == null) {
+            list = new HeavyHitters(mCapacity);
+            period.lists[listType.ordinal()] = list;
+        }
+        return list;
+    }
+
+    private static final class Period {
+        final HeavyHitters[] lists = new HeavyHitters[LIST_TYPES.length];
+        long number;
+
+        void clear() {
+            for (HeavyHitters list : lists) {
+                if (list != null) {
+                    list.clear();
+                }
+            }
+        }
+    }
+
+    private static final class Merged {
+        long count;
+        long error;
+        /**
+         * The smallest counts of the periods that had a counter for it.
+         */
+        long min;
+    }
+
+    private class WindowHandler implements ExploreMessageHandler {
+        private long mDate = Message.NO_DATE;
+
+        public void onHeader(GithubExploreMessageParser.Header header, String value) {
+        }
+
+        public void onDate(long date) {
+            mDate = date;
+        }
+
+        public void onRepository(GithubExploreMessageParser.RepositoryListType listType, Repository repository) {
+            add(mDate, listType, repository);
+        }
+
+        public void onEnd() {
+        }
+    }
+
+    public static class Builder {
+        private TrendingWindow window = new TrendingWindow();
+
+        /**
+         * How many repositories each list counts per period, defaults to 1000.
+         */
+        public Builder capacity(int capacity) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("Capacity must be at least 1");
+            }
+
+            window.mCapacity = capacity;
+            return this;
+        }
+
+        /**
+         * Length of a period in millis, defaults to a day.
+         */
+        public Builder period(long period) {
+            if (period < 1) {
+                throw new IllegalArgumentException("Period must be at least 1");
+            }
+
+            window.mPeriod = period;
+            return this;
+        }
+
+        /**
+         * How many periods the window covers, defaults to 7.
+         */
+        public Builder periods(int periods) {
+            if (periods < 1) {
+                throw new IllegalArgumentException("Periods must be at least 1");
+            }
+
+            window.mPeriods = new Period[periods];
+            return this;
+        }
+
+        public TrendingWindow build() {
+            TrendingWindow builtWindow = window;
+            window = new TrendingWindow();
+            return builtWindow;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.davidtpate.github.explore.ingest;
+
+import com.davidtpate.github.explore.util.Util;
+
+import java.io.*;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Reads the messages straight out of a compressed archive, without extracting anything to disk. Gzip, zip and tar are
+ * recognized by their contents and can be nested, so a .tar.gz or a zip of .msg.gz files works as well. Every file in
+ * the archive is a message, except for files that start with a postmark which are split as an mbox. Messages bigger than
+ * {@link #MAX_MESSAGE_BYTES}, and archives nested more than {@link #MAX_NESTING} deep, are handed out as errors instead
+ * of being read, see {@link RawMessage#getError()}. No digest comes close, and reading them could run us out of memory
+ * or stack.
+ * <p/>
+ * Decompressing is done on a thread of its own which reads ahead of {@link #next()} by a fixed number of messages, so
+ * it overlaps with whatever the caller does with them.
+ */
+public class ArchiveMessageSource implements MessageSource {
+    public static final int DEFAULT_READ_AHEAD = 16;
+    /**
+     * How many archives deep a message can be, counting the outermost one.
+     */
+    public static final int MAX_NESTING = 8;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String[] EXTENSIONS = {".gz", ".tgz", ".zip", ".tar"};
+    private static final byte[] POSTMARK = {'F', 'r', 'o', 'm', ' '};
+    /**
+     * Put on the queue once the reader is done, the archive has no more messages after it.
+     */
+    private static final RawMessage END = new RawMessage(null, new byte[0]);
+
+    private final String mPath;
+    private final InputStream mInput;
+    private final BlockingQueue<RawMessage> mQueue;
+    private final Thread mReader;
+    /**
+     * Why the reader stopped early, set before {@link #END} is queued.
+     */
+    private volatile Exception mError;
+    private volatile boolean mClosed;
+    private boolean mFinished;
+
+    public ArchiveMessageSource(String path) throws FileNotFoundException {
+        this(path, new FileInputStream(path), DEFAULT_READ_AHEAD);
+    }
+
+    /**
+     * @param path      Used to identify the messages, the stream doesn't need to come from a file.
+     * @param readAhead The most messages decompressed ahead of the caller.
+     */
+    public ArchiveMessageSource(String path, InputStream input, int readAhead) {
+        if (input == null) {
+            throw new IllegalArgumentException("Input is Null");
+        }
+        if (readAhead < 1) {
+            throw new IllegalArgumentException("Read Ahead must be at least 1");
+        }
+
+        mPath = path;
+        mInput = input;
+        mQueue = new ArrayBlockingQueue<RawMessage>(readAhead);
+        mReader = new Thread(new Reader(), "ArchiveMessageSource " + path);
+        mReader.setDaemon(true);
+        mReader.start();
+    }
+
+    /**
+     * @return true if the path looks like an archive this source can read.
+     */
+    public static boolean isArchive(String path) {
+        String lowerPath = path.toLowerCase(Locale.US);
+        for (String extension : EXTENSIONS) {
+            if (lowerPath.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Ids are the archive path and the path of the file inside it separated by "!", like
+     * "digests.tar.gz!2014/03/11.msg", with "@offset" appended for the messages of an mbox.
+     */
+    public RawMessage next() throws IOException {
+        if (mFinished) {
+            return null;
+        }
+
+        RawMessage message;
+        try {
+            message = mQueue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted Reading " + mPath);
+        }
+
+        if (message == END) {
+            mFinished = true;
+            Exception error = mError;
+            if (error instanceof IOException) {
+                throw (IOException) error;
+            } else if (error != null) {
+                throw new IOException("Unable to Read " + mPath, error);
+            }
+            return null;
+        }
+        return message;
+    }
+
+    /**
+     * Stops the reader, messages it had already read ahead are dropped.
+     */
+    public void close() throws IOException {
+        mClosed = true;
+        mFinished = true;
+        mReader.interrupt();
+        Util.closeQuietly(mInput);
+        mQueue.clear();
+    }
+
+    private class Reader implements Runnable {
+        private final byte[] mHead = new byte[TarReader.BLOCK_SIZE];
+
+        public void run() {
+            try {
+                read(mPath, mInput, 0);
+            } catch (InterruptedException e) {
+                // Closed, nobody is waiting on the rest.
+            } catch (Exception e) {
+                if (!mClosed) {
+                    mError = e;
+                }
+            } finally {
+                Util.closeQuietly(mInput);
+                finish();
+            }
+        }
+
+        private void finish() {
+            if (mClosed) {
+                return;
+            }
+            try {
+                mQueue.put(END);
+            } catch (InterruptedException e) {
+                // Closed while waiting for room.
+            }
+        }
+
+        /**
+         * Works out what the stream holds from its first bytes and reads it accordingly.
+         *
+         * @param nesting How many archives the stream is inside of.
+         */
+        private void read(String id, InputStream input, int nesting) throws IOException, InterruptedException {
+            BufferedInputStream bufferedInput = new BufferedInputStream(input, BUFFER_SIZE);
+            bufferedInput.mark(mHead.length);
+            int length = readFully(bufferedInput, mHead);
+            bufferedInput.reset();
+
+            boolean gzip = length >= 2 && (mHead[0] & 0xff) == 0x1f && (mHead[1] & 0xff) == 0x8b;
+            boolean zip = length >= 4 && mHead[0] == 'P' && mHead[1] == 'K' && mHead[2] == 3 && mHead[3] == 4;
+            boolean tar = !gzip && !zip && TarReader.isTar(mHead, length);
+            if ((gzip || zip || tar) && nesting == MAX_NESTING) {
+                put(new RawMessage(id, new IOException("Archive Nested More Than " + MAX_NESTING + " Deep")));
+                return;
+            }
+
+            // The decompressing streams are closed as soon as they're done with to free their native memory, without
+            // closing the stream they're reading from which could be an entry of an outer archive.
+            if (gzip) {
+                GZIPInputStream gzipInput = new GZIPInputStream(new UnclosedInputStream(bufferedInput), BUFFER_SIZE);
+                try {
+                    read(id, gzipInput, nesting + 1);
+                } finally {
+                    Util.closeQuietly(gzipInput);
+                }
+            } else if (zip) {
+                ZipInputStream zipInput = new ZipInputStream(new UnclosedInputStream(bufferedInput));
+                try {
+                    readZip(id, zipInput, nesting + 1);
+                } finally {
+                    Util.closeQuietly(zipInput);
+                }
+            } else if (tar) {
+                readTar(id, new TarReader(bufferedInput), nesting + 1);
+            } else if (startsWith(mHead, length, POSTMARK)) {
+                MboxMessageSource mbox = new MboxMessageSource(id, bufferedInput, 0);
+                RawMessage message;
+                while ((message = mbox.next()) != null) {
+                    put(message);
+                }
+            } else if (length > 0) {
+                byte[] data = readFully(bufferedInput, MAX_MESSAGE_BYTES);
+                if (data != null) {
+                    put(new RawMessage(id, data));
+                } else {
+                    put(new RawMessage(id, new IOException("Message Larger Than " + MAX_MESSAGE_BYTES + " Bytes")));
+                }
+            }
+        }
+
+        private void readZip(String id, ZipInputStream input, int nesting) throws IOException, InterruptedException {
+            ZipEntry entry;
+            while ((entry = input.getNextEntry()) != null) {
+                if (!entry.isDirectory() && !isHidden(entry.getName())) {
+                    read(id + "!" + entry.getName(), input, nesting);
+                }
+            }
+        }
+
+        private void readTar(String id, TarReader input, int nesting) throws IOException, InterruptedException {
+            String name;
+            while ((name = input.nextEntry()) != null) {
+                if (!isHidden(name)) {
+                    read(id + "!" + name, input, nesting);
+                }
+            }
+        }
+
+        private void put(RawMessage message) throws InterruptedException {
+            // Blocks while the caller is behind, which keeps the memory used by a huge archive in check.
+            mQueue.put(message);
+        }
+    }
+
+    /**
+     * Dot files aren't messages, archives made on a Mac are full of "._" files holding resource forks.
+     */
+    private static boolean isHidden(String name) {
+        int slash = name.lastIndexOf('/');
+        return name.startsWith(".", slash + 1);
+    }
+
+    private static boolean startsWith(byte[] data, int length, byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return How many bytes were read, less than the buffer holds only at the end of the stream.
+     */
+    private static int readFully(InputStream input, byte[] buffer) throws IOException {
+        int read = 0;
+        while (read < buffer.length) {
+            int count = input.read(buffer, read, buffer.length - read);
+            if (count < 0) {
+                break;
+            }
+            read += count;
+        }
+        return read;
+    }
+
+    /**
+     * @return Everything left in the stream, or null if there's more than the limit.
+     */
+    private static byte[] readFully(InputStream input, int limit) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(BUFFER_SIZE);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int count;
+        while ((count = input.read(buffer)) != -1) {
+            if (output.size() + count > limit) {
+                return null;
+            }
+            output.write(buffer, 0, count);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Leaves the stream underneath open when it's closed.
+     */
+    private static class UnclosedInputStream extends FilterInputStream {
+        UnclosedInputStream(InputStream input) {
+            super(input);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
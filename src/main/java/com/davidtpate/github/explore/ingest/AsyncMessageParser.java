@@ -0,0 +1,249 @@
+package com.davidtpate.github.explore.ingest;
+
+import com.davidtpate.github.explore.GithubExploreMessageParser;
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+import com.davidtpate.github.explore.util.Util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses messages in the background for callers that can't wait on them, like a socket handed digests by the mail
+ * server. Every message gets its own thread, a virtual one where the JVM has them, and the number of messages being
+ * parsed at once is capped: once the cap is reached {@link #submit} blocks until a message finishes, which pushes back
+ * on whoever is producing them, and {@link #trySubmit} gives up after a timeout so the caller can shed the load.
+ */
+public class AsyncMessageParser implements Closeable {
+    /**
+     * Only there from Java 21, looked up at runtime so the library still runs on older JVMs.
+     */
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+
+    private GithubExploreMessageParser parser = new GithubExploreMessageParser();
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int maxInFlight;
+    private boolean virtualThreads = true;
+    private ExecutorService executor;
+    private Semaphore inFlight;
+
+    /**
+     * Use the {@link Builder}, which starts the threads once everything is set.
+     */
+    private AsyncMessageParser() {
+    }
+
+    /**
+     * Parses the message between the position and the limit of the buffer, blocking until there's room for it.
+     */
+    public CompletableFuture<GithubExploreMessage> submit(ByteBuffer buffer) throws InterruptedException {
+        checkSource(buffer);
+        inFlight.acquire();
+        return start(new ParseTask(buffer, null));
+    }
+
+    /**
+     * Reads the message from the stream and parses it, blocking until there's room for it. The stream is read on the
+     * parsing thread and closed once it has been read.
+     */
+    public CompletableFuture<GithubExploreMessage> submit(InputStream stream) throws InterruptedException {
+        checkSource(stream);
+        inFlight.acquire();
+        return start(new ParseTask(null, stream));
+    }
+
+    /**
+     * @return null if there wasn't room for the message before the timeout.
+     */
+    public CompletableFuture<GithubExploreMessage> trySubmit(ByteBuffer buffer, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        checkSource(buffer);
+        return inFlight.tryAcquire(timeout, unit) ? start(new ParseTask(buffer, null)) : null;
+    }
+
+    /**
+     * @return null if there wasn't room for the message before the timeout, the stream is left open.
+     */
+    public CompletableFuture<GithubExploreMessage> trySubmit(InputStream stream, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        checkSource(stream);
+        return inFlight.tryAcquire(timeout, unit) ? start(new ParseTask(null, stream)) : null;
+    }
+
+    /**
+     * @return How many more messages can be submitted without blocking.
+     */
+    public int getAvailable() {
+        return inFlight.availablePermits();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight > 0 ? maxInFlight : threads * 4;
+    }
+
+    /**
+     * @return Whether each message gets a virtual thread, rather than waiting on a pool of threads.
+     */
+    public boolean isVirtual() {
+        return virtualThreads && NEW_VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    /**
+     * Stops taking messages and waits for the ones already submitted to finish.
+     */
+    public void close() throws IOException {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<GithubExploreMessage> start(ParseTask task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            throw e;
+        }
+        return task.future;
+    }
+
+    private static void checkSource(Object source) throws IllegalArgumentException {
+        if (source == null) {
+            throw new IllegalArgumentException("Source is Null");
+        }
+    }
+
+    private static byte[] readFully(InputStream stream) throws IOException {
+        try {
+            ByteArrayOutputStream data = new ByteArrayOutputStream(8192);
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                data.write(buffer, 0, read);
+            }
+            return data.toByteArray();
+        } finally {
+            Util.closeQuietly(stream);
+        }
+    }
+
+    private static Method findVirtualThreadExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private void startExecutor() {
+        inFlight = new Semaphore(getMaxInFlight());
+        if (isVirtual()) {
+            try {
+                executor = (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+                return;
+            } catch (Exception e) {
+                // Fall back to a pool, same as on a JVM without virtual threads.
+            }
+        }
+        executor = Executors.newFixedThreadPool(threads);
+        virtualThreads = false;
+    }
+
+    private class ParseTask implements Runnable {
+        final CompletableFuture<GithubExploreMessage> future = new CompletableFuture<GithubExploreMessage>();
+        private final ByteBuffer mBuffer;
+        private final InputStream mStream;
+
+        ParseTask(ByteBuffer buffer, InputStream stream) {
+            mBuffer = buffer;
+            mStream = stream;
+        }
+
+        public void run() {
+            GithubExploreMessage message = null;
+            Throwable error = null;
+            try {
+                message = parser.parse(mBuffer != null ? mBuffer : ByteBuffer.wrap(readFully(mStream)));
+            } catch (Throwable t) {
+                error = t;
+            } finally {
+                // Free the slot before completing, so whatever runs on completion can submit the next message.
+                inFlight.release();
+            }
+
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(message);
+            }
+        }
+    }
+
+    public static class Builder {
+        private AsyncMessageParser asyncParser = new AsyncMessageParser();
+
+        /**
+         * The parser to hand the messages to, configure it with its own builder for metrics or a prefilter.
+         */
+        public Builder parser(GithubExploreMessageParser parser) {
+            if (parser == null) {
+                throw new IllegalArgumentException("Parser is Null");
+            }
+
+            asyncParser.parser = parser;
+            return this;
+        }
+
+        /**
+         * How many threads to parse on when there are no virtual threads, or they've been turned off. Defaults to the
+         * number of processors.
+         */
+        public Builder threads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("Threads must be at least 1");
+            }
+
+            asyncParser.threads = threads;
+            return this;
+        }
+
+        /**
+         * The most messages that can be submitted and not yet parsed, defaults to four per thread.
+         */
+        public Builder maxInFlight(int maxInFlight) {
+            if (maxInFlight < 1) {
+                throw new IllegalArgumentException("Max In Flight must be at least 1");
+            }
+
+            asyncParser.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * Defaults to true, only has an effect on a JVM that has virtual threads.
+         */
+        public Builder virtualThreads(boolean virtualThreads) {
+            asyncParser.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        public AsyncMessageParser build() {
+            AsyncMessageParser builtParser = asyncParser;
+            asyncParser = new AsyncMessageParser();
+            builtParser.startExecutor();
+            return builtParser;
+        }
+    }
+}
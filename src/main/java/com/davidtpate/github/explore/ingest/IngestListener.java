@@ -0,0 +1,13 @@
+package com.davidtpate.github.explore.ingest;
+
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+
+/**
+ * Receives the results of an ingestion run as they are produced. Callbacks come from the worker threads, so
+ * implementations need to be thread-safe.
+ */
+public interface IngestListener {
+    void onMessage(RawMessage rawMessage, GithubExploreMessage message);
+
+    void onError(RawMessage rawMessage, Exception e);
+}
@@ -0,0 +1,112 @@
+package com.davidtpate.github.explore.ingest;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput counters for an ingestion run. The counters are updated live, so they can be polled from another thread
+ * while the run is in progress.
+ */
+public class IngestStats {
+    private final AtomicLong messagesRead = new AtomicLong();
+    private final AtomicLong messagesParsed = new AtomicLong();
+    private final AtomicLong messagesRejected = new AtomicLong();
+    private final AtomicLong messagesDuplicate = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    public long getMessagesRead() {
+        return messagesRead.get();
+    }
+
+    public long getMessagesParsed() {
+        return messagesParsed.get();
+    }
+
+    /**
+     * @return Messages the prefilter turned away without parsing them.
+     */
+    public long getMessagesRejected() {
+        return messagesRejected.get();
+    }
+
+    /**
+     * @return Copies of messages that had already been seen, they weren't parsed.
+     */
+    public long getMessagesDuplicate() {
+        return messagesDuplicate.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    /**
+     * @return How long the run took, or how long it has been going if it hasn't finished yet.
+     */
+    public long getElapsedMillis() {
+        if (startNanos == 0) {
+            return 0;
+        }
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return (end - startNanos) / 1000000L;
+    }
+
+    public double getMessagesPerSecond() {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0 ? 0 : getMessagesParsed() * 1000.0 / elapsed;
+    }
+
+    public double getBytesPerSecond() {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0 ? 0 : getBytesRead() * 1000.0 / elapsed;
+    }
+
+    void start() {
+        startNanos = System.nanoTime();
+    }
+
+    void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    void messageRead(RawMessage rawMessage) {
+        messagesRead.incrementAndGet();
+        bytesRead.addAndGet(rawMessage.getLength());
+    }
+
+    void messageParsed() {
+        messagesParsed.incrementAndGet();
+    }
+
+    void messageRejected() {
+        messagesRejected.incrementAndGet();
+    }
+
+    void messageDuplicate() {
+        messagesDuplicate.incrementAndGet();
+    }
+
+    void error() {
+        errors.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return "IngestStats{" +
+                "messagesRead=" + messagesRead +
+                ", messagesParsed=" + messagesParsed +
+                ", messagesRejected=" + messagesRejected +
+                ", messagesDuplicate=" + messagesDuplicate +
+                ", errors=" + errors +
+                ", bytesRead=" + bytesRead +
+                ", elapsedMillis=" + getElapsedMillis() +
+                ", messagesPerSecond=" + getMessagesPerSecond() +
+                '}';
+    }
+}
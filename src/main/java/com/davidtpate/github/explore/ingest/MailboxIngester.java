@@ -0,0 +1,228 @@
+package com.davidtpate.github.explore.ingest;
+
+import com.davidtpate.github.explore.GithubExploreMessageParser;
+import com.davidtpate.github.explore.MessagePrefilter;
+import com.davidtpate.github.explore.dedup.DuplicateFilter;
+import com.davidtpate.github.explore.dedup.MessageFingerprint;
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+import com.davidtpate.github.explore.util.Strings;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses every message in a mailbox across a pool of worker threads. The mailbox is split on the calling thread and
+ * each message is handed off to a worker, results are streamed to the {@link IngestListener} as soon as they're ready.
+ * The number of messages waiting on a worker is capped so that a fast source can't run us out of memory.
+ */
+public class MailboxIngester {
+    private GithubExploreMessageParser parser = new GithubExploreMessageParser();
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int maxInFlight;
+    private IngestListener listener;
+    private MessagePrefilter prefilter;
+    private DuplicateFilter duplicateFilter;
+
+    /**
+     * Opens the right source for the path, a directory is read as a Maildir, a .gz, .tgz, .zip or .tar file as an
+     * archive and anything else as an mbox file.
+     */
+    public static MessageSource openSource(String path) throws FileNotFoundException, IllegalArgumentException {
+        // If we don't have a path to anything, no point in continuing.
+        if (Strings.isEmpty(path)) {
+            throw new IllegalArgumentException("Path is Null or Blank");
+        }
+
+        File file = new File(path);
+        if (!file.exists()) {
+            throw new FileNotFoundException("File Null or Not Found");
+        }
+
+        if (file.isDirectory()) {
+            return new MaildirMessageSource(path);
+        }
+        return ArchiveMessageSource.isArchive(path) ? new ArchiveMessageSource(path) : new MboxMessageSource(path);
+    }
+
+    public IngestStats ingest(String path) throws IOException, InterruptedException {
+        MessageSource source = openSource(path);
+        try {
+            return ingest(source);
+        } finally {
+            source.close();
+        }
+    }
+
+    public IngestStats ingest(MessageSource source) throws IOException, InterruptedException {
+        return ingest(source, new IngestStats());
+    }
+
+    /**
+     * Reads the source until it is exhausted and waits for every message to be parsed.
+     *
+     * @param stats Counters to update, pass one in to watch the progress of a long run from another thread.
+     */
+    public IngestStats ingest(MessageSource source, IngestStats stats) throws IOException, InterruptedException {
+        int maxInFlight = getMaxInFlight();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        stats.start();
+        try {
+            RawMessage rawMessage;
+            while ((rawMessage = source.next()) != null) {
+                stats.messageRead(rawMessage);
+                // Block the reader until a worker frees up a slot.
+                inFlight.acquire();
+                executor.execute(new ParseTask(rawMessage, stats, inFlight));
+            }
+
+            // Wait for the stragglers by taking back every slot.
+            inFlight.acquire(maxInFlight);
+            inFlight.release(maxInFlight);
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            stats.finish();
+        }
+
+        return stats;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight > 0 ? maxInFlight : threads * 4;
+    }
+
+    private class ParseTask implements Runnable {
+        private final RawMessage mRawMessage;
+        private final IngestStats mStats;
+        private final Semaphore mInFlight;
+
+        ParseTask(RawMessage rawMessage, IngestStats stats, Semaphore inFlight) {
+            mRawMessage = rawMessage;
+            mStats = stats;
+            mInFlight = inFlight;
+        }
+
+        public void run() {
+            long fingerprint = 0;
+            boolean claimed = false;
+            try {
+                if (mRawMessage.getError() != null) {
+                    throw mRawMessage.getError();
+                }
+                ByteBuffer data = ByteBuffer.wrap(mRawMessage.getData());
+                if (prefilter != null && !prefilter.accept(data)) {
+                    mStats.messageRejected();
+                    return;
+                }
+                if (duplicateFilter != null) {
+                    fingerprint = MessageFingerprint.of(data);
+                    if (!duplicateFilter.claim(fingerprint)) {
+                        mStats.messageDuplicate();
+                        return;
+                    }
+                    claimed = true;
+                }
+
+                GithubExploreMessage message = parser.parse(data);
+                mStats.messageParsed();
+                if (listener != null) {
+                    listener.onMessage(mRawMessage, message);
+                }
+                if (claimed) {
+                    claimed = false;
+                    duplicateFilter.record(fingerprint);
+                }
+            } catch (Exception e) {
+                mStats.error();
+                if (listener != null) {
+                    listener.onError(mRawMessage, e);
+                }
+            } finally {
+                if (claimed) {
+                    // Never got anywhere, leave it for the next copy or the next run.
+                    duplicateFilter.release(fingerprint);
+                }
+                mInFlight.release();
+            }
+        }
+    }
+
+    public static class Builder {
+        private MailboxIngester ingester = new MailboxIngester();
+
+        /**
+         * The parser to hand the messages to, configure it with its own builder for HTML extraction, a repository pool,
+         * metrics or parallel parts. Defaults to a parser with nothing turned on.
+         */
+        public Builder parser(GithubExploreMessageParser parser) {
+            if (parser == null) {
+                throw new IllegalArgumentException("Parser is Null");
+            }
+
+            ingester.parser = parser;
+            return this;
+        }
+
+        public Builder threads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("Threads must be at least 1");
+            }
+
+            ingester.threads = threads;
+            return this;
+        }
+
+        /**
+         * The most messages that can be read ahead of the workers, defaults to four per thread.
+         */
+        public Builder maxInFlight(int maxInFlight) {
+            if (maxInFlight < 1) {
+                throw new IllegalArgumentException("Max In Flight must be at least 1");
+            }
+
+            ingester.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        public Builder listener(IngestListener listener) {
+            ingester.listener = listener;
+            return this;
+        }
+
+        /**
+         * Skips the messages the prefilter rejects, they're counted in the stats but never reach the listener.
+         */
+        public Builder prefilter(MessagePrefilter prefilter) {
+            ingester.prefilter = prefilter;
+            return this;
+        }
+
+        /**
+         * Skips messages the filter has seen before, after the prefilter so only digests are remembered. They're
+         * counted in the stats but never reach the listener. A message is only remembered once the listener has taken
+         * it, so one that fails to parse or that the listener throws on is tried again next time. The filter isn't
+         * closed at the end of a run.
+         */
+        public Builder duplicateFilter(DuplicateFilter duplicateFilter) {
+            ingester.duplicateFilter = duplicateFilter;
+            return this;
+        }
+
+        public MailboxIngester build() {
+            MailboxIngester builtIngester = ingester;
+            ingester = new MailboxIngester();
+            return builtIngester;
+        }
+    }
+}
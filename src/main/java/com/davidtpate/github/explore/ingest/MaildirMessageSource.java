@@ -0,0 +1,92 @@
+package com.davidtpate.github.explore.ingest;
+
+import com.davidtpate.github.explore.util.Util;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads every message in a Maildir, one file per message. The "new" and "cur" folders are read, "tmp" is skipped since
+ * deliveries there aren't finished yet. A plain folder of message files (like a folder of archived ".msg" files) is
+ * read as-is.
+ */
+public class MaildirMessageSource implements MessageSource {
+    private final List<File> mFiles = new ArrayList<File>();
+    private int mIndex;
+
+    public MaildirMessageSource(String path) throws FileNotFoundException {
+        File directory = new File(path);
+        if (!directory.isDirectory()) {
+            throw new FileNotFoundException("Maildir Not Found: " + path);
+        }
+
+        File newDirectory = new File(directory, "new");
+        File curDirectory = new File(directory, "cur");
+        if (newDirectory.isDirectory() || curDirectory.isDirectory()) {
+            addFiles(curDirectory);
+            addFiles(newDirectory);
+        } else {
+            addFiles(directory);
+        }
+    }
+
+    public RawMessage next() throws IOException {
+        if (mIndex >= mFiles.size()) {
+            return null;
+        }
+
+        File file = mFiles.get(mIndex++);
+        return new RawMessage(file.getPath(), readFully(file));
+    }
+
+    public void close() throws IOException {
+        mIndex = mFiles.size();
+    }
+
+    private void addFiles(File directory) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        // Sort so that runs over the same Maildir are repeatable.
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isFile() && !file.getName().startsWith(".")) {
+                mFiles.add(file);
+            }
+        }
+    }
+
+    private static byte[] readFully(File file) throws IOException {
+        long length = file.length();
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Message Too Large: " + file.getPath());
+        }
+
+        byte[] data = new byte[(int) length];
+        InputStream input = new FileInputStream(file);
+        try {
+            int read = 0;
+            while (read < data.length) {
+                int count = input.read(data, read, data.length - read);
+                if (count < 0) {
+                    break;
+                }
+                read += count;
+            }
+
+            // The file could have shrunk while we were reading it.
+            if (read < data.length) {
+                byte[] truncated = new byte[read];
+                System.arraycopy(data, 0, truncated, 0, read);
+                return truncated;
+            }
+            return data;
+        } finally {
+            Util.closeQuietly(input);
+        }
+    }
+}
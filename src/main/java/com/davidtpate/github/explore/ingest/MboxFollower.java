@@ -0,0 +1,242 @@
+package com.davidtpate.github.explore.ingest;
+
+import com.davidtpate.github.explore.GithubExploreMessageParser;
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+import com.davidtpate.github.explore.util.Strings;
+import com.davidtpate.github.explore.util.Util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+/**
+ * Follows an mbox spool as mail is delivered to it, like tail -f. The follower remembers the offset of the first
+ * message it hasn't handed out yet and every poll only reads what was added after it, so the cost follows the new mail
+ * rather than the size of the spool. A message is complete once the next one starts, or once the spool has stopped
+ * growing for a poll, so mail shows up within two polls of being delivered. A spool that shrinks is taken to have been
+ * rotated and is read again from the start. Everything happens on the thread calling {@link #follow()} or
+ * {@link #poll()}, the listener is called from there too.
+ * <p/>
+ * The spool is polled rather than watched with a {@link java.nio.file.WatchService}. Watch services only report on
+ * directories, they fall back to polling on macOS and miss changes made from other hosts on network file systems. The
+ * sizes have to be compared to tell a rotation from an append either way, so a watch would only save the stat call.
+ * WatchService is available at the source level the build targets, it just doesn't fit a single growing file.
+ */
+public class MboxFollower {
+    public static final long DEFAULT_POLL_MILLIS = 250;
+
+    private GithubExploreMessageParser parser = new GithubExploreMessageParser();
+    private String path;
+    private IngestListener listener;
+    private long pollMillis = DEFAULT_POLL_MILLIS;
+    /**
+     * Offset of the postmark of the first message that hasn't been handed out.
+     */
+    private long offset;
+    private long lastSize = -1;
+    private volatile boolean stopped;
+
+    /**
+     * Polls the spool until {@link #stop()} is called.
+     */
+    public void follow() throws IOException, InterruptedException {
+        while (!stopped) {
+            poll();
+            if (!stopped) {
+                Thread.sleep(pollMillis);
+            }
+        }
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Hands out whatever complete messages were delivered since the last poll.
+     *
+     * @return How many messages were handed out.
+     */
+    public synchronized int poll() throws IOException {
+        File file = new File(path);
+        long size = file.length();
+        boolean quiet = size == lastSize;
+        lastSize = size;
+        if (size < offset) {
+            offset = 0;
+        }
+        if (size == offset) {
+            return 0;
+        }
+
+        int handedOut = 0;
+        RawMessage pending = null;
+        FileInputStream input = new FileInputStream(file);
+        try {
+            // Only up to the size taken above, anything delivered since is left for the next poll.
+            FileChannel channel = input.getChannel().position(offset);
+            MboxMessageSource source = new MboxMessageSource(path,
+                    new RegionInputStream(Channels.newInputStream(channel), size - offset), offset);
+            RawMessage message;
+            while ((message = source.next()) != null) {
+                // A new postmark means the message before it has been delivered in full.
+                if (pending != null) {
+                    handOut(pending);
+                    handedOut++;
+                }
+                pending = message;
+                offset = source.getMessageOffset();
+            }
+        } finally {
+            Util.closeQuietly(input);
+        }
+
+        // The last message could still be being written, unless the spool has stopped growing.
+        if (pending == null) {
+            offset = size;
+        } else if (quiet) {
+            handOut(pending);
+            handedOut++;
+            offset = size;
+        }
+        return handedOut;
+    }
+
+    /**
+     * @return The offset to pass to {@link Builder#offset(long)} to carry on from here after a restart.
+     */
+    public synchronized long getOffset() {
+        return offset;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    private void handOut(RawMessage rawMessage) {
+        try {
+            if (rawMessage.getError() != null) {
+                throw rawMessage.getError();
+            }
+            GithubExploreMessage message = parser.parse(ByteBuffer.wrap(rawMessage.getData()));
+            if (listener != null) {
+                listener.onMessage(rawMessage, message);
+            }
+        } catch (Exception e) {
+            if (listener != null) {
+                listener.onError(rawMessage, e);
+            }
+        }
+    }
+
+    /**
+     * Stops after a number of bytes, the rest of the file is treated as not there yet.
+     */
+    private static class RegionInputStream extends FilterInputStream {
+        private long mRemaining;
+
+        RegionInputStream(InputStream input, long length) {
+            super(input);
+            mRemaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (mRemaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                mRemaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (mRemaining <= 0) {
+                return -1;
+            }
+            int count = in.read(buffer, offset, (int) Math.min(length, mRemaining));
+            if (count > 0) {
+                mRemaining -= count;
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            long skipped = in.skip(Math.min(count, mRemaining));
+            mRemaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), mRemaining);
+        }
+    }
+
+    public static class Builder {
+        private MboxFollower follower = new MboxFollower();
+
+        public Builder path(String path) {
+            if (Strings.isEmpty(path)) {
+                throw new IllegalArgumentException("Path is Null or Blank");
+            }
+
+            follower.path = path;
+            return this;
+        }
+
+        /**
+         * The parser to hand the messages to, defaults to a parser with nothing turned on.
+         */
+        public Builder parser(GithubExploreMessageParser parser) {
+            if (parser == null) {
+                throw new IllegalArgumentException("Parser is Null");
+            }
+
+            follower.parser = parser;
+            return this;
+        }
+
+        public Builder listener(IngestListener listener) {
+            follower.listener = listener;
+            return this;
+        }
+
+        public Builder pollMillis(long pollMillis) {
+            if (pollMillis < 1) {
+                throw new IllegalArgumentException("Poll Millis must be at least 1");
+            }
+
+            follower.pollMillis = pollMillis;
+            return this;
+        }
+
+        /**
+         * Where to start reading, defaults to the start of the spool. This has to be the start of a postmark line, like
+         * a value from {@link MboxFollower#getOffset()} or the length of the spool to skip the mail already in it.
+         */
+        public Builder offset(long offset) {
+            if (offset < 0) {
+                throw new IllegalArgumentException("Offset must be at least 0");
+            }
+
+            follower.offset = offset;
+            return this;
+        }
+
+        public MboxFollower build() {
+            if (follower.path == null) {
+                throw new IllegalArgumentException("Path is Null or Blank");
+            }
+
+            MboxFollower builtFollower = follower;
+            follower = new MboxFollower();
+            return builtFollower;
+        }
+    }
+}
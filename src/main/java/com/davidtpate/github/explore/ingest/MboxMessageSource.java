@@ -0,0 +1,213 @@
+package com.davidtpate.github.explore.ingest;
+
+import com.davidtpate.github.explore.util.Util;
+
+import java.io.*;
+
+/**
+ * Splits an mbox file into messages. A message starts at a "From " postmark line at the beginning of the file or
+ * directly after a blank line, the postmark itself is not part of the message. Lines quoted as ">From " (mboxrd) have
+ * one level of quoting removed. A message bigger than the limit is dropped as it's read and handed out as an error, see
+ * {@link RawMessage#getError()}.
+ */
+public class MboxMessageSource implements MessageSource {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] POSTMARK = {'F', 'r', 'o', 'm', ' '};
+    private final String mPath;
+    private final InputStream mInput;
+    private final byte[] mBuffer = new byte[BUFFER_SIZE];
+    private int mBufferPosition;
+    private int mBufferLimit;
+    /**
+     * The line currently being looked at, including its line terminator.
+     */
+    private byte[] mLine = new byte[1024];
+    /**
+     * Offset in the file of the next unread byte.
+     */
+    private long mOffset;
+    /**
+     * Offset in the file of the postmark for the message currently being accumulated.
+     */
+    private long mMessageOffset;
+    /**
+     * Offset in the file of the postmark for the message last returned.
+     */
+    private long mReturnedOffset = -1;
+    private boolean mPreviousBlank = true;
+    private ByteArrayOutputStream mCurrent;
+    private final int mMaxMessageBytes;
+    /**
+     * Set once the message being accumulated has gone over the limit, the rest of it is skipped.
+     */
+    private boolean mOversized;
+
+    public MboxMessageSource(String path) throws FileNotFoundException {
+        this(path, new FileInputStream(path), 0);
+    }
+
+    /**
+     * @param path   Used to identify the messages, the stream doesn't need to come from a file.
+     * @param input  The mbox contents, positioned at the given offset.
+     * @param offset The offset of the first byte of the stream in the mbox, this must be the start of a postmark line.
+     */
+    public MboxMessageSource(String path, InputStream input, long offset) {
+        this(path, input, offset, MAX_MESSAGE_BYTES);
+    }
+
+    /**
+     * @param maxMessageBytes The biggest message to hold in memory.
+     */
+    public MboxMessageSource(String path, InputStream input, long offset, int maxMessageBytes) {
+        if (maxMessageBytes < 1) {
+            throw new IllegalArgumentException("Max Message Bytes must be at least 1");
+        }
+
+        mPath = path;
+        mInput = input;
+        mOffset = offset;
+        mMessageOffset = offset;
+        mMaxMessageBytes = maxMessageBytes;
+    }
+
+    public RawMessage next() throws IOException {
+        int length;
+        while ((length = readLine()) != -1) {
+            long lineOffset = mOffset - length;
+            boolean postmark = mPreviousBlank && startsWith(POSTMARK, 0, length);
+            mPreviousBlank = isBlank(length);
+
+            if (postmark) {
+                // The postmark closes off whatever we had been accumulating and starts the next message.
+                RawMessage message = takeMessage();
+                mCurrent = new ByteArrayOutputStream(BUFFER_SIZE);
+                mMessageOffset = lineOffset;
+                if (message != null) {
+                    return message;
+                }
+            } else {
+                // Be lenient with files that don't start with a postmark, the leading content is its own message.
+                if (mCurrent == null) {
+                    mCurrent = new ByteArrayOutputStream(BUFFER_SIZE);
+                    mMessageOffset = lineOffset;
+                }
+
+                // Undo one level of ">From " quoting.
+                int start = 0;
+                if (mLine[0] == '>') {
+                    int quotes = 0;
+                    while (quotes < length && mLine[quotes] == '>') {
+                        quotes++;
+                    }
+                    if (startsWith(POSTMARK, quotes, length)) {
+                        start = 1;
+                    }
+                }
+                if (mOversized || mCurrent.size() + length - start > mMaxMessageBytes) {
+                    mOversized = true;
+                    mCurrent.reset();
+                } else {
+                    mCurrent.write(mLine, start, length - start);
+                }
+            }
+        }
+
+        return takeMessage();
+    }
+
+    /**
+     * @return The offset in the mbox of the first byte that hasn't been consumed yet.
+     */
+    public long getOffset() {
+        return mOffset;
+    }
+
+    /**
+     * @return The offset in the mbox of the postmark of the message last returned by {@link #next()}, or -1.
+     */
+    public long getMessageOffset() {
+        return mReturnedOffset;
+    }
+
+    public void close() throws IOException {
+        Util.closeQuietly(mInput);
+    }
+
+    private RawMessage takeMessage() {
+        if (mCurrent == null) {
+            return null;
+        }
+
+        byte[] data = mCurrent.toByteArray();
+        mCurrent = null;
+        if (mOversized) {
+            mOversized = false;
+            mReturnedOffset = mMessageOffset;
+            return new RawMessage(mPath + "@" + mMessageOffset,
+                    new IOException("Message Larger Than " + mMaxMessageBytes + " Bytes"));
+        }
+
+        // Skip over anything that is only whitespace, like the padding between two postmarks.
+        for (byte b : data) {
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                mReturnedOffset = mMessageOffset;
+                return new RawMessage(mPath + "@" + mMessageOffset, data);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the next line into mLine, including the line terminator.
+     *
+     * @return The number of bytes in the line, or -1 at the end of the stream.
+     */
+    private int readLine() throws IOException {
+        int length = 0;
+        while (true) {
+            if (mBufferPosition == mBufferLimit) {
+                mBufferLimit = mInput.read(mBuffer, 0, mBuffer.length);
+                mBufferPosition = 0;
+                if (mBufferLimit <= 0) {
+                    mBufferLimit = 0;
+                    return length == 0 ? -1 : length;
+                }
+            }
+
+            if (length == mLine.length && length >= mMaxMessageBytes) {
+                // A line this long can only be part of a message that's too big, hand it over in pieces.
+                return length;
+            }
+
+            byte b = mBuffer[mBufferPosition++];
+            mOffset++;
+            if (length == mLine.length) {
+                byte[] grown = new byte[Math.min(mLine.length * 2, mMaxMessageBytes)];
+                System.arraycopy(mLine, 0, grown, 0, length);
+                mLine = grown;
+            }
+            mLine[length++] = b;
+
+            if (b == '\n') {
+                return length;
+            }
+        }
+    }
+
+    private boolean startsWith(byte[] prefix, int offset, int length) {
+        if (length - offset < prefix.length) {
+            return false;
+        }
+
+        for (int i = 0; i < prefix.length; i++) {
+            if (mLine[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isBlank(int length) {
+        return (length == 1 && mLine[0] == '\n') || (length == 2 && mLine[0] == '\r' && mLine[1] == '\n');
+    }
+}
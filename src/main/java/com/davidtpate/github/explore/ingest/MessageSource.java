@@ -0,0 +1,20 @@
+package com.davidtpate.github.explore.ingest;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Splits a mailbox into individual messages. Sources are read from a single thread, so implementations don't need to
+ * be thread-safe.
+ */
+public interface MessageSource extends Closeable {
+    /**
+     * The most a source holds in memory for one message, anything bigger is handed out as an error instead.
+     */
+    int MAX_MESSAGE_BYTES = 32 * 1024 * 1024;
+
+    /**
+     * @return The next message in the mailbox, or null once the mailbox is exhausted.
+     */
+    RawMessage next() throws IOException;
+}
@@ -0,0 +1,57 @@
+package com.davidtpate.github.explore.ingest;
+
+import java.io.IOException;
+
+/**
+ * A single undecoded message pulled out of a mailbox, along with where it came from so errors can be traced back.
+ */
+public class RawMessage {
+    private final String id;
+    private final byte[] data;
+    private final IOException error;
+
+    public RawMessage(String id, byte[] data) {
+        this.id = id;
+        this.data = data;
+        this.error = null;
+    }
+
+    /**
+     * Stands in for a message the source couldn't hand out, so the error can be reported against it.
+     */
+    RawMessage(String id, IOException error) {
+        this.id = id;
+        this.data = new byte[0];
+        this.error = error;
+    }
+
+    /**
+     * Identifies the message within its mailbox, for an mbox this is "path@offset" and for a Maildir it is the file path.
+     */
+    public String getId() {
+        return id;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * @return Why the message couldn't be read, its data is empty in that case. Null for every message that could.
+     */
+    public IOException getError() {
+        return error;
+    }
+
+    public int getLength() {
+        return data.length;
+    }
+
+    @Override
+    public String toString() {
+        return "RawMessage{" +
+                "id='" + id + '\'' +
+                ", length=" + data.length +
+                '}';
+    }
+}
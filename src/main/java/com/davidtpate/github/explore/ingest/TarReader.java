@@ -0,0 +1,313 @@
+package com.davidtpate.github.explore.ingest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Reads the files out of a tar stream one after the other, like {@link java.util.zip.ZipInputStream} does for a zip.
+ * Only regular files are returned, directories, links and the like are skipped. Long names are understood in both the
+ * GNU and the pax form, everything else in the extended headers is ignored.
+ */
+class TarReader extends InputStream {
+    static final int BLOCK_SIZE = 512;
+
+    private static final int NAME_OFFSET = 0;
+    private static final int NAME_LENGTH = 100;
+    private static final int SIZE_OFFSET = 124;
+    private static final int SIZE_LENGTH = 12;
+    private static final int CHECKSUM_OFFSET = 148;
+    private static final int CHECKSUM_LENGTH = 8;
+    private static final int TYPE_OFFSET = 156;
+    private static final int MAGIC_OFFSET = 257;
+    private static final int PREFIX_OFFSET = 345;
+    private static final int PREFIX_LENGTH = 155;
+    private static final byte[] MAGIC = {'u', 's', 't', 'a', 'r'};
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    /**
+     * Anything bigger isn't a message, it's most likely a header that's been misread.
+     */
+    private static final int MAX_NAME_LENGTH = 64 * 1024;
+
+    private final InputStream mInput;
+    private final byte[] mHeader = new byte[BLOCK_SIZE];
+    private final byte[] mSkipBuffer = new byte[BLOCK_SIZE * 8];
+    /**
+     * Bytes of the current entry that haven't been read yet.
+     */
+    private long mRemaining;
+    /**
+     * Bytes of padding after the current entry, up to the next block.
+     */
+    private int mPadding;
+    private boolean mFinished;
+
+    TarReader(InputStream input) {
+        mInput = input;
+    }
+
+    /**
+     * @param header At least the first block of a stream.
+     * @return true if it starts with a tar header, either ustar or one whose checksum adds up.
+     */
+    static boolean isTar(byte[] header, int length) {
+        if (length < BLOCK_SIZE) {
+            return false;
+        }
+        if (startsWith(header, MAGIC_OFFSET, MAGIC)) {
+            return true;
+        }
+        long checksum = parseOctal(header, CHECKSUM_OFFSET, CHECKSUM_LENGTH);
+        return checksum > 0 && checksum == checksum(header);
+    }
+
+    /**
+     * Moves on to the next file, whatever is left of the current one is skipped.
+     *
+     * @return The path of the file within the archive, or null once the archive is exhausted.
+     */
+    String nextEntry() throws IOException {
+        String longName = null;
+        while (!mFinished) {
+            skipFully(mRemaining + mPadding);
+            mRemaining = 0;
+            mPadding = 0;
+
+            if (!readBlock(mHeader)) {
+                mFinished = true;
+                break;
+            }
+            if (isZero(mHeader)) {
+                // Two empty blocks end the archive, a single one is enough for us.
+                mFinished = true;
+                break;
+            }
+            if (checksum(mHeader) != parseOctal(mHeader, CHECKSUM_OFFSET, CHECKSUM_LENGTH)) {
+                throw new IOException("Bad Tar Header Checksum");
+            }
+
+            long size = parseSize(mHeader);
+            mRemaining = size;
+            mPadding = (int) ((BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE);
+
+            byte type = mHeader[TYPE_OFFSET];
+            if (type == 'L') {
+                // GNU, the name of the next entry is the content of this one.
+                longName = trimName(readEntry());
+            } else if (type == 'x') {
+                String path = parsePaxPath(readEntry());
+                if (path != null) {
+                    longName = path;
+                }
+            } else if (type == '0' || type == 0 || type == '7') {
+                return longName != null ? longName : parseName(mHeader);
+            } else {
+                longName = null;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (mRemaining <= 0) {
+            return -1;
+        }
+        int b = mInput.read();
+        if (b < 0) {
+            throw new EOFException("Truncated Tar Entry");
+        }
+        mRemaining--;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (mRemaining <= 0) {
+            return -1;
+        }
+        int count = mInput.read(buffer, offset, (int) Math.min(length, mRemaining));
+        if (count < 0) {
+            throw new EOFException("Truncated Tar Entry");
+        }
+        mRemaining -= count;
+        return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(mInput.available(), mRemaining);
+    }
+
+    @Override
+    public void close() throws IOException {
+        mInput.close();
+    }
+
+    private byte[] readEntry() throws IOException {
+        if (mRemaining > MAX_NAME_LENGTH) {
+            throw new IOException("Tar Extended Header Too Large");
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream((int) mRemaining);
+        int count;
+        while ((count = read(mSkipBuffer, 0, mSkipBuffer.length)) != -1) {
+            output.write(mSkipBuffer, 0, count);
+        }
+        return output.toByteArray();
+    }
+
+    private boolean readBlock(byte[] block) throws IOException {
+        int read = 0;
+        while (read < block.length) {
+            int count = mInput.read(block, read, block.length - read);
+            if (count < 0) {
+                if (read == 0) {
+                    return false;
+                }
+                throw new EOFException("Truncated Tar Header");
+            }
+            read += count;
+        }
+        return true;
+    }
+
+    private void skipFully(long length) throws IOException {
+        // Read rather than skip, skip isn't reliable on the decompressing streams.
+        while (length > 0) {
+            int count = mInput.read(mSkipBuffer, 0, (int) Math.min(mSkipBuffer.length, length));
+            if (count < 0) {
+                throw new EOFException("Truncated Tar Entry");
+            }
+            length -= count;
+        }
+    }
+
+    private static String parseName(byte[] header) {
+        String name = parseString(header, NAME_OFFSET, NAME_LENGTH);
+        // Only POSIX headers have a prefix, GNU ones ("ustar  ") keep other things there.
+        if (startsWith(header, MAGIC_OFFSET, MAGIC) && header[MAGIC_OFFSET + MAGIC.length] == 0) {
+            String prefix = parseString(header, PREFIX_OFFSET, PREFIX_LENGTH);
+            if (prefix.length() > 0) {
+                return prefix + "/" + name;
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Pax records look like "30 path=some/long/file/name\n", the length counts the whole record.
+     */
+    private static String parsePaxPath(byte[] data) throws IOException {
+        String path = null;
+        int position = 0;
+        while (position < data.length) {
+            int space = position;
+            while (space < data.length && data[space] != ' ') {
+                space++;
+            }
+            int length;
+            try {
+                length = Integer.parseInt(new String(data, position, space - position, UTF_8));
+            } catch (NumberFormatException e) {
+                throw new IOException("Bad Pax Header");
+            }
+            // At least the digits, the space and the newline.
+            if (length < space - position + 2 || position + length > data.length) {
+                throw new IOException("Bad Pax Header");
+            }
+
+            String record = new String(data, space + 1, position + length - space - 2, UTF_8);
+            if (record.startsWith("path=")) {
+                path = record.substring("path=".length());
+            }
+            position += length;
+        }
+        return path;
+    }
+
+    private static String trimName(byte[] data) {
+        return parseString(data, 0, data.length);
+    }
+
+    private static String parseString(byte[] data, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && data[end] != 0) {
+            end++;
+        }
+        return new String(data, offset, end - offset, UTF_8);
+    }
+
+    /**
+     * Sizes over 8GB don't fit in the octal field, GNU tar stores those as big endian binary with the top bit set.
+     */
+    private static long parseSize(byte[] header) throws IOException {
+        if ((header[SIZE_OFFSET] & 0x80) != 0) {
+            long size = 0;
+            for (int i = SIZE_OFFSET + 1; i < SIZE_OFFSET + SIZE_LENGTH; i++) {
+                size = (size << 8) | (header[i] & 0xff);
+            }
+            return size;
+        }
+        long size = parseOctal(header, SIZE_OFFSET, SIZE_LENGTH);
+        if (size < 0) {
+            throw new IOException("Bad Tar Entry Size");
+        }
+        return size;
+    }
+
+    /**
+     * @return The value, or -1 if the field isn't octal.
+     */
+    private static long parseOctal(byte[] header, int offset, int length) {
+        long value = 0;
+        int i = offset;
+        int end = offset + length;
+        while (i < end && header[i] == ' ') {
+            i++;
+        }
+        boolean digits = false;
+        for (; i < end; i++) {
+            byte b = header[i];
+            if (b == 0 || b == ' ') {
+                break;
+            }
+            if (b < '0' || b > '7') {
+                return -1;
+            }
+            value = (value << 3) + (b - '0');
+            digits = true;
+        }
+        return digits ? value : -1;
+    }
+
+    /**
+     * The sum of the header's bytes with the checksum field counted as spaces.
+     */
+    private static long checksum(byte[] header) {
+        long sum = 0;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            sum += i >= CHECKSUM_OFFSET && i < CHECKSUM_OFFSET + CHECKSUM_LENGTH ? ' ' : header[i] & 0xff;
+        }
+        return sum;
+    }
+
+    private static boolean isZero(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWith(byte[] data, int offset, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
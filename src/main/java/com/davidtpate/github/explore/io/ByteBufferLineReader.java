@@ -0,0 +1,100 @@
+package com.davidtpate.github.explore.io;
+
+import com.davidtpate.github.explore.util.BoyerMooreHorspool;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Reads lines straight out of a buffer, typically a memory mapped file. Each line is a {@link ByteSequence} over the
+ * buffer so scanning a line never copies or decodes it.
+ */
+public class ByteBufferLineReader implements LineReader {
+    private final ByteBuffer mBuffer;
+    private Charset mCharset;
+    private int mPosition;
+    private final int mLimit;
+    private String mSkipPrefix;
+    private BoyerMooreHorspool mSkipSearch;
+
+    /**
+     * @param buffer  Read from its position up to its limit, the buffer itself isn't modified.
+     * @param charset Used to decode the parts of a line that get turned into Strings.
+     */
+    public ByteBufferLineReader(ByteBuffer buffer, Charset charset) {
+        mBuffer = buffer.duplicate();
+        mCharset = charset;
+        mPosition = buffer.position();
+        mLimit = buffer.limit();
+    }
+
+    public CharSequence readLine() {
+        if (mPosition >= mLimit) {
+            return null;
+        }
+
+        int start = mPosition;
+        int end = start;
+        while (end < mLimit && mBuffer.get(end) != '\n') {
+            end++;
+        }
+
+        // Step over the terminator and drop the carriage return of a CRLF.
+        mPosition = end < mLimit ? end + 1 : end;
+        if (end > start && mBuffer.get(end - 1) == '\r') {
+            end--;
+        }
+
+        return new ByteSequence(mBuffer, start, end, mCharset);
+    }
+
+    public CharSequence skipTo(String prefix) {
+        // We're always at the start of a line, so check it before searching for a line break followed by the prefix.
+        if (startsWith(mPosition, prefix)) {
+            return readLine();
+        }
+
+        // Boundaries are the same all the way through a message, so the search is only built once.
+        if (!prefix.equals(mSkipPrefix)) {
+            mSkipSearch = new BoyerMooreHorspool("\n" + prefix);
+            mSkipPrefix = prefix;
+        }
+
+        int match = mSkipSearch.indexOf(mBuffer, mPosition, mLimit);
+        if (match == -1) {
+            mPosition = mLimit;
+            return null;
+        }
+
+        mPosition = match + 1;
+        return readLine();
+    }
+
+    /**
+     * @return The offset in the buffer of the next unread line.
+     */
+    public int getPosition() {
+        return mPosition;
+    }
+
+    public void setCharset(Charset charset) {
+        mCharset = charset;
+    }
+
+    public void close() {
+        mPosition = mLimit;
+    }
+
+    private boolean startsWith(int position, String prefix) {
+        if (mLimit - position < prefix.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < prefix.length(); i++) {
+            if ((mBuffer.get(position + i) & 0xff) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,56 @@
+package com.davidtpate.github.explore.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * A window over a range of bytes that can be scanned like text without decoding it. charAt() hands back each byte as
+ * an ISO-8859-1 character, which is all that's needed for matching the ASCII prefixes and delimiters in a message.
+ * Nothing is copied until toString() is called, which decodes the range with the message charset, so the String can
+ * be shorter than length() when the range holds multi-byte characters.
+ */
+public final class ByteSequence implements CharSequence {
+    private final ByteBuffer buffer;
+    private final int start;
+    private final int end;
+    private final Charset charset;
+
+    public ByteSequence(ByteBuffer buffer, int start, int end, Charset charset) {
+        this.buffer = buffer;
+        this.start = start;
+        this.end = end;
+        this.charset = charset;
+    }
+
+    public int length() {
+        return end - start;
+    }
+
+    public char charAt(int index) {
+        return (char) (buffer.get(start + index) & 0xff);
+    }
+
+    public CharSequence subSequence(int from, int to) {
+        if (from < 0 || to > length() || from > to) {
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: " + length());
+        }
+        return new ByteSequence(buffer, start + from, start + to, charset);
+    }
+
+    @Override
+    public String toString() {
+        // Most of what we keep is plain ASCII, which can skip the charset decoder entirely.
+        int length = end - start;
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            byte b = buffer.get(start + i);
+            if (b < 0) {
+                ByteBuffer range = buffer.duplicate();
+                range.limit(end).position(start);
+                return charset.decode(range).toString();
+            }
+            chars[i] = (char) b;
+        }
+        return new String(chars);
+    }
+}
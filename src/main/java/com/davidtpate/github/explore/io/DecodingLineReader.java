@@ -0,0 +1,252 @@
+package com.davidtpate.github.explore.io;
+
+import com.davidtpate.github.explore.util.CharSequences;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Undoes the Content-Transfer-Encoding of a MIME part as its lines are read, so the rest of the parser only ever sees
+ * plain text. Decoding happens a line at a time, the most that's held on to is the one decoded line in progress.
+ * Boundary lines are never encoded, they are passed through untouched and switch decoding back off, ready for the
+ * headers of the next part.
+ */
+public class DecodingLineReader implements LineReader {
+    private static final int[] BASE64_VALUES = new int[128];
+
+    static {
+        for (int i = 0; i < BASE64_VALUES.length; i++) {
+            BASE64_VALUES[i] = -1;
+        }
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_VALUES[alphabet.charAt(i)] = i;
+        }
+    }
+
+    private final LineReader mReader;
+    private final Charset mDefaultCharset;
+    private TransferEncoding mEncoding = TransferEncoding.IDENTITY;
+    private Charset mCharset;
+    private String mBoundary;
+    /**
+     * A raw line read while decoding that belongs to whoever reads next, like the boundary that ended a base64 part.
+     */
+    private CharSequence mPendingLine;
+    /**
+     * Decoded bytes that haven't been handed out as a line yet.
+     */
+    private byte[] mDecoded = new byte[1024];
+    private int mDecodedStart;
+    private int mDecodedLength;
+    /**
+     * Base64 bits waiting for enough company to make a byte.
+     */
+    private int mBits;
+    private int mBitCount;
+
+    public DecodingLineReader(LineReader reader, Charset defaultCharset) {
+        mReader = reader;
+        mDefaultCharset = defaultCharset;
+        mCharset = defaultCharset;
+    }
+
+    /**
+     * Starts decoding the body of a part, called once the part's headers have been read.
+     *
+     * @param boundary The delimiter that ends the part, or null if the part runs to the end of the input.
+     */
+    public void startPart(TransferEncoding encoding, Charset charset, String boundary) {
+        mEncoding = encoding != null ? encoding : TransferEncoding.IDENTITY;
+        mBoundary = boundary;
+        setCharset(charset != null ? charset : mDefaultCharset);
+        clearDecoded();
+    }
+
+    public CharSequence readLine() throws IOException {
+        switch (mEncoding) {
+            case QUOTED_PRINTABLE:
+                return readQuotedPrintableLine();
+            case BASE64:
+                return readBase64Line();
+            default:
+                return readRawLine();
+        }
+    }
+
+    /**
+     * Skipping only ever lands on a boundary, so decoding stops and whatever was half decoded is dropped.
+     */
+    public CharSequence skipTo(String prefix) throws IOException {
+        clearDecoded();
+        endPart();
+        CharSequence pending = mPendingLine;
+        mPendingLine = null;
+        if (pending != null && CharSequences.isDelimiter(pending, prefix)) {
+            return pending;
+        }
+        return mReader.skipTo(prefix);
+    }
+
+    public void setCharset(Charset charset) {
+        mCharset = charset;
+        mReader.setCharset(charset);
+    }
+
+    public void close() throws IOException {
+        mReader.close();
+    }
+
+    private CharSequence readRawLine() throws IOException {
+        if (mPendingLine != null) {
+            CharSequence line = mPendingLine;
+            mPendingLine = null;
+            return line;
+        }
+        return mReader.readLine();
+    }
+
+    private CharSequence readQuotedPrintableLine() throws IOException {
+        CharSequence line = readRawLine();
+        if (line == null || isBoundary(line)) {
+            endPart();
+            return line;
+        }
+
+        // A line ending in '=' is a soft break, the encoded line carries on with the next one.
+        while (decodeQuotedPrintable(line)) {
+            line = readRawLine();
+            if (line == null || isBoundary(line)) {
+                mPendingLine = line;
+                break;
+            }
+        }
+        return takeDecoded(mDecodedLength);
+    }
+
+    private CharSequence readBase64Line() throws IOException {
+        while (true) {
+            for (int i = mDecodedStart; i < mDecodedLength; i++) {
+                if (mDecoded[i] == '\n') {
+                    CharSequence line = takeDecoded(i);
+                    mDecodedStart++;
+                    return line;
+                }
+            }
+
+            CharSequence line = readRawLine();
+            if (line == null || isBoundary(line)) {
+                if (mDecodedLength > mDecodedStart) {
+                    // The last decoded line didn't have a terminator, hand it out before the boundary.
+                    mPendingLine = line;
+                    return takeDecoded(mDecodedLength);
+                }
+                endPart();
+                return line;
+            }
+            decodeBase64(line);
+        }
+    }
+
+    /**
+     * @return true if the line ended with a soft line break.
+     */
+    private boolean decodeQuotedPrintable(CharSequence line) {
+        // Trailing whitespace was added in transit and isn't part of the content.
+        int end = line.length();
+        while (end > 0 && (line.charAt(end - 1) == ' ' || line.charAt(end - 1) == '\t')) {
+            end--;
+        }
+
+        for (int i = 0; i < end; i++) {
+            char c = line.charAt(i);
+            if (c == '=') {
+                if (i == end - 1) {
+                    return true;
+                }
+                int high = i + 2 < end ? Character.digit(line.charAt(i + 1), 16) : -1;
+                int low = i + 2 < end ? Character.digit(line.charAt(i + 2), 16) : -1;
+                if (high >= 0 && low >= 0) {
+                    append(high << 4 | low);
+                    i += 2;
+                    continue;
+                }
+                // Not a valid escape, keep it as it is, like most mail readers do.
+            }
+            append(c);
+        }
+        return false;
+    }
+
+    private void decodeBase64(CharSequence line) {
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            int value = c < BASE64_VALUES.length ? BASE64_VALUES[c] : -1;
+            if (value < 0) {
+                // Padding, whitespace and anything else that isn't part of the alphabet.
+                continue;
+            }
+
+            mBits = mBits << 6 | value;
+            mBitCount += 6;
+            if (mBitCount >= 8) {
+                mBitCount -= 8;
+                append(mBits >> mBitCount);
+                mBits &= (1 << mBitCount) - 1;
+            }
+        }
+    }
+
+    private void append(int b) {
+        if (mDecodedLength == mDecoded.length) {
+            if (mDecodedStart > 0) {
+                System.arraycopy(mDecoded, mDecodedStart, mDecoded, 0, mDecodedLength - mDecodedStart);
+                mDecodedLength -= mDecodedStart;
+                mDecodedStart = 0;
+            } else {
+                byte[] grown = new byte[mDecoded.length * 2];
+                System.arraycopy(mDecoded, 0, grown, 0, mDecodedLength);
+                mDecoded = grown;
+            }
+        }
+        mDecoded[mDecodedLength++] = (byte) b;
+    }
+
+    /**
+     * @return The decoded bytes up to end as a line, with the carriage return of a CRLF dropped.
+     */
+    private CharSequence takeDecoded(int end) {
+        int start = mDecodedStart;
+        mDecodedStart = end;
+        if (end > start && mDecoded[end - 1] == '\r') {
+            end--;
+        }
+        String line = mCharset.decode(ByteBuffer.wrap(mDecoded, start, end - start)).toString();
+        if (mDecodedStart == mDecodedLength) {
+            mDecodedStart = 0;
+            mDecodedLength = 0;
+        }
+        return line;
+    }
+
+    private boolean isBoundary(CharSequence line) {
+        return mBoundary != null && CharSequences.isDelimiter(line, mBoundary);
+    }
+
+    private void endPart() {
+        mEncoding = TransferEncoding.IDENTITY;
+        mBits = 0;
+        mBitCount = 0;
+        if (mCharset != mDefaultCharset) {
+            setCharset(mDefaultCharset);
+        }
+    }
+
+    private void clearDecoded() {
+        mDecodedStart = 0;
+        mDecodedLength = 0;
+        mBits = 0;
+        mBitCount = 0;
+    }
+}
@@ -0,0 +1,186 @@
+package com.davidtpate.github.explore.io;
+
+import java.io.IOException;
+
+/**
+ * Walks a block of RFC 5322 header fields one field at a time. Each line is scanned once for the colon and nothing is
+ * copied until {@link #getValue()} is called, so headers that nobody asks for cost no allocations beyond the line
+ * itself. Folded fields are unwrapped, continuation lines (starting with a space or tab) belong to the field above.
+ * The block ends at the first empty line, which is consumed.
+ */
+public final class HeaderTokenizer {
+    private final LineReader mReader;
+    private final Name mName = new Name();
+    /**
+     * The lines making up the current field, the first line followed by its continuation lines.
+     */
+    private CharSequence[] mLines = new CharSequence[4];
+    private int mLineCount;
+    private int mSeparator;
+    /**
+     * A line read while looking for continuation lines that turned out to start the next field.
+     */
+    private CharSequence mNextLine;
+    private boolean mFinished;
+
+    public HeaderTokenizer(LineReader reader) {
+        mReader = reader;
+    }
+
+    /**
+     * Moves to the next field of the block.
+     *
+     * @return false once the end of the block (or the input) has been reached.
+     */
+    public boolean next() throws IOException {
+        mLineCount = 0;
+        while (!mFinished) {
+            CharSequence line = mNextLine != null ? mNextLine : mReader.readLine();
+            mNextLine = null;
+            if (line == null || line.length() == 0) {
+                mFinished = true;
+                return false;
+            }
+
+            // Anything that isn't "name:" at the start of a line is either a stray continuation or junk, skip it.
+            int separator = findSeparator(line);
+            if (separator <= 0) {
+                continue;
+            }
+
+            mSeparator = separator;
+            addLine(line);
+            readContinuationLines();
+            mName.reset(line, separator);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Starts a new block, like the headers of the next MIME part.
+     */
+    public void reset() {
+        mFinished = false;
+        mNextLine = null;
+        mLineCount = 0;
+    }
+
+    /**
+     * @return The name of the current field, this is a view that is only valid until the next call to next().
+     */
+    public CharSequence getName() {
+        return mName;
+    }
+
+    /**
+     * @return The unfolded value of the current field with the surrounding whitespace trimmed.
+     */
+    public String getValue() {
+        CharSequence first = mLines[0];
+        if (mLineCount == 1) {
+            int start = skipWhitespace(first, mSeparator + 1);
+            int end = trimEnd(first, start, first.length());
+            return first.subSequence(start, end).toString();
+        }
+
+        // Unfolding only removes the line breaks, the leading whitespace of each continuation line is kept. Each
+        // piece goes through toString() so that views get decoded with their charset.
+        StringBuilder value = new StringBuilder();
+        value.append(first.subSequence(skipWhitespace(first, mSeparator + 1), first.length()).toString());
+        for (int i = 1; i < mLineCount; i++) {
+            value.append(mLines[i].toString());
+        }
+
+        int end = trimEnd(value, 0, value.length());
+        value.setLength(end);
+        return value.toString();
+    }
+
+    private void readContinuationLines() throws IOException {
+        CharSequence line;
+        while ((line = mReader.readLine()) != null) {
+            if (line.length() == 0 || (line.charAt(0) != ' ' && line.charAt(0) != '\t')) {
+                mNextLine = line;
+                return;
+            }
+            addLine(line);
+        }
+        mFinished = true;
+    }
+
+    private void addLine(CharSequence line) {
+        if (mLineCount == mLines.length) {
+            CharSequence[] grown = new CharSequence[mLines.length * 2];
+            System.arraycopy(mLines, 0, grown, 0, mLineCount);
+            mLines = grown;
+        }
+        mLines[mLineCount++] = line;
+    }
+
+    /**
+     * @return The index of the colon ending the field name, or -1 if the line doesn't start with a field name.
+     */
+    private static int findSeparator(CharSequence line) {
+        char first = line.charAt(0);
+        if (first == ' ' || first == '\t') {
+            return -1;
+        }
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ':') {
+                return i;
+            }
+            // Field names are printable ASCII without spaces, this keeps lines like mbox postmarks from matching.
+            if (c <= ' ' || c > '~') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(CharSequence sequence, int start) {
+        while (start < sequence.length() && Character.isWhitespace(sequence.charAt(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(CharSequence sequence, int start, int end) {
+        while (end > start && Character.isWhitespace(sequence.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * A reusable view over the name at the start of the current line.
+     */
+    private static final class Name implements CharSequence {
+        private CharSequence line;
+        private int length;
+
+        void reset(CharSequence line, int length) {
+            this.line = line;
+            this.length = length;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public char charAt(int index) {
+            return line.charAt(index);
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            return line.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return line.subSequence(0, length).toString();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.davidtpate.github.explore.io;
+
+import com.davidtpate.github.explore.util.CharSequences;
+
+/**
+ * A streaming tag scanner for HTML, fed one line at a time. It doesn't build a tree or check that tags are balanced, it
+ * only reports start tags (with their class attribute), end tags and runs of text, which is all we need to pull data
+ * out of generated markup. Tags and comments can span lines, the contents of style and script elements are skipped.
+ * Names and classes are handed over as views that are only valid during the callback.
+ */
+public final class HtmlTagScanner {
+    private static final int STATE_TEXT = 0;
+    private static final int STATE_TAG = 1;
+    private static final int STATE_COMMENT = 2;
+    private static final int STATE_RAW_TEXT = 3;
+
+    private static final CharSequence NEW_LINE = "\n";
+
+    private final Listener mListener;
+    /**
+     * The inside of the current tag, everything between the angle brackets. It is reused from tag to tag.
+     */
+    private final StringBuilder mTag = new StringBuilder();
+    private final View mName = new View();
+    private final View mClass = new View();
+    private int mState = STATE_TEXT;
+    private char mQuote;
+    /**
+     * How many dashes in a row we've just seen inside a comment, two of them and a '>' end it.
+     */
+    private int mDashes;
+    /**
+     * The end tag that gets us out of raw text, like "/style".
+     */
+    private String mRawTextEnd;
+
+    public HtmlTagScanner(Listener listener) {
+        mListener = listener;
+    }
+
+    public void scan(CharSequence line) {
+        int length = line.length();
+        int textStart = 0;
+        int position = 0;
+        while (position < length) {
+            char c = line.charAt(position);
+            switch (mState) {
+                case STATE_TEXT:
+                    if (c == '<') {
+                        if (position > textStart) {
+                            mListener.onText(line, textStart, position);
+                        }
+                        mTag.setLength(0);
+                        mQuote = 0;
+                        mState = STATE_TAG;
+                    }
+                    position++;
+                    break;
+                case STATE_TAG:
+                    position++;
+                    if (mQuote != 0) {
+                        if (c == mQuote) {
+                            mQuote = 0;
+                        }
+                        mTag.append(c);
+                    } else if (c == '"' || c == '\'') {
+                        mQuote = c;
+                        mTag.append(c);
+                    } else if (c == '>') {
+                        mState = STATE_TEXT;
+                        handleTag();
+                        textStart = position;
+                    } else {
+                        mTag.append(c);
+                        if (mTag.length() == 3 && CharSequences.startsWith(mTag, "!--")) {
+                            mState = STATE_COMMENT;
+                            mDashes = 0;
+                        }
+                    }
+                    break;
+                case STATE_COMMENT:
+                    position++;
+                    if (c == '>' && mDashes >= 2) {
+                        mState = STATE_TEXT;
+                        textStart = position;
+                    }
+                    mDashes = c == '-' ? mDashes + 1 : 0;
+                    break;
+                case STATE_RAW_TEXT:
+                    if (c == '<' && CharSequences.regionMatches(line, position + 1, mRawTextEnd, true)) {
+                        mTag.setLength(0);
+                        mQuote = 0;
+                        mState = STATE_TAG;
+                    }
+                    position++;
+                    textStart = position;
+                    break;
+            }
+        }
+
+        if (mState == STATE_TEXT) {
+            if (length > textStart) {
+                mListener.onText(line, textStart, length);
+            }
+            mListener.onText(NEW_LINE, 0, 1);
+        } else if (mState == STATE_TAG) {
+            // A tag broken over two lines, the line break is just whitespace between attributes.
+            mTag.append(' ');
+        }
+    }
+
+    /**
+     * Forgets any half read tag, for when the markup ends before it should.
+     */
+    public void reset() {
+        mState = STATE_TEXT;
+        mTag.setLength(0);
+        mQuote = 0;
+        mRawTextEnd = null;
+    }
+
+    private void handleTag() {
+        int length = mTag.length();
+        if (length == 0 || mTag.charAt(0) == '!' || mTag.charAt(0) == '?') {
+            // Doctypes and processing instructions.
+            return;
+        }
+
+        boolean endTag = mTag.charAt(0) == '/';
+        int nameStart = endTag ? 1 : 0;
+        int nameEnd = nameStart;
+        while (nameEnd < length && !isNameEnd(mTag.charAt(nameEnd))) {
+            nameEnd++;
+        }
+        if (nameEnd == nameStart) {
+            return;
+        }
+        mName.reset(nameStart, nameEnd);
+
+        if (endTag) {
+            mListener.onEndTag(mName);
+            return;
+        }
+
+        boolean hasClass = findClass(nameEnd);
+        mListener.onStartTag(mName, hasClass ? mClass : null);
+
+        if (CharSequences.equalsIgnoreCase(mName, "style") || CharSequences.equalsIgnoreCase(mName, "script")) {
+            boolean selfClosing = mTag.charAt(length - 1) == '/';
+            if (!selfClosing) {
+                mRawTextEnd = "/" + mName.toString();
+                mState = STATE_RAW_TEXT;
+            }
+        }
+    }
+
+    /**
+     * Walks the attributes looking for class, pointing {@link #mClass} at its value.
+     */
+    private boolean findClass(int position) {
+        int length = mTag.length();
+        while (position < length) {
+            while (position < length && isNameEnd(mTag.charAt(position))) {
+                position++;
+            }
+            int attributeStart = position;
+            while (position < length && !isNameEnd(mTag.charAt(position)) && mTag.charAt(position) != '=') {
+                position++;
+            }
+            int attributeEnd = position;
+            while (position < length && mTag.charAt(position) == ' ') {
+                position++;
+            }
+            if (position == length || mTag.charAt(position) != '=') {
+                // An attribute without a value, like nowrap.
+                continue;
+            }
+            position++;
+            while (position < length && mTag.charAt(position) == ' ') {
+                position++;
+            }
+
+            int valueStart;
+            int valueEnd;
+            if (position < length && (mTag.charAt(position) == '"' || mTag.charAt(position) == '\'')) {
+                char quote = mTag.charAt(position);
+                valueStart = position + 1;
+                valueEnd = valueStart;
+                while (valueEnd < length && mTag.charAt(valueEnd) != quote) {
+                    valueEnd++;
+                }
+                position = Math.min(valueEnd + 1, length);
+            } else {
+                valueStart = position;
+                valueEnd = position;
+                while (valueEnd < length && !isNameEnd(mTag.charAt(valueEnd))) {
+                    valueEnd++;
+                }
+                position = valueEnd;
+            }
+
+            if (attributeEnd - attributeStart == 5 && CharSequences.regionMatches(mTag, attributeStart, "class", true)) {
+                mClass.reset(valueStart, valueEnd);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isNameEnd(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '/';
+    }
+
+    public interface Listener {
+        /**
+         * @param cssClass The value of the class attribute, or null if the tag doesn't have one.
+         */
+        void onStartTag(CharSequence name, CharSequence cssClass);
+
+        void onEndTag(CharSequence name);
+
+        /**
+         * Text between tags, entities are passed through as they are. The end of each line is reported as "\n".
+         */
+        void onText(CharSequence text, int start, int end);
+    }
+
+    /**
+     * A reusable view over part of the current tag.
+     */
+    private final class View implements CharSequence {
+        private int start;
+        private int end;
+
+        void reset(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public int length() {
+            return end - start;
+        }
+
+        public char charAt(int index) {
+            return mTag.charAt(start + index);
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            return mTag.subSequence(this.start + start, this.start + end);
+        }
+
+        @Override
+        public String toString() {
+            return mTag.substring(start, end);
+        }
+    }
+}
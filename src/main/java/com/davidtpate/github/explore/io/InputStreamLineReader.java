@@ -0,0 +1,148 @@
+package com.davidtpate.github.explore.io;
+
+import com.davidtpate.github.explore.util.BoyerMooreHorspool;
+import com.davidtpate.github.explore.util.Util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Reads lines from a byte stream without decoding them up front, each line is a {@link ByteSequence} over the read
+ * buffer. When the buffer runs out a new one is started instead of reusing it, so lines stay valid after later reads.
+ * Only skipTo() reuses the buffer in place, lines read before a skip must not be used after it.
+ */
+public class InputStreamLineReader implements LineReader {
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private final InputStream mInput;
+    private Charset mCharset;
+    private byte[] mBuffer = new byte[BUFFER_SIZE];
+    private ByteBuffer mBufferView = ByteBuffer.wrap(mBuffer);
+    private int mPosition;
+    private int mLimit;
+    private boolean mEndOfStream;
+    private String mSkipPrefix;
+    private BoyerMooreHorspool mSkipSearch;
+
+    /**
+     * @param charset Used to decode the parts of a line that get turned into Strings.
+     */
+    public InputStreamLineReader(InputStream input, Charset charset) {
+        mInput = input;
+        mCharset = charset;
+    }
+
+    public CharSequence readLine() throws IOException {
+        int scanned = mPosition;
+        while (true) {
+            for (int i = scanned; i < mLimit; i++) {
+                if (mBuffer[i] == '\n') {
+                    CharSequence line = newLine(mPosition, i);
+                    mPosition = i + 1;
+                    return line;
+                }
+            }
+
+            if (mEndOfStream) {
+                if (mPosition == mLimit) {
+                    return null;
+                }
+                // The last line doesn't have a terminator.
+                CharSequence line = newLine(mPosition, mLimit);
+                mPosition = mLimit;
+                return line;
+            }
+
+            int unscanned = mLimit - mPosition;
+            fill(false);
+            scanned = mPosition + unscanned;
+        }
+    }
+
+    public CharSequence skipTo(String prefix) throws IOException {
+        // We're always at the start of a line, so check it before searching for a line break followed by the prefix.
+        while (!mEndOfStream && mLimit - mPosition < prefix.length()) {
+            fill(true);
+        }
+        if (startsWith(mPosition, prefix)) {
+            return readLine();
+        }
+
+        // Boundaries are the same all the way through a message, so the search is only built once.
+        if (!prefix.equals(mSkipPrefix)) {
+            mSkipSearch = new BoyerMooreHorspool("\n" + prefix);
+            mSkipPrefix = prefix;
+        }
+
+        while (true) {
+            int match = mSkipSearch.indexOf(mBufferView, mPosition, mLimit);
+            if (match != -1) {
+                mPosition = match + 1;
+                return readLine();
+            }
+            if (mEndOfStream) {
+                mPosition = mLimit;
+                return null;
+            }
+
+            // Only the tail that could still be the start of a match needs to survive the refill.
+            mPosition = Math.max(mPosition, mLimit - (mSkipSearch.length() - 1));
+            fill(true);
+        }
+    }
+
+    public void setCharset(Charset charset) {
+        mCharset = charset;
+    }
+
+    public void close() throws IOException {
+        Util.closeQuietly(mInput);
+    }
+
+    /**
+     * Moves the unread bytes to the front of a buffer and reads more. Unless we're skipping that's a new buffer, which
+     * leaves the lines already handed out alone. It grows if a single line fills it.
+     */
+    private void fill(boolean reuse) throws IOException {
+        int unread = mLimit - mPosition;
+        if (unread == mBuffer.length || !reuse) {
+            byte[] buffer = new byte[unread == mBuffer.length ? mBuffer.length * 2 : mBuffer.length];
+            System.arraycopy(mBuffer, mPosition, buffer, 0, unread);
+            mBuffer = buffer;
+            mBufferView = ByteBuffer.wrap(mBuffer);
+        } else if (mPosition > 0) {
+            System.arraycopy(mBuffer, mPosition, mBuffer, 0, unread);
+        }
+        mPosition = 0;
+        mLimit = unread;
+
+        int count = mInput.read(mBuffer, mLimit, mBuffer.length - mLimit);
+        if (count == -1) {
+            mEndOfStream = true;
+        } else {
+            mLimit += count;
+        }
+    }
+
+    private CharSequence newLine(int start, int end) {
+        // Drop the carriage return of a CRLF.
+        if (end > start && mBuffer[end - 1] == '\r') {
+            end--;
+        }
+        return new ByteSequence(mBufferView, start, end, mCharset);
+    }
+
+    private boolean startsWith(int position, String prefix) {
+        if (mLimit - position < prefix.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < prefix.length(); i++) {
+            if ((mBuffer[position + i] & 0xff) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,31 @@
+package com.davidtpate.github.explore.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Reads a message one line at a time. Lines don't include their line terminator. Depending on the implementation a
+ * line may be a view over the underlying input rather than a String, so callers should only call toString() on the
+ * parts they intend to keep.
+ */
+public interface LineReader extends Closeable {
+    /**
+     * @return The next line, or null at the end of the input.
+     */
+    CharSequence readLine() throws IOException;
+
+    /**
+     * Skips everything up to the next line that starts with the prefix, without breaking the skipped content into
+     * lines. This is how we jump over MIME parts we aren't interested in.
+     *
+     * @return The line starting with the prefix, or null if the input ran out first.
+     */
+    CharSequence skipTo(String prefix) throws IOException;
+
+    /**
+     * Changes the charset used to decode the lines that follow, for a MIME part that declares its own. Readers over
+     * characters have nothing left to decode and ignore it.
+     */
+    void setCharset(Charset charset);
+}
@@ -0,0 +1,141 @@
+package com.davidtpate.github.explore.io;
+
+import com.davidtpate.github.explore.util.BoyerMooreHorspool;
+import com.davidtpate.github.explore.util.Util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+/**
+ * Reads lines from a character stream, every line is a String. The reader does its own buffering rather than going
+ * through a BufferedReader so that skipping can search the buffer directly.
+ */
+public class ReaderLineReader implements LineReader {
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private final Reader mReader;
+    private char[] mBuffer = new char[BUFFER_SIZE];
+    private int mPosition;
+    private int mLimit;
+    private boolean mEndOfStream;
+    private String mSkipPrefix;
+    private BoyerMooreHorspool mSkipSearch;
+
+    public ReaderLineReader(Reader reader) {
+        mReader = reader;
+    }
+
+    public CharSequence readLine() throws IOException {
+        int scanned = mPosition;
+        while (true) {
+            for (int i = scanned; i < mLimit; i++) {
+                if (mBuffer[i] == '\n') {
+                    String line = newLine(mPosition, i);
+                    mPosition = i + 1;
+                    return line;
+                }
+            }
+
+            if (mEndOfStream) {
+                if (mPosition == mLimit) {
+                    return null;
+                }
+                // The last line doesn't have a terminator.
+                String line = newLine(mPosition, mLimit);
+                mPosition = mLimit;
+                return line;
+            }
+
+            // Remember how much we've already looked at, the unread part is about to move to the front of the buffer.
+            int unscanned = mLimit - mPosition;
+            fill();
+            scanned = mPosition + unscanned;
+        }
+    }
+
+    public CharSequence skipTo(String prefix) throws IOException {
+        // We're always at the start of a line, so check it before searching for a line break followed by the prefix.
+        while (!mEndOfStream && mLimit - mPosition < prefix.length()) {
+            fill();
+        }
+        if (startsWith(mPosition, prefix)) {
+            return readLine();
+        }
+
+        // Boundaries are the same all the way through a message, so the search is only built once.
+        if (!prefix.equals(mSkipPrefix)) {
+            mSkipSearch = new BoyerMooreHorspool("\n" + prefix);
+            mSkipPrefix = prefix;
+        }
+
+        while (true) {
+            int match = mSkipSearch.indexOf(mBuffer, mPosition, mLimit);
+            if (match != -1) {
+                mPosition = match + 1;
+                return readLine();
+            }
+            if (mEndOfStream) {
+                mPosition = mLimit;
+                return null;
+            }
+
+            // Only the tail that could still be the start of a match needs to survive the refill.
+            mPosition = Math.max(mPosition, mLimit - (mSkipSearch.length() - 1));
+            fill();
+        }
+    }
+
+    /**
+     * The characters were decoded by the Reader, there's nothing to change.
+     */
+    public void setCharset(Charset charset) {
+    }
+
+    public void close() throws IOException {
+        Util.closeQuietly(mReader);
+    }
+
+    /**
+     * Moves the unread characters to the front of the buffer, growing it if a single line fills it, and reads more.
+     */
+    private void fill() throws IOException {
+        int unread = mLimit - mPosition;
+        if (unread == mBuffer.length) {
+            char[] grown = new char[mBuffer.length * 2];
+            System.arraycopy(mBuffer, mPosition, grown, 0, unread);
+            mBuffer = grown;
+        } else if (mPosition > 0) {
+            System.arraycopy(mBuffer, mPosition, mBuffer, 0, unread);
+        }
+        mPosition = 0;
+        mLimit = unread;
+
+        int count = mReader.read(mBuffer, mLimit, mBuffer.length - mLimit);
+        if (count == -1) {
+            mEndOfStream = true;
+        } else {
+            mLimit += count;
+        }
+    }
+
+    private String newLine(int start, int end) {
+        // Drop the carriage return of a CRLF.
+        if (end > start && mBuffer[end - 1] == '\r') {
+            end--;
+        }
+        return new String(mBuffer, start, end - start);
+    }
+
+    private boolean startsWith(int position, String prefix) {
+        if (mLimit - position < prefix.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < prefix.length(); i++) {
+            if (mBuffer[position + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
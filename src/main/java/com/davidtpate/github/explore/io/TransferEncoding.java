@@ -0,0 +1,25 @@
+package com.davidtpate.github.explore.io;
+
+/**
+ * The Content-Transfer-Encodings we know how to undo. 7bit, 8bit and binary parts are already in their final form.
+ */
+public enum TransferEncoding {
+    IDENTITY, QUOTED_PRINTABLE, BASE64;
+
+    /**
+     * @return The encoding for a Content-Transfer-Encoding value, anything we don't recognize is read as it is.
+     */
+    public static TransferEncoding forName(String value) {
+        if (value == null) {
+            return IDENTITY;
+        }
+
+        String name = value.trim();
+        if (name.equalsIgnoreCase("quoted-printable")) {
+            return QUOTED_PRINTABLE;
+        } else if (name.equalsIgnoreCase("base64")) {
+            return BASE64;
+        }
+        return IDENTITY;
+    }
+}
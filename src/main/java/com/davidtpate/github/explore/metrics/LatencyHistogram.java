@@ -0,0 +1,107 @@
+package com.davidtpate.github.explore.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size histogram of non-negative values, like latencies in nanoseconds, with the same layout as HdrHistogram.
+ * Values below 32 get a bucket each, above that every power of two is split into 16 buckets, so any value is off by
+ * at most 1 part in 16 wherever it falls. Recording is a couple of shifts and an atomic increment, values can be
+ * recorded from any number of threads while others read percentiles.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS;
+
+    private final AtomicLongArray mCounts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mTotal = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+
+        mCounts.incrementAndGet(bucket(value));
+        mCount.incrementAndGet();
+        mTotal.addAndGet(value);
+        long max;
+        while (value > (max = mMax.get()) && !mMax.compareAndSet(max, value)) {
+            // Lost a race with another thread, try again with what it wrote.
+        }
+    }
+
+    public long getCount() {
+        return mCount.get();
+    }
+
+    public long getMax() {
+        return mMax.get();
+    }
+
+    public double getMean() {
+        long count = mCount.get();
+        return count == 0 ? 0 : (double) mTotal.get() / count;
+    }
+
+    /**
+     * @param percentile Between 0 and 100.
+     * @return The highest value in the bucket the percentile falls in, or 0 if nothing has been recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+
+        long count = mCount.get();
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += mCounts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(highestValue(bucket), mMax.get());
+            }
+        }
+        return mMax.get();
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKETS + (magnitude - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS + (int) (value >>> shift) - HALF_SUB_BUCKETS;
+    }
+
+    static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int index = bucket - SUB_BUCKETS;
+        int shift = index / HALF_SUB_BUCKETS + 1;
+        long subBucket = index % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{" +
+                "count=" + getCount() +
+                ", mean=" + getMean() +
+                ", p50=" + getValueAtPercentile(50) +
+                ", p99=" + getValueAtPercentile(99) +
+                ", p999=" + getValueAtPercentile(99.9) +
+                ", max=" + getMax() +
+                '}';
+    }
+}
@@ -0,0 +1,25 @@
+package com.davidtpate.github.explore.metrics;
+
+/**
+ * Where a parser reports what it's doing, see {@link ParseMetrics} for one that keeps totals. Parsers call the sink
+ * from whichever thread is parsing, so implementations need to be thread-safe, and they're called in the middle of a
+ * parse so they should be quick.
+ */
+public interface MetricsSink {
+    /**
+     * A stage finished, stages can nest so their times can add up to more than the whole message.
+     */
+    void recordStage(ParseStage stage, long nanos);
+
+    void increment(ParseCounter counter, long delta);
+
+    /**
+     * A whole message was parsed, or turned away, in the given time.
+     */
+    void recordMessage(long nanos);
+
+    /**
+     * Something went wrong that the parser carried on past, like a Date header it couldn't read.
+     */
+    void recordError(Exception e);
+}
@@ -0,0 +1,5 @@
+package com.davidtpate.github.explore.metrics;
+
+public enum ParseCounter {
+    MESSAGES, REPOSITORIES, REJECTED, ERRORS;
+}
@@ -0,0 +1,75 @@
+package com.davidtpate.github.explore.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link MetricsSink} that keeps running totals, safe to share between every parser in the process. Stages get a
+ * count and a total time, messages get a {@link LatencyHistogram}, and the last error is kept around to look at.
+ */
+public class ParseMetrics implements MetricsSink {
+    private final AtomicLongArray mStageCounts = new AtomicLongArray(ParseStage.values().length);
+    private final AtomicLongArray mStageNanos = new AtomicLongArray(ParseStage.values().length);
+    private final AtomicLongArray mCounters = new AtomicLongArray(ParseCounter.values().length);
+    private final LatencyHistogram mLatency = new LatencyHistogram();
+    private final AtomicReference<Exception> mLastError = new AtomicReference<Exception>();
+
+    public void recordStage(ParseStage stage, long nanos) {
+        mStageCounts.incrementAndGet(stage.ordinal());
+        mStageNanos.addAndGet(stage.ordinal(), nanos);
+    }
+
+    public void increment(ParseCounter counter, long delta) {
+        mCounters.addAndGet(counter.ordinal(), delta);
+    }
+
+    public void recordMessage(long nanos) {
+        mLatency.record(nanos);
+    }
+
+    public void recordError(Exception e) {
+        mCounters.incrementAndGet(ParseCounter.ERRORS.ordinal());
+        mLastError.set(e);
+    }
+
+    /**
+     * @return How many times the stage has run.
+     */
+    public long getStageCount(ParseStage stage) {
+        return mStageCounts.get(stage.ordinal());
+    }
+
+    /**
+     * @return How long the stage has taken over every run, in nanoseconds.
+     */
+    public long getStageNanos(ParseStage stage) {
+        return mStageNanos.get(stage.ordinal());
+    }
+
+    public long getCount(ParseCounter counter) {
+        return mCounters.get(counter.ordinal());
+    }
+
+    /**
+     * @return How long each message took, in nanoseconds.
+     */
+    public LatencyHistogram getLatency() {
+        return mLatency;
+    }
+
+    public Exception getLastError() {
+        return mLastError.get();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("ParseMetrics{");
+        for (ParseCounter counter : ParseCounter.values()) {
+            builder.append(counter.name().toLowerCase()).append('=').append(getCount(counter)).append(", ");
+        }
+        for (ParseStage stage : ParseStage.values()) {
+            builder.append(stage.name().toLowerCase()).append("Nanos=").append(getStageNanos(stage)).append(", ");
+        }
+        return builder.append("latency=").append(mLatency).append('}').toString();
+    }
+}
@@ -0,0 +1,20 @@
+package com.davidtpate.github.explore.metrics;
+
+public enum ParseStage {
+    /**
+     * The message header, up to the first blank line.
+     */
+    HEADERS,
+    /**
+     * Reading the headers of a MIME part and switching over to it.
+     */
+    MIME_PART,
+    /**
+     * A list of repositories in the Plaintext part.
+     */
+    REPOSITORY_LIST,
+    /**
+     * The Date header.
+     */
+    DATE;
+}
@@ -1,30 +1,35 @@
 package com.davidtpate.github.explore.model;
 
-import com.davidtpate.github.explore.util.Strings;
-
 public class Field {
     private String name;
     private String value;
 
+    public Field() {
+    }
+
+    public Field(String name, String value) {
+        this.name = name;
+        this.value = value;
+    }
+
     public static Field parseField(String raw) {
-        if (Strings.isEmpty(raw) || !raw.contains(": ")) {
+        if (raw == null) {
             return null;
         }
 
-        Builder fieldBuilder = new Builder();
-
-        String[] partArray = raw.split(":");
-        // I originally used a For Each, but that requires hacky access to the internal field in the Builder which is a bit hacky.
-        for (int i = 0; i <= partArray.length - 1; i++) {
-            if (i == 0) {
-                fieldBuilder.name(partArray[i].trim());
-            } else {
-                // If we are dealing with a value that had colons in it, replace them.
-                fieldBuilder.value((i > 1 ? ":" : "") + partArray[i].trim());
-            }
+        // Only the first colon separates the name, everything after it (colons included) is the value.
+        int separator = raw.indexOf(':');
+        if (separator <= 0) {
+            return null;
         }
 
-        return fieldBuilder.build();
+        String name = raw.substring(0, separator).trim();
+        String value = raw.substring(separator + 1).trim();
+        if (name.length() == 0) {
+            return null;
+        }
+
+        return new Field(name, value);
     }
 
     public String getName() {
@@ -44,12 +49,7 @@ public class Field {
         }
 
         public Builder value(String value) {
-            // Since there could be a value with colons in it, we just append the value for any subsequent calls.
-            if (field.value == null) {
-                field.value = "";
-            }
-
-            field.value += value;
+            field.value = value;
             return this;
         }
 
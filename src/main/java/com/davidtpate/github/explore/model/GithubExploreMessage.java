@@ -27,7 +27,9 @@ public class GithubExploreMessage extends Message {
                 "subject='" + subject + '\'' +
                 ", to='" + to + '\'' +
                 ", from='" + from + '\'' +
-                ", date=" + date +
+                ", date=" + getDate() +
+                ", messageId='" + messageId + '\'' +
+                ", listId='" + listId + '\'' +
                 ", socialRepositoryList=" + socialRepositoryList +
                 ", popularRepositoryList=" + popularRepositoryList +
                 ", staffRepositoryList=" + staffRepositoryList +
@@ -53,10 +55,25 @@ public class GithubExploreMessage extends Message {
         }
 
         public Builder date(Date date) {
+            message.date = date != null ? date.getTime() : NO_DATE;
+            return this;
+        }
+
+        public Builder date(long date) {
             message.date = date;
             return this;
         }
 
+        public Builder messageId(String messageId) {
+            message.messageId = messageId;
+            return this;
+        }
+
+        public Builder listId(String listId) {
+            message.listId = listId;
+            return this;
+        }
+
         public Builder socialRepository(Repository respository) {
             // If we didn't get a repository, do nothing.
             if (respository == null) {
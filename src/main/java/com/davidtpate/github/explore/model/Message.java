@@ -3,10 +3,17 @@ package com.davidtpate.github.explore.model;
 import java.util.Date;
 
 public abstract class Message {
+    /**
+     * Value of {@link #getDateMillis()} when the message didn't have a Date we could read.
+     */
+    public static final long NO_DATE = Long.MIN_VALUE;
+
     protected String from;
     protected String subject;
     protected String to;
-    protected Date date;
+    protected long date = NO_DATE;
+    protected String messageId;
+    protected String listId;
 
     public String getFrom() { return from; }
 
@@ -18,7 +25,25 @@ public abstract class Message {
         return to;
     }
 
+    /**
+     * @return A new Date for every call, use {@link #getDateMillis()} when the millis are all that's needed.
+     */
     public Date getDate() {
+        return date == NO_DATE ? null : new Date(date);
+    }
+
+    /**
+     * @return The date as milliseconds since the epoch, or {@link #NO_DATE}.
+     */
+    public long getDateMillis() {
         return date;
     }
+
+    public String getMessageId() {
+        return messageId;
+    }
+
+    public String getListId() {
+        return listId;
+    }
 }
@@ -1,17 +1,35 @@
 package com.davidtpate.github.explore.model;
 
 public class Repository {
+    /**
+     * Value of {@link #getStars()} when the message didn't say how many stars the repository got.
+     */
+    public static final int NO_STARS = -1;
+    private static final String GITHUB_URL_PREFIX = "https://github.com/";
+
     private String name;
+    /**
+     * Only set when the url isn't just the GitHub url for the name, which it nearly always is, so it isn't stored twice.
+     */
     private String url;
+    private boolean urlFromName;
     private String type;
     private String description;
+    /**
+     * Where the repository was listed in its section, starting at 1.
+     */
+    private int rank;
+    /**
+     * Stars the repository got over the period of the digest, only the HTML part has these.
+     */
+    private int stars = NO_STARS;
 
     public String getName() {
         return name;
     }
 
     public String getUrl() {
-        return url;
+        return urlFromName ? GITHUB_URL_PREFIX + name : url;
     }
 
     public String getType() {
@@ -22,13 +40,68 @@ public class Repository {
         return description;
     }
 
+    public int getRank() {
+        return rank;
+    }
+
+    public int getStars() {
+        return stars;
+    }
+
+    /**
+     * @return true if both are the same repository, whatever their rank and stars in the digest that listed them.
+     */
+    boolean isSameRepository(Repository other) {
+        return urlFromName == other.urlFromName
+                && equal(name, other.name)
+                && equal(url, other.url)
+                && equal(type, other.type)
+                && equal(description, other.description);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Repository)) {
+            return false;
+        }
+        Repository other = (Repository) o;
+        return rank == other.rank
+                && stars == other.stars
+                && urlFromName == other.urlFromName
+                && equal(name, other.name)
+                && equal(url, other.url)
+                && equal(type, other.type)
+                && equal(description, other.description);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = name != null ? name.hashCode() : 0;
+        result = 31 * result + (url != null ? url.hashCode() : 0);
+        result = 31 * result + (urlFromName ? 1 : 0);
+        result = 31 * result + (type != null ? type.hashCode() : 0);
+        result = 31 * result + (description != null ? description.hashCode() : 0);
+        result = 31 * result + rank;
+        result = 31 * result + stars;
+        return result;
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
     @Override
     public String toString() {
         return "Repository{" +
                 "name='" + name + '\'' +
-                ", url='" + url + '\'' +
+                ", url='" + getUrl() + '\'' +
                 ", type='" + type + '\'' +
                 ", description='" + description +'\'' +
+                ", rank=" + rank +
+                ", stars=" + stars +
                 '}';
     }
 
@@ -42,6 +115,7 @@ public class Repository {
 
         public Builder url(String url) {
             repository.url = url;
+            repository.urlFromName = false;
             return this;
         }
 
@@ -55,8 +129,25 @@ public class Repository {
             return this;
         }
 
+        public Builder rank(int rank) {
+            repository.rank = rank;
+            return this;
+        }
+
+        public Builder stars(int stars) {
+            repository.stars = stars;
+            return this;
+        }
+
         public Repository build() {
             Repository builtRepository = repository;
+            String url = builtRepository.url;
+            String name = builtRepository.name;
+            if (url != null && name != null && url.length() == GITHUB_URL_PREFIX.length() + name.length()
+                    && url.startsWith(GITHUB_URL_PREFIX) && url.endsWith(name)) {
+                builtRepository.url = null;
+                builtRepository.urlFromName = true;
+            }
             repository = new Repository();
             return builtRepository;
         }
@@ -0,0 +1,140 @@
+package com.davidtpate.github.explore.model;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shares repositories across a corpus of digests that keeps listing the same ones, so it doesn't keep a copy per
+ * message. The pool holds one canonical {@link Repository} per repository, keyed on its name and matched on its url,
+ * language and description. The rank and star count belong to the listing, so the canonical instance itself is only
+ * handed out for a listing identical to it; any other listing gets a small copy that shares all of its strings.
+ * Languages come from a fixed set of canonical strings, names and descriptions are shared through a string pool. Both
+ * pools are bounded and forget the least recently used entries first, so memory stays flat however long the corpus is.
+ * A pool can be shared between threads.
+ */
+public class RepositoryPool {
+    public static final int DEFAULT_MAX_REPOSITORIES = 10000;
+
+    /**
+     * The languages GitHub lists most often, these are never evicted.
+     */
+    private static final Map<String, String> LANGUAGES = new HashMap<String, String>();
+
+    static {
+        String[] languages = {
+                "C", "C#", "C++", "Clojure", "CoffeeScript", "CSS", "Dart", "Elixir", "Emacs Lisp", "Erlang", "Go",
+                "Groovy", "Haskell", "HTML", "Java", "JavaScript", "Julia", "Kotlin", "Lua", "Objective-C", "OCaml",
+                "Perl", "PHP", "PowerShell", "Python", "R", "Ruby", "Rust", "Scala", "Shell", "Swift", "TeX",
+                "TypeScript", "VimL"
+        };
+        for (String language : languages) {
+            LANGUAGES.put(language, language);
+        }
+    }
+
+    /**
+     * The canonical repository by name.
+     */
+    private final Map<String, Repository> repositories;
+    private final Map<String, String> strings;
+
+    public RepositoryPool() {
+        this(DEFAULT_MAX_REPOSITORIES);
+    }
+
+    /**
+     * @param maxRepositories How many repositories to hold on to, the string pool holds a few times as many strings.
+     */
+    public RepositoryPool(int maxRepositories) {
+        if (maxRepositories < 1) {
+            throw new IllegalArgumentException("Max Repositories must be at least 1");
+        }
+        repositories = new LruMap<String, Repository>(maxRepositories);
+        strings = new LruMap<String, String>(maxRepositories * 4);
+    }
+
+    /**
+     * @return The canonical instance if it's equal to the repository, otherwise a copy sharing the canonical strings.
+     * The first time a repository is seen the copy becomes the canonical instance, the repository passed in is never
+     * held on to.
+     */
+    public synchronized Repository intern(Repository repository) {
+        if (repository == null) {
+            return null;
+        }
+        String name = repository.getName();
+        Repository canonical = name != null ? repositories.get(name) : null;
+        if (canonical == null || !canonical.isSameRepository(repository)) {
+            // New, or changed since it was last listed, either way it's what later listings will look like.
+            canonical = copy(repository, internString(name), internLanguage(repository.getType()),
+                    internString(repository.getDescription()));
+            if (name != null) {
+                repositories.put(canonical.getName(), canonical);
+            }
+            return canonical;
+        }
+
+        if (canonical.getRank() == repository.getRank() && canonical.getStars() == repository.getStars()) {
+            return canonical;
+        }
+        return copy(repository, canonical.getName(), canonical.getType(), canonical.getDescription());
+    }
+
+    /**
+     * @return The canonical string for a language, the known languages are always the same instance.
+     */
+    public synchronized String internLanguage(String language) {
+        if (language == null) {
+            return null;
+        }
+        String canonical = LANGUAGES.get(language);
+        return canonical != null ? canonical : internString(language);
+    }
+
+    /**
+     * @return How many repositories the pool is holding on to.
+     */
+    public synchronized int size() {
+        return repositories.size();
+    }
+
+    private static Repository copy(Repository repository, String name, String type, String description) {
+        return new Repository.Builder()
+                .name(name)
+                .url(repository.getUrl())
+                .type(type)
+                .description(description)
+                .rank(repository.getRank())
+                .stars(repository.getStars())
+                .build();
+    }
+
+    private String internString(String value) {
+        if (value == null) {
+            return null;
+        }
+        String canonical = strings.get(value);
+        if (canonical == null) {
+            canonical = value;
+            strings.put(canonical, canonical);
+        }
+        return canonical;
+    }
+
+    private static final class LruMap<K, V> extends LinkedHashMap<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        LruMap(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.davidtpate.github.explore.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Boyer-Moore-Horspool search for a fixed ASCII pattern, used to jump over the parts of a message we don't care about.
+ * Most positions are skipped without being looked at, so a miss costs roughly length / pattern length comparisons.
+ * Instances are immutable and can be shared between threads.
+ */
+public final class BoyerMooreHorspool {
+    private final char[] pattern;
+    /**
+     * How far to slide the pattern given the last character under the window, indexed by the low byte of the
+     * character. Characters that share a low byte share the smaller shift, which is always safe.
+     */
+    private final int[] shifts = new int[256];
+
+    public BoyerMooreHorspool(String pattern) {
+        if (pattern == null || pattern.length() == 0) {
+            throw new IllegalArgumentException("Pattern is Null or Empty");
+        }
+
+        this.pattern = pattern.toCharArray();
+        int last = this.pattern.length - 1;
+        for (int i = 0; i < shifts.length; i++) {
+            shifts[i] = this.pattern.length;
+        }
+        for (int i = 0; i < last; i++) {
+            shifts[this.pattern[i] & 0xff] = last - i;
+        }
+    }
+
+    public int length() {
+        return pattern.length;
+    }
+
+    /**
+     * @return The index of the first match that starts within [from, to - length], or -1.
+     */
+    public int indexOf(char[] text, int from, int to) {
+        int last = pattern.length - 1;
+        int position = from;
+        while (position <= to - pattern.length) {
+            char c = text[position + last];
+            if (c == pattern[last] && matches(text, position)) {
+                return position;
+            }
+            position += shifts[c & 0xff];
+        }
+        return -1;
+    }
+
+    /**
+     * Searches the buffer with absolute indexes, the buffer's position and limit are left alone.
+     *
+     * @return The index of the first match that starts within [from, to - length], or -1.
+     */
+    public int indexOf(ByteBuffer text, int from, int to) {
+        int last = pattern.length - 1;
+        int position = from;
+        while (position <= to - pattern.length) {
+            int b = text.get(position + last) & 0xff;
+            if (b == pattern[last] && matches(text, position)) {
+                return position;
+            }
+            position += shifts[b];
+        }
+        return -1;
+    }
+
+    private boolean matches(char[] text, int position) {
+        for (int i = pattern.length - 2; i >= 0; i--) {
+            if (text[position + i] != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matches(ByteBuffer text, int position) {
+        for (int i = pattern.length - 2; i >= 0; i--) {
+            if ((text.get(position + i) & 0xff) != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
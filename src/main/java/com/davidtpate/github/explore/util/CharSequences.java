@@ -0,0 +1,72 @@
+package com.davidtpate.github.explore.util;
+
+/**
+ * String style helpers that work on any CharSequence, so lines can be inspected without turning them into Strings.
+ */
+public class CharSequences {
+    public static boolean startsWith(CharSequence sequence, String prefix) {
+        return regionMatches(sequence, 0, prefix, false);
+    }
+
+    /**
+     * @return true if the line is the MIME delimiter, or the close delimiter with "--" after it. RFC 2046 allows
+     * whitespace after either but nothing else, so a boundary that's a prefix of a longer one doesn't match it.
+     */
+    public static boolean isDelimiter(CharSequence line, String delimiter) {
+        if (!startsWith(line, delimiter)) {
+            return false;
+        }
+
+        int i = delimiter.length();
+        if (regionMatches(line, i, "--", false)) {
+            i += 2;
+        }
+        for (; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c != ' ' && c != '\t' && c != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static boolean equalsIgnoreCase(CharSequence sequence, String value) {
+        return sequence.length() == value.length() && regionMatches(sequence, 0, value, true);
+    }
+
+    /**
+     * @return true if the sequence contains the value starting at the offset.
+     */
+    public static boolean regionMatches(CharSequence sequence, int offset, String value, boolean ignoreCase) {
+        if (offset < 0 || sequence.length() - offset < value.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            char a = sequence.charAt(offset + i);
+            char b = value.charAt(i);
+            if (a != b && (!ignoreCase || Character.toLowerCase(a) != Character.toLowerCase(b))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static int indexOf(CharSequence sequence, char c, int from) {
+        for (int i = Math.max(from, 0); i < sequence.length(); i++) {
+            if (sequence.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static boolean isBlank(CharSequence sequence) {
+        for (int i = 0; i < sequence.length(); i++) {
+            if (!Character.isWhitespace(sequence.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
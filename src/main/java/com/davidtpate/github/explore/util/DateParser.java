@@ -0,0 +1,230 @@
+package com.davidtpate.github.explore.util;
+
+import java.text.ParseException;
+
+/**
+ * Parses RFC 5322 dates like "Tue, 11 Mar 2014 06:07:14 -0700" into epoch milliseconds. Covers the obsolete syntax
+ * that still shows up in mail: a missing day of the week, two digit years, missing seconds, named zones like "EST"
+ * and "GMT", and comments like "(UTC)". There is no state, so it is safe to use from any number of threads, unlike
+ * SimpleDateFormat which is both expensive to build and unsafe to share.
+ */
+public class DateParser {
+    private static final String[] MONTHS = {"jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep", "oct", "nov", "dec"};
+    private static final long MILLIS_PER_MINUTE = 60 * 1000L;
+    private static final long MILLIS_PER_DAY = 24 * 60 * MILLIS_PER_MINUTE;
+
+    public static long parse(String value) throws ParseException {
+        if (value == null) {
+            throw new ParseException("Date is Null", 0);
+        }
+
+        Cursor cursor = new Cursor(value);
+
+        // The day of the week is optional and tells us nothing we won't get from the date itself.
+        cursor.skipWhitespaceAndComments();
+        if (cursor.hasMore() && Character.isLetter(cursor.peek())) {
+            cursor.skipLetters();
+            cursor.skipWhitespaceAndComments();
+            if (cursor.hasMore() && cursor.peek() == ',') {
+                cursor.position++;
+            }
+        }
+
+        cursor.skipWhitespaceAndComments();
+        int day = cursor.readNumber(1, 2);
+        cursor.skipWhitespaceAndComments();
+        int month = cursor.readMonth();
+        cursor.skipWhitespaceAndComments();
+        int yearStart = cursor.position;
+        int year = cursor.readNumber(2, 4);
+        int yearDigits = cursor.position - yearStart;
+        if (yearDigits == 2) {
+            year += year < 50 ? 2000 : 1900;
+        } else if (yearDigits == 3) {
+            year += 1900;
+        }
+
+        cursor.skipWhitespaceAndComments();
+        int hour = cursor.readNumber(2, 2);
+        cursor.skipWhitespaceAndComments();
+        cursor.expect(':');
+        cursor.skipWhitespaceAndComments();
+        int minute = cursor.readNumber(2, 2);
+        cursor.skipWhitespaceAndComments();
+        int second = 0;
+        if (cursor.hasMore() && cursor.peek() == ':') {
+            cursor.position++;
+            cursor.skipWhitespaceAndComments();
+            second = cursor.readNumber(2, 2);
+        }
+
+        cursor.skipWhitespaceAndComments();
+        // A missing zone is read as UTC, only a comment like "(PDT)" may follow it.
+        int offsetMinutes = cursor.hasMore() ? cursor.readZone() : 0;
+        cursor.skipWhitespaceAndComments();
+        if (cursor.hasMore()) {
+            throw cursor.error("Unexpected Text After Zone");
+        }
+
+        if (day < 1 || day > daysInMonth(year, month) || hour > 23 || minute > 59 || second > 60) {
+            throw new ParseException("Date Out of Range: " + value, 0);
+        }
+
+        // A leap second is folded into the next minute, same as most date libraries do.
+        long millis = daysFromCivil(year, month, day) * MILLIS_PER_DAY;
+        millis += ((hour * 60L + minute) * 60L + second) * 1000L;
+        return millis - offsetMinutes * MILLIS_PER_MINUTE;
+    }
+
+    /**
+     * Days since 1970-01-01 for a proleptic Gregorian date, using Howard Hinnant's days_from_civil.
+     *
+     * @param month 1 through 12.
+     */
+    static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static final class Cursor {
+        private final String value;
+        private int position;
+
+        Cursor(String value) {
+            this.value = value;
+        }
+
+        boolean hasMore() {
+            return position < value.length();
+        }
+
+        char peek() {
+            return value.charAt(position);
+        }
+
+        void expect(char c) throws ParseException {
+            if (!hasMore() || peek() != c) {
+                throw error("Expected '" + c + "'");
+            }
+            position++;
+        }
+
+        /**
+         * Comments can nest and can show up anywhere whitespace can.
+         */
+        void skipWhitespaceAndComments() throws ParseException {
+            int depth = 0;
+            while (hasMore()) {
+                char c = peek();
+                if (c == '(') {
+                    depth++;
+                } else if (c == ')' && depth > 0) {
+                    depth--;
+                } else if (c == '\\' && depth > 0) {
+                    position++;
+                } else if (depth == 0 && !Character.isWhitespace(c)) {
+                    return;
+                }
+                position++;
+            }
+            if (depth > 0) {
+                throw error("Unterminated Comment");
+            }
+        }
+
+        void skipLetters() {
+            while (hasMore() && Character.isLetter(peek())) {
+                position++;
+            }
+        }
+
+        int readNumber(int minDigits, int maxDigits) throws ParseException {
+            int start = position;
+            int number = 0;
+            while (hasMore() && position - start < maxDigits && peek() >= '0' && peek() <= '9') {
+                number = number * 10 + (peek() - '0');
+                position++;
+            }
+            if (position - start < minDigits) {
+                throw error("Expected a Number");
+            }
+            return number;
+        }
+
+        int readMonth() throws ParseException {
+            if (value.length() - position >= 3) {
+                for (int i = 0; i < MONTHS.length; i++) {
+                    if (value.regionMatches(true, position, MONTHS[i], 0, 3)) {
+                        position += 3;
+                        return i + 1;
+                    }
+                }
+            }
+            throw error("Expected a Month");
+        }
+
+        /**
+         * @return The zone's offset from UTC in minutes.
+         */
+        int readZone() throws ParseException {
+            char sign = peek();
+            if (sign == '+' || sign == '-') {
+                position++;
+                int start = position;
+                int hhmm = readNumber(4, 4);
+                int minutes = (hhmm / 100) * 60 + hhmm % 100;
+                if (hhmm % 100 > 59) {
+                    position = start;
+                    throw error("Zone Out of Range");
+                }
+                return sign == '-' ? -minutes : minutes;
+            }
+
+            int start = position;
+            skipLetters();
+            String zone = value.substring(start, position).toUpperCase();
+            if (zone.equals("UT") || zone.equals("GMT") || zone.equals("UTC") || zone.equals("Z")) {
+                return 0;
+            } else if (zone.equals("EDT")) {
+                return -4 * 60;
+            } else if (zone.equals("EST") || zone.equals("CDT")) {
+                return -5 * 60;
+            } else if (zone.equals("CST") || zone.equals("MDT")) {
+                return -6 * 60;
+            } else if (zone.equals("MST") || zone.equals("PDT")) {
+                return -7 * 60;
+            } else if (zone.equals("PST")) {
+                return -8 * 60;
+            } else if (zone.length() == 1) {
+                // RFC 5322 says military zones were specified wrong often enough that they should be read as UTC.
+                return 0;
+            }
+
+            position = start;
+            throw error("Unknown Zone");
+        }
+
+        private ParseException error(String message) {
+            return new ParseException(message + ": " + value, position);
+        }
+    }
+}
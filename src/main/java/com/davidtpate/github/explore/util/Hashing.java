@@ -0,0 +1,55 @@
+package com.davidtpate.github.explore.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A fast 64-bit hash for telling messages apart, not for anything that needs to stand up to an attacker. Eight bytes
+ * are taken at a time with the mixing steps of xxHash64, so hashing a whole message costs about as much as reading it.
+ */
+public class Hashing {
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME_3 = 0x165667B19E3779F9L;
+    private static final long PRIME_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME_5 = 0x27D4EB2F165667C5L;
+
+    public static long hash64(byte[] data, long seed) {
+        return hash64(ByteBuffer.wrap(data), 0, data.length, seed);
+    }
+
+    /**
+     * Hashes the bytes between from and to, the buffer itself isn't changed. Chain hashes by passing one in as the seed
+     * of the next.
+     */
+    public static long hash64(ByteBuffer data, int from, int to, long seed) {
+        ByteBuffer littleEndian = data.order() == ByteOrder.LITTLE_ENDIAN ? data : data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        long hash = seed + PRIME_5 + (to - from);
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            hash ^= round(littleEndian.getLong(i));
+            hash = Long.rotateLeft(hash, 27) * PRIME_1 + PRIME_4;
+        }
+        for (; i < to; i++) {
+            hash ^= (littleEndian.get(i) & 0xff) * PRIME_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME_1;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Spreads the bits of a value over the whole long, for deriving more hashes from one.
+     */
+    public static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= PRIME_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private static long round(long input) {
+        return Long.rotateLeft(input * PRIME_2, 31) * PRIME_1;
+    }
+}
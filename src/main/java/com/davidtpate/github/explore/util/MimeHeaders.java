@@ -0,0 +1,81 @@
+package com.davidtpate.github.explore.util;
+
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+
+/**
+ * Picks apart structured MIME header values like "multipart/alternative; boundary="abc"; charset=UTF-8".
+ */
+public class MimeHeaders {
+    /**
+     * @return The lower cased media type without any parameters, for example "text/plain".
+     */
+    public static String getMediaType(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        int end = value.indexOf(';');
+        return (end == -1 ? value : value.substring(0, end)).trim().toLowerCase();
+    }
+
+    /**
+     * @return The value of the named parameter with any quotes removed, or null if the parameter isn't there.
+     */
+    public static String getParameter(String value, String name) {
+        if (value == null) {
+            return null;
+        }
+
+        int position = value.indexOf(';');
+        while (position != -1) {
+            int start = position + 1;
+            while (start < value.length() && Character.isWhitespace(value.charAt(start))) {
+                start++;
+            }
+
+            int equals = value.indexOf('=', start);
+            if (equals == -1) {
+                return null;
+            }
+
+            int next;
+            String parameterValue;
+            int valueStart = equals + 1;
+            if (valueStart < value.length() && value.charAt(valueStart) == '"') {
+                int quote = value.indexOf('"', valueStart + 1);
+                int valueEnd = quote == -1 ? value.length() : quote;
+                parameterValue = value.substring(valueStart + 1, valueEnd);
+                next = quote == -1 ? -1 : value.indexOf(';', quote);
+            } else {
+                next = value.indexOf(';', valueStart);
+                parameterValue = value.substring(valueStart, next == -1 ? value.length() : next).trim();
+            }
+
+            if (value.substring(start, equals).trim().equalsIgnoreCase(name)) {
+                return parameterValue;
+            }
+            position = next;
+        }
+        return null;
+    }
+
+    /**
+     * @return The charset named by the charset parameter, or the fallback if there isn't one or we don't support it.
+     */
+    public static Charset getCharset(String value, Charset fallback) {
+        String name = getParameter(value, "charset");
+        if (Strings.isEmpty(name)) {
+            return fallback;
+        }
+
+        try {
+            return Charset.forName(name);
+        } catch (IllegalCharsetNameException e) {
+            return fallback;
+        } catch (UnsupportedCharsetException e) {
+            return fallback;
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.davidtpate.github.explore.util;
 
 import java.io.*;
+import java.nio.charset.Charset;
 import java.security.InvalidParameterException;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 /**
@@ -10,6 +12,21 @@ import java.util.*;
  */
 public class Strings {
     private static final int DEFAULT_BUFFER_SIZE = 1024 * 4;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    /**
+     * Looking up a digest goes through the security providers every time, so each thread keeps one and resets it.
+     */
+    private static final ThreadLocal<MessageDigest> MD5 = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    };
 
     public static <T> String joinAnd(final String delimiter, final String lastDelimiter, final Collection<T> objs) {
         if (objs == null || objs.isEmpty()) {
@@ -108,27 +125,41 @@ public class Strings {
     public static String md5(String s) {
         // http://stackoverflow.com/questions/1057041/difference-between-java-and-php5-md5-hash
         // http://code.google.com/p/roboguice/issues/detail?id=89
-        try {
-
-            final byte[] hash = MessageDigest.getInstance("MD5").digest(s.getBytes("UTF-8"));
-            final StringBuilder hashString = new StringBuilder();
-
-            for (byte aHash : hash) {
-                String hex = Integer.toHexString(aHash);
+        return toHex(md5Digest().digest(s.getBytes(UTF_8)));
+    }
 
-                if (hex.length() == 1) {
-                    hashString.append('0');
-                    hashString.append(hex.charAt(hex.length() - 1));
-                } else {
-                    hashString.append(hex.substring(hex.length() - 2));
-                }
+    /**
+     * Hashes the contents of the file without reading it all into memory.
+     */
+    public static String md5(File file) throws IOException {
+        final MessageDigest digest = md5Digest();
+        InputStream input = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[DEFAULT_BUFFER_SIZE * 4];
+            int n;
+            while (-1 != (n = input.read(buffer))) {
+                digest.update(buffer, 0, n);
             }
+        } finally {
+            Util.closeQuietly(input);
+        }
+        return toHex(digest.digest());
+    }
 
-            return hashString.toString();
+    private static MessageDigest md5Digest() {
+        MessageDigest digest = MD5.get();
+        // Left dirty if an earlier caller failed part way through.
+        digest.reset();
+        return digest;
+    }
 
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+    private static String toHex(byte[] hash) {
+        final char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xf];
         }
+        return new String(hex);
     }
 
     public static String capitalize(String s) {
@@ -0,0 +1,273 @@
+package com.davidtpate.github.explore.test;
+
+import com.davidtpate.github.explore.ingest.ArchiveMessageSource;
+import com.davidtpate.github.explore.ingest.IngestStats;
+import com.davidtpate.github.explore.ingest.MailboxIngester;
+import com.davidtpate.github.explore.ingest.MboxMessageSource;
+import com.davidtpate.github.explore.ingest.MessageSource;
+import com.davidtpate.github.explore.ingest.RawMessage;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class ArchiveMessageSourceTest {
+    @Test
+    public void testTarGz() throws IOException, InterruptedException {
+        byte[] example = MailboxIngesterTest.readExample();
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        writeTarEntry(tar, "digests/", new byte[0], '5');
+        writeTarEntry(tar, "digests/2014-03-11.msg", example, '0');
+        writeTarEntry(tar, "digests/._2014-03-11.msg", new byte[]{1, 2, 3}, '0');
+        writeTarEntry(tar, "digests/2014-03-12.msg.gz", gzip(example), '0');
+        // Too long for the header, GNU tar puts it in an entry of its own.
+        String longName = "digests/" + repeat('a', 120) + ".msg";
+        writeTarEntry(tar, "././@LongLink", (longName + "\0").getBytes("UTF-8"), 'L');
+        writeTarEntry(tar, longName.substring(0, 100), example, '0');
+        tar.write(new byte[1024]);
+
+        File archive = File.createTempFile("explore", ".tar.gz");
+        archive.deleteOnExit();
+        write(archive, gzip(tar.toByteArray()));
+
+        List<RawMessage> messages = readAll(MailboxIngester.openSource(archive.getPath()));
+        Assert.assertEquals(3, messages.size());
+        Assert.assertEquals(archive.getPath() + "!digests/2014-03-11.msg", messages.get(0).getId());
+        Assert.assertEquals(archive.getPath() + "!digests/2014-03-12.msg.gz", messages.get(1).getId());
+        Assert.assertEquals(archive.getPath() + "!" + longName, messages.get(2).getId());
+        for (RawMessage message : messages) {
+            Assert.assertArrayEquals(example, message.getData());
+        }
+
+        IngestStats stats = new MailboxIngester.Builder().build().ingest(archive.getPath());
+        Assert.assertEquals(3, stats.getMessagesParsed());
+        Assert.assertEquals(0, stats.getErrors());
+    }
+
+    @Test
+    public void testZip() throws IOException {
+        byte[] example = MailboxIngesterTest.readExample();
+        byte[] postmark = "From noreply@github.com Tue Mar 11 13:07:14 2014\n".getBytes("UTF-8");
+        ByteArrayOutputStream mbox = new ByteArrayOutputStream();
+        for (int i = 0; i < 2; i++) {
+            mbox.write(postmark);
+            mbox.write(example);
+            mbox.write("\n\n".getBytes("UTF-8"));
+        }
+
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        ZipOutputStream output = new ZipOutputStream(zip);
+        output.putNextEntry(new ZipEntry("digests/"));
+        output.putNextEntry(new ZipEntry("digests/2014-03-11.msg"));
+        output.write(example);
+        output.putNextEntry(new ZipEntry("digests/archive.mbox"));
+        output.write(mbox.toByteArray());
+        output.close();
+
+        List<RawMessage> messages = readAll(new ArchiveMessageSource("digests.zip",
+                new ByteArrayInputStream(zip.toByteArray()), 1));
+        Assert.assertEquals(3, messages.size());
+        Assert.assertEquals("digests.zip!digests/2014-03-11.msg", messages.get(0).getId());
+        Assert.assertEquals("digests.zip!digests/archive.mbox@0", messages.get(1).getId());
+        Assert.assertTrue(messages.get(2).getId().startsWith("digests.zip!digests/archive.mbox@"));
+    }
+
+    @Test
+    public void testTruncated() throws IOException {
+        byte[] compressed = gzip(MailboxIngesterTest.readExample());
+        MessageSource source = new ArchiveMessageSource("truncated.gz",
+                new ByteArrayInputStream(Arrays.copyOf(compressed, compressed.length / 2)), 1);
+        try {
+            readAll(source);
+            Assert.fail("Read a truncated archive");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testOversized() throws IOException {
+        byte[] example = MailboxIngesterTest.readExample();
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        ZipOutputStream output = new ZipOutputStream(zip);
+        output.putNextEntry(new ZipEntry("huge.msg"));
+        byte[] zeros = new byte[1024 * 1024];
+        for (int i = 0; i <= ArchiveMessageSource.MAX_MESSAGE_BYTES / zeros.length; i++) {
+            output.write(zeros);
+        }
+        output.putNextEntry(new ZipEntry("2014-03-11.msg.gz"));
+        output.write(gzip(example));
+        output.close();
+
+        // The big one is reported rather than read.
+        List<RawMessage> messages = readAll(new ArchiveMessageSource("digests.zip",
+                new ByteArrayInputStream(zip.toByteArray()), 1));
+        Assert.assertEquals(2, messages.size());
+        Assert.assertEquals("digests.zip!huge.msg", messages.get(0).getId());
+        Assert.assertNotNull(messages.get(0).getError());
+        Assert.assertEquals(0, messages.get(0).getLength());
+        Assert.assertEquals("digests.zip!2014-03-11.msg.gz", messages.get(1).getId());
+        Assert.assertNull(messages.get(1).getError());
+        Assert.assertArrayEquals(example, messages.get(1).getData());
+    }
+
+    @Test
+    public void testOversizedMbox() throws IOException {
+        byte[] example = MailboxIngesterTest.readExample();
+        byte[] postmark = "From noreply@github.com Tue Mar 11 13:07:14 2014\n".getBytes("UTF-8");
+        ByteArrayOutputStream mbox = new ByteArrayOutputStream();
+        mbox.write(postmark);
+        mbox.write(example);
+        mbox.write(example);
+        mbox.write("\n\n".getBytes("UTF-8"));
+        int second = mbox.size();
+        mbox.write(postmark);
+        mbox.write(example);
+
+        List<RawMessage> messages = readAll(new MboxMessageSource("archive.mbox",
+                new ByteArrayInputStream(mbox.toByteArray()), 0, example.length + 16));
+        Assert.assertEquals(2, messages.size());
+        Assert.assertEquals("archive.mbox@0", messages.get(0).getId());
+        Assert.assertNotNull(messages.get(0).getError());
+        Assert.assertEquals("archive.mbox@" + second, messages.get(1).getId());
+        Assert.assertArrayEquals(example, messages.get(1).getData());
+
+        // A single line that never ends can't get past the limit either.
+        byte[] line = new byte[4096];
+        Arrays.fill(line, (byte) 'x');
+        messages = readAll(new MboxMessageSource("line.mbox", new ByteArrayInputStream(line), 0, 100));
+        Assert.assertEquals(1, messages.size());
+        Assert.assertNotNull(messages.get(0).getError());
+    }
+
+    @Test
+    public void testNesting() throws IOException, InterruptedException {
+        byte[] example = MailboxIngesterTest.readExample();
+        byte[] nested = example;
+        for (int i = 0; i < ArchiveMessageSource.MAX_NESTING; i++) {
+            nested = gzip(nested);
+        }
+        List<RawMessage> messages = readAll(new ArchiveMessageSource("deep.gz", new ByteArrayInputStream(nested), 1));
+        Assert.assertArrayEquals(example, messages.get(0).getData());
+
+        messages = readAll(new ArchiveMessageSource("deeper.gz", new ByteArrayInputStream(gzip(nested)), 1));
+        Assert.assertEquals(1, messages.size());
+        Assert.assertEquals("deeper.gz", messages.get(0).getId());
+        Assert.assertNotNull(messages.get(0).getError());
+
+        // Ingesting counts it as an error rather than losing it.
+        IngestStats stats = new MailboxIngester.Builder().build().ingest(new ArchiveMessageSource("deeper.gz",
+                new ByteArrayInputStream(gzip(nested)), 1));
+        Assert.assertEquals(1, stats.getMessagesRead());
+        Assert.assertEquals(1, stats.getErrors());
+    }
+
+    @Test
+    public void testBadPaxHeader() throws IOException {
+        // The length doesn't even cover the record's own digits and space.
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        writeTarEntry(tar, "PaxHeaders/2014-03-11.msg", "2 path=x\n".getBytes("UTF-8"), 'x');
+        writeTarEntry(tar, "2014-03-11.msg", MailboxIngesterTest.readExample(), '0');
+        tar.write(new byte[1024]);
+
+        try {
+            readAll(new ArchiveMessageSource("digests.tar", new ByteArrayInputStream(tar.toByteArray()), 1));
+            Assert.fail("Read a bad pax header");
+        } catch (IOException e) {
+            Assert.assertEquals("Bad Pax Header", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCloseEarly() throws IOException {
+        byte[] example = MailboxIngesterTest.readExample();
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        ZipOutputStream output = new ZipOutputStream(zip);
+        for (int i = 0; i < 100; i++) {
+            output.putNextEntry(new ZipEntry(i + ".msg"));
+            output.write(example);
+        }
+        output.close();
+
+        // The reader is blocked on a full queue, closing has to let it go.
+        MessageSource source = new ArchiveMessageSource("digests.zip", new ByteArrayInputStream(zip.toByteArray()), 2);
+        Assert.assertNotNull(source.next());
+        source.close();
+        Assert.assertNull(source.next());
+    }
+
+    private static List<RawMessage> readAll(MessageSource source) throws IOException {
+        List<RawMessage> messages = new ArrayList<RawMessage>();
+        try {
+            RawMessage message;
+            while ((message = source.next()) != null) {
+                messages.add(message);
+            }
+        } finally {
+            source.close();
+        }
+        return messages;
+    }
+
+    /**
+     * Just enough of a ustar header for the reader.
+     */
+    private static void writeTarEntry(OutputStream output, String name, byte[] data, char type) throws IOException {
+        byte[] header = new byte[512];
+        byte[] nameBytes = name.getBytes("UTF-8");
+        System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+        putOctal(header, 100, 8, 0644);
+        putOctal(header, 124, 12, data.length);
+        putOctal(header, 136, 12, 1394543234);
+        header[156] = (byte) type;
+        System.arraycopy("ustar\00000".getBytes("UTF-8"), 0, header, 257, 8);
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        int checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        putOctal(header, 148, 7, checksum);
+
+        output.write(header);
+        output.write(data);
+        output.write(new byte[(512 - data.length % 512) % 512]);
+    }
+
+    private static void putOctal(byte[] header, int offset, int length, long value) {
+        String octal = Long.toOctalString(value);
+        for (int i = 0; i < length - 1; i++) {
+            int digit = octal.length() - (length - 1 - i);
+            header[offset + i] = (byte) (digit < 0 ? '0' : octal.charAt(digit));
+        }
+        header[offset + length - 1] = 0;
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        GZIPOutputStream output = new GZIPOutputStream(compressed);
+        output.write(data);
+        output.close();
+        return compressed.toByteArray();
+    }
+
+    private static void write(File file, byte[] data) throws IOException {
+        OutputStream output = new FileOutputStream(file);
+        try {
+            output.write(data);
+        } finally {
+            output.close();
+        }
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,119 @@
+package com.davidtpate.github.explore.test;
+
+import com.davidtpate.github.explore.GithubExploreMessageParser;
+import com.davidtpate.github.explore.ingest.AsyncMessageParser;
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncMessageParserTest {
+    @Test
+    public void testSubmit() throws Exception {
+        byte[] example = MailboxIngesterTest.readExample();
+        String expected = new GithubExploreMessageParser().parse(ByteBuffer.wrap(example)).toString();
+
+        AsyncMessageParser parser = new AsyncMessageParser.Builder().build();
+        try {
+            Assert.assertEquals(expected, parser.submit(ByteBuffer.wrap(example)).get().toString());
+            Assert.assertEquals(expected, parser.submit(new ByteArrayInputStream(example)).get().toString());
+
+            CompletableFuture<GithubExploreMessage> failed = parser.submit(new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    throw new IOException("Connection reset");
+                }
+            });
+            try {
+                failed.get();
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof IOException);
+            }
+            Assert.assertEquals(parser.getMaxInFlight(), parser.getAvailable());
+        } finally {
+            parser.close();
+        }
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        byte[] example = MailboxIngesterTest.readExample();
+        final CountDownLatch release = new CountDownLatch(1);
+        AsyncMessageParser parser = new AsyncMessageParser.Builder().maxInFlight(2).build();
+        try {
+            List<CompletableFuture<GithubExploreMessage>> futures = new ArrayList<CompletableFuture<GithubExploreMessage>>();
+            for (int i = 0; i < 2; i++) {
+                futures.add(parser.submit(new HeldInputStream(example, release)));
+            }
+
+            // Both slots are taken until the streams are let go.
+            Assert.assertEquals(0, parser.getAvailable());
+            Assert.assertNull(parser.trySubmit(ByteBuffer.wrap(example), 50, TimeUnit.MILLISECONDS));
+
+            release.countDown();
+            for (CompletableFuture<GithubExploreMessage> future : futures) {
+                Assert.assertEquals(5, future.get().getPopularRepositoryList().size());
+            }
+            Assert.assertNotNull(parser.trySubmit(ByteBuffer.wrap(example), 1, TimeUnit.SECONDS).get());
+        } finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * Many messages at once, on virtual threads where the JVM has them and on a pool. Throughput is measured by
+     * AsyncParseBenchmark.
+     */
+    @Test
+    public void testLoad() throws Exception {
+        byte[] example = MailboxIngesterTest.readExample();
+        for (boolean virtualThreads : new boolean[]{true, false}) {
+            AsyncMessageParser parser = new AsyncMessageParser.Builder().threads(2).virtualThreads(virtualThreads).build();
+            List<CompletableFuture<GithubExploreMessage>> futures = new ArrayList<CompletableFuture<GithubExploreMessage>>();
+            try {
+                for (int i = 0; i < 200; i++) {
+                    futures.add(parser.submit(ByteBuffer.wrap(example)));
+                }
+                for (CompletableFuture<GithubExploreMessage> future : futures) {
+                    Assert.assertEquals(5, future.get().getStaffRepositoryList().size());
+                }
+                Assert.assertEquals(parser.getMaxInFlight(), parser.getAvailable());
+            } finally {
+                parser.close();
+            }
+        }
+    }
+
+    /**
+     * Doesn't give up its data until the latch is released, like a slow connection.
+     */
+    private static class HeldInputStream extends ByteArrayInputStream {
+        private final CountDownLatch mRelease;
+
+        HeldInputStream(byte[] data, CountDownLatch release) {
+            super(data);
+            mRelease = release;
+        }
+
+        @Override
+        public synchronized int read(byte[] buffer, int offset, int length) {
+            try {
+                mRelease.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.read(buffer, offset, length);
+        }
+    }
+}
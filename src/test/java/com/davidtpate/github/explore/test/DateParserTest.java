@@ -0,0 +1,39 @@
+package com.davidtpate.github.explore.test;
+
+import com.davidtpate.github.explore.util.DateParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.text.ParseException;
+
+public class DateParserTest {
+    // Tue, 11 Mar 2014 13:07:14 UTC
+    private static final long EXPECTED = 1394543234000L;
+
+    @Test
+    public void testDates() throws ParseException {
+        Assert.assertEquals(EXPECTED, DateParser.parse("Tue, 11 Mar 2014 06:07:14 -0700"));
+        Assert.assertEquals(EXPECTED, DateParser.parse("11 Mar 2014 13:07:14 +0000"));
+        Assert.assertEquals(EXPECTED, DateParser.parse("Tue, 11 Mar 2014 13:07:14 +0000 (UTC)"));
+        Assert.assertEquals(EXPECTED, DateParser.parse("Tue, 11 mar 14 13:07:14 GMT"));
+        Assert.assertEquals(EXPECTED, DateParser.parse("Tue,11 Mar 2014 09:07:14 EDT"));
+        Assert.assertEquals(EXPECTED, DateParser.parse("Tue, 11 Mar 2014 05:07:14 PST"));
+        Assert.assertEquals(EXPECTED - 14000L, DateParser.parse("Tue, 11 Mar 2014 13:07 Z"));
+        Assert.assertEquals(951782400000L, DateParser.parse("29 Feb 2000 00:00:00 +0000"));
+    }
+
+    @Test
+    public void testBadDates() {
+        String[] dates = {null, "", "Tue, 11 Foo 2014 13:07:14 +0000", "30 Feb 2014 13:07:14 +0000",
+                "11 Mar 2014 25:07:14 +0000", "11 Mar 2014 13:07:14 XYZ", "11 Mar 2014 13:07:14 +0000 (UTC",
+                "11 Mar 2014 13:07:14 +0000 UTC", "11 Mar 2014 13:07:14 GMT+1", "11 Mar 2014 13:07:14 +0000 (UTC) x"};
+        for (String date : dates) {
+            try {
+                DateParser.parse(date);
+                Assert.fail(date);
+            } catch (ParseException e) {
+                // Do nothing
+            }
+        }
+    }
+}
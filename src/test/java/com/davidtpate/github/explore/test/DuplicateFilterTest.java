@@ -0,0 +1,133 @@
+package com.davidtpate.github.explore.test;
+
+import com.davidtpate.github.explore.dedup.DuplicateFilter;
+import com.davidtpate.github.explore.dedup.FingerprintSet;
+import com.davidtpate.github.explore.dedup.MessageFingerprint;
+import com.davidtpate.github.explore.dedup.ScalableBloomFilter;
+import com.davidtpate.github.explore.util.Hashing;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class DuplicateFilterTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testFingerprint() throws IOException {
+        String example = readExample();
+        long fingerprint = fingerprint(example);
+
+        // Another copy of the digest that took a different route to a different mailbox.
+        String forwarded = example.replace("Delivered-To: davidtpate@gmail.com", "Delivered-To: someone@example.com")
+                .replace("Received: by 10.194.187.134", "Received: by 10.1.2.3");
+        Assert.assertNotEquals(example, forwarded);
+        Assert.assertEquals(fingerprint, fingerprint(forwarded));
+        Assert.assertNotEquals(fingerprint, fingerprint(example.replace("Message-ID: <531f0a82", "Message-ID: <631f0a82")));
+
+        // Without a Message-ID the content decides.
+        String anonymous = example.replaceFirst("Message-ID: [^\\n]*\\n", "");
+        Assert.assertNotEquals(fingerprint, fingerprint(anonymous));
+        Assert.assertEquals(fingerprint(anonymous), fingerprint(anonymous.replace("Delivered-To: davidtpate@gmail.com",
+                "Delivered-To: someone@example.com")));
+        Assert.assertNotEquals(fingerprint(anonymous), fingerprint(anonymous.replace("gabrielecirulli", "gabriele")));
+
+        // Only the region between position and limit counts.
+        byte[] bytes = ("xx" + example).getBytes("UTF-8");
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.position(2);
+        Assert.assertEquals(fingerprint, MessageFingerprint.of(buffer));
+        Assert.assertEquals(2, buffer.position());
+    }
+
+    @Test
+    public void testFingerprintSet() throws IOException {
+        File file = new File(temporaryFolder.getRoot(), "explore.set");
+
+        // Enough to make the table grow a couple of times.
+        int count = 100000;
+        FingerprintSet set = new FingerprintSet(file);
+        for (int i = 1; i <= count; i++) {
+            Assert.assertTrue(set.add(Hashing.mix(i)));
+        }
+        Assert.assertFalse(set.add(Hashing.mix(1)));
+        Assert.assertEquals(count, set.size());
+        set.close();
+
+        set = new FingerprintSet(file);
+        Assert.assertEquals(count, set.size());
+        for (int i = 1; i <= count; i++) {
+            Assert.assertTrue(set.contains(Hashing.mix(i)));
+        }
+        Assert.assertFalse(set.contains(Hashing.mix(count + 1)));
+        set.close();
+    }
+
+    @Test
+    public void testBloomFilter() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1000, 0.01);
+        for (int i = 0; i < 20000; i++) {
+            filter.add(Hashing.mix(i));
+        }
+        for (int i = 0; i < 20000; i++) {
+            Assert.assertTrue(filter.mightContain(Hashing.mix(i)));
+        }
+
+        int falsePositives = 0;
+        for (int i = 20000; i < 120000; i++) {
+            if (filter.mightContain(Hashing.mix(i))) {
+                falsePositives++;
+            }
+        }
+        // The rate is only reached on average, leave some room for chance.
+        Assert.assertTrue("False positives: " + falsePositives, falsePositives < 100000 * 0.015);
+    }
+
+    @Test
+    public void testDuplicateFilter() throws IOException {
+        File directory = new File(temporaryFolder.getRoot(), "dedup");
+
+        String example = readExample();
+        DuplicateFilter filter = new DuplicateFilter(directory, 10, 0.01);
+        Assert.assertTrue(filter.accept(buffer(example)));
+        Assert.assertFalse(filter.accept(buffer(example)));
+        Assert.assertTrue(filter.accept(buffer(example.replace("Message-ID: <531f0a82", "Message-ID: <631f0a82"))));
+        Assert.assertEquals(2, filter.getAccepted());
+        Assert.assertEquals(1, filter.getDuplicates());
+        filter.close();
+
+        // What was seen in an earlier run is still known.
+        filter = new DuplicateFilter(directory, 10, 0.01);
+        Assert.assertEquals(2, filter.size());
+        Assert.assertFalse(filter.accept(buffer(example)));
+
+        // A claim turns copies away until it's given up, only a recorded one is remembered.
+        long fingerprint = fingerprint(example.replace("Message-ID: <531f0a82", "Message-ID: <731f0a82"));
+        Assert.assertTrue(filter.claim(fingerprint));
+        Assert.assertFalse(filter.claim(fingerprint));
+        filter.release(fingerprint);
+        Assert.assertEquals(2, filter.size());
+        Assert.assertTrue(filter.claim(fingerprint));
+        filter.record(fingerprint);
+        Assert.assertFalse(filter.claim(fingerprint));
+        Assert.assertEquals(3, filter.size());
+        filter.close();
+    }
+
+    private static long fingerprint(String message) throws IOException {
+        return MessageFingerprint.of(buffer(message));
+    }
+
+    private static ByteBuffer buffer(String message) throws IOException {
+        return ByteBuffer.wrap(message.getBytes("UTF-8"));
+    }
+
+    private static String readExample() throws IOException {
+        return new String(MailboxIngesterTest.readExample(), "UTF-8");
+    }
+}
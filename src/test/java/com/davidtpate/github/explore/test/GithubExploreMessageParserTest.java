@@ -1,10 +1,29 @@
 package com.davidtpate.github.explore.test;
 
+import com.davidtpate.github.explore.ExploreMessageHandler;
 import com.davidtpate.github.explore.GithubExploreMessageParser;
+import com.davidtpate.github.explore.MessagePrefilter;
+import com.davidtpate.github.explore.RepositoryLineScanner;
+import com.davidtpate.github.explore.metrics.LatencyHistogram;
+import com.davidtpate.github.explore.metrics.ParseCounter;
+import com.davidtpate.github.explore.metrics.ParseMetrics;
+import com.davidtpate.github.explore.metrics.ParseStage;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+import com.davidtpate.github.explore.model.Repository;
+import com.davidtpate.github.explore.model.RepositoryPool;
+
+import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
 
 public class GithubExploreMessageParserTest {
     @Test
@@ -47,4 +66,467 @@ public class GithubExploreMessageParserTest {
             Assert.fail();
         }
     }
+
+    @Test
+    public void testParserReuse() throws FileNotFoundException {
+        GithubExploreMessageParser parser = new GithubExploreMessageParser();
+        GithubExploreMessage first = parser.parse("src/test/resources/Example.msg");
+        GithubExploreMessage second = parser.parse("src/test/resources/Example.msg");
+
+        // A second parse shouldn't pick up anything left over from the first.
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(first.toString(), second.toString());
+        Assert.assertEquals(2, second.getSocialRepositoryList().size());
+        Assert.assertEquals(5, second.getPopularRepositoryList().size());
+        Assert.assertEquals(5, second.getStaffRepositoryList().size());
+    }
+
+    @Test
+    public void testInMemoryInputs() throws IOException {
+        GithubExploreMessageParser parser = new GithubExploreMessageParser();
+        byte[] example = MailboxIngesterTest.readExample();
+        String expected = parser.parse("src/test/resources/Example.msg").toString();
+
+        // Every way of handing over the message ends up in the same place.
+        Assert.assertEquals(expected, parser.parse(new ByteArrayInputStream(example)).toString());
+        Assert.assertEquals(expected, parser.parse(new StringReader(new String(example, "UTF-8"))).toString());
+        Assert.assertEquals(expected, parser.parse(example).toString());
+        Assert.assertEquals(expected, parser.parse(ByteBuffer.wrap(example)).toString());
+
+        try {
+            parser.parse((InputStream) null);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testSharedParser() throws Exception {
+        final GithubExploreMessageParser parser = new GithubExploreMessageParser();
+        final String expected = parser.parse("src/test/resources/Example.msg").toString();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 200; i++) {
+                results.add(executor.submit(new Callable<String>() {
+                    public String call() throws Exception {
+                        return parser.parse("src/test/resources/Example.msg").toString();
+                    }
+                }));
+            }
+            for (Future<String> result : results) {
+                Assert.assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testMappedMessage() throws IOException {
+        GithubExploreMessageParser parser = new GithubExploreMessageParser();
+        String expected = parser.parse("src/test/resources/Example.msg").toString();
+
+        Assert.assertEquals(expected, parser.parseMapped("src/test/resources/Example.msg").toString());
+        Assert.assertEquals(expected, parser.parse(ByteBuffer.wrap(MailboxIngesterTest.readExample())).toString());
+    }
+
+    @Test
+    public void testDeclaredBoundary() throws IOException {
+        String message = "From: GitHub <noreply@github.com>\n" +
+                "Subject: GitHub explore today Mar 11\n" +
+                "Content-Type: multipart/mixed;\n" +
+                " boundary=\"next-part\"\n" +
+                "\n" +
+                "This is the preamble.\n" +
+                "--next-part\n" +
+                "Content-Type: text/html; charset=UTF-8\n" +
+                "\n" +
+                "Trending Repositories today Mar 10 - Mar 11\n" +
+                "1. https://github.com/html/should-be-skipped Java\n" +
+                "Not a plaintext repository\n" +
+                "--next-part\n" +
+                "Content-Type: application/octet-stream\n" +
+                "Content-Disposition: attachment; filename=\"list.txt\"\n" +
+                "\n" +
+                "Stars from GitHub Staff today Mar 10 - Mar 11\n" +
+                "1. https://github.com/attachment/should-be-skipped Java\n" +
+                "Not a plaintext repository either\n" +
+                "--next-partial is a longer boundary, not this one\n" +
+                "2. https://github.com/attachment/still-skipped Java\n" +
+                "--next-part  \n" +
+                "Content-Type: text/plain;\n" +
+                " charset=UTF-8\n" +
+                "\n" +
+                "Trending Repositories today Mar 10 - Mar 11\n" +
+                "-------------\n" +
+                "\n" +
+                "1. https://github.com/person/example Java\n" +
+                "An example\n" +
+                "--next-parts aren't delimiters either\n" +
+                "2. https://github.com/person/another Java\n" +
+                "\n" +
+                "--next-part--\n";
+
+        GithubExploreMessageParser parser = new GithubExploreMessageParser();
+        GithubExploreMessageParser partsParser = new GithubExploreMessageParser.Builder()
+                .parallelParts(new ForkJoinPool(2))
+                .build();
+        for (GithubExploreMessage parsed : new GithubExploreMessage[]{
+                parser.parse(new StringReader(message)),
+                parser.parse(ByteBuffer.wrap(message.getBytes("UTF-8"))),
+                partsParser.parse(ByteBuffer.wrap(message.getBytes("UTF-8")))}) {
+            Assert.assertNull(parsed.getStaffRepositoryList());
+            Assert.assertEquals(2, parsed.getPopularRepositoryList().size());
+            Assert.assertEquals("person/example", parsed.getPopularRepositoryList().get(0).getName());
+            Assert.assertEquals("person/another", parsed.getPopularRepositoryList().get(1).getName());
+        }
+    }
+
+    @Test
+    public void testFoldedHeaders() throws IOException {
+        String message = "Received: from mail.example.com\n" +
+                "\tby mx.example.com; Tue, 11 Mar 2014 06:07:17 -0700 (PDT)\n" +
+                "Delivered-To: someone@example.com\n" +
+                "From: GitHub\n" +
+                " <noreply@github.com>\n" +
+                "Subject: GitHub explore today\n" +
+                " Mar 11\n" +
+                "Date: Tue, 11 Mar 2014 06:07:14 -0700\n" +
+                "Content-Type: text/plain; charset=UTF-8\n" +
+                "\n" +
+                "Trending Repositories today Mar 10 - Mar 11\n" +
+                "1. https://github.com/person/example Java\n" +
+                "An example\n";
+
+        GithubExploreMessage parsed = new GithubExploreMessageParser().parse(new StringReader(message));
+        Assert.assertEquals("someone@example.com", parsed.getTo());
+        Assert.assertEquals("GitHub explore today Mar 11", parsed.getSubject());
+        Assert.assertEquals(1394543234000L, parsed.getDate().getTime());
+        Assert.assertEquals(1, parsed.getPopularRepositoryList().size());
+    }
+
+    @Test
+    public void testHeaderLookup() throws FileNotFoundException {
+        Assert.assertEquals(GithubExploreMessageParser.Header.CONTENT_TYPE, GithubExploreMessageParser.Header.findHeader("content-type"));
+        Assert.assertEquals(GithubExploreMessageParser.Header.TO, GithubExploreMessageParser.Header.findHeader("DELIVERED-TO"));
+        Assert.assertEquals(GithubExploreMessageParser.Header.MESSAGE_ID, GithubExploreMessageParser.Header.findHeader("Message-Id"));
+        Assert.assertNull(GithubExploreMessageParser.Header.findHeader("Content-Transfer-Encoding"));
+        Assert.assertNull(GithubExploreMessageParser.Header.findHeader("X-Date"));
+        Assert.assertNull(GithubExploreMessageParser.Header.findHeader(""));
+
+        GithubExploreMessage message = new GithubExploreMessageParser().parse("src/test/resources/Example.msg");
+        Assert.assertEquals("<531f0a82bda53_426d3fc7963d12a46736c@github-lowworker7-cp1-prd.iad.github.net.mail>", message.getMessageId());
+    }
+
+    @Test
+    public void testRepositoryLineScanner() throws FileNotFoundException {
+        RepositoryLineScanner scanner = new RepositoryLineScanner();
+        Assert.assertTrue(scanner.scan("12. https://github.com/person/example2 Java"));
+        Assert.assertEquals(12, scanner.getRank());
+        Assert.assertEquals("https://github.com/person/example2", scanner.getUrl());
+        Assert.assertEquals("person/example2", scanner.getName());
+        Assert.assertEquals("Java", scanner.getType());
+
+        // No language, with and without the trailing space.
+        Assert.assertTrue(scanner.scan("3. https://github.com/dherman/web-modules "));
+        Assert.assertEquals("dherman/web-modules", scanner.getName());
+        Assert.assertNull(scanner.getType());
+        Assert.assertTrue(scanner.scan("3. https://github.com/dherman/web-modules"));
+        Assert.assertEquals("https://github.com/dherman/web-modules", scanner.getUrl());
+        Assert.assertNull(scanner.getType());
+
+        // A list item that isn't a repository still counts as an item.
+        Assert.assertTrue(scanner.scan("4. https://example.com/person/example"));
+        Assert.assertEquals(4, scanner.getRank());
+        Assert.assertNull(scanner.getName());
+
+        Assert.assertFalse(scanner.scan("Trending Repositories"));
+        Assert.assertFalse(scanner.scan("12 https://github.com/person/example2"));
+        Assert.assertFalse(scanner.scan(""));
+
+        GithubExploreMessage message = new GithubExploreMessageParser().parse("src/test/resources/Example.msg");
+        Assert.assertEquals(3, message.getStaffRepositoryList().get(2).getRank());
+        Assert.assertNull(message.getStaffRepositoryList().get(2).getType());
+    }
+
+    @Test
+    public void testStreamingHandler() throws FileNotFoundException {
+        final List<String> events = new ArrayList<String>();
+        ExploreMessageHandler handler = new ExploreMessageHandler() {
+            public void onHeader(GithubExploreMessageParser.Header header, String value) {
+                events.add(header.name());
+            }
+
+            public void onDate(long date) {
+                events.add("date:" + date);
+            }
+
+            public void onRepository(GithubExploreMessageParser.RepositoryListType listType, Repository repository) {
+                events.add(listType + ":" + repository.getName());
+            }
+
+            public void onEnd() {
+                events.add("end");
+            }
+        };
+
+        new GithubExploreMessageParser().parse("src/test/resources/Example.msg", handler);
+        Assert.assertEquals("TO", events.get(0));
+        Assert.assertTrue(events.contains("date:1394543234000"));
+        Assert.assertTrue(events.contains("SOCIAL:gabrielecirulli/2048"));
+        Assert.assertTrue(events.indexOf("SOCIAL:gabrielecirulli/2048") < events.indexOf("STAFF:dherman/web-modules"));
+        Assert.assertEquals("end", events.get(events.size() - 1));
+
+        // A message from someone else stops at the From header, but still ends.
+        events.clear();
+        new GithubExploreMessageParser().parse(new StringReader("Delivered-To: someone@example.com\nFrom: someone@example.com\n\n1. https://github.com/a/b\n"), handler);
+        Assert.assertEquals(2, events.size());
+        Assert.assertEquals("end", events.get(1));
+    }
+
+    @Test
+    public void testHtmlExtraction() throws IOException {
+        GithubExploreMessageParser parser = new GithubExploreMessageParser.Builder().extractHtml(true).build();
+        GithubExploreMessage message = parser.parse("src/test/resources/Example.msg");
+        Assert.assertEquals(509, message.getPopularRepositoryList().get(0).getStars());
+        Assert.assertEquals(1, message.getStaffRepositoryList().get(4).getStars());
+
+        // Repositories missing from the Plaintext part are filled in from the HTML part.
+        String example = new String(MailboxIngesterTest.readExample(), "UTF-8");
+        String incomplete = example.replace("5. https://github.com/carlosgaldino/alfred-emoji-workflow Ruby\n", "");
+        message = parser.parse(new StringReader(incomplete));
+        Assert.assertEquals(5, message.getStaffRepositoryList().size());
+        Repository repository = message.getStaffRepositoryList().get(4);
+        Assert.assertEquals("carlosgaldino/alfred-emoji-workflow", repository.getName());
+        Assert.assertEquals("https://github.com/carlosgaldino/alfred-emoji-workflow", repository.getUrl());
+        Assert.assertEquals("Ruby", repository.getType());
+        Assert.assertEquals("Alfred 2 workflow for searching emoji codes. :shit:", repository.getDescription());
+        Assert.assertEquals(5, repository.getRank());
+
+        // It's off by default, the HTML part is skipped.
+        message = new GithubExploreMessageParser().parse("src/test/resources/Example.msg");
+        Assert.assertEquals(Repository.NO_STARS, message.getPopularRepositoryList().get(0).getStars());
+        Assert.assertEquals(5, message.getPopularRepositoryList().size());
+    }
+
+    @Test
+    public void testRepositoryPool() throws FileNotFoundException {
+        RepositoryPool pool = new RepositoryPool();
+        // One entry per repository, however many lists it's in.
+        GithubExploreMessageParser parser = new GithubExploreMessageParser.Builder()
+                .extractHtml(true)
+                .repositoryPool(pool)
+                .build();
+        GithubExploreMessage first = parser.parse("src/test/resources/Example.msg");
+        GithubExploreMessage second = parser.parse("src/test/resources/Example.msg");
+        Assert.assertSame(first.getPopularRepositoryList().get(0), second.getPopularRepositoryList().get(0));
+        Assert.assertSame(first.getStaffRepositoryList().get(4), second.getStaffRepositoryList().get(4));
+        Assert.assertEquals(9, pool.size());
+
+        // Listed at another rank it's a copy of its own, but the strings are the same ones.
+        Repository popular = first.getPopularRepositoryList().get(2);
+        Repository social = first.getSocialRepositoryList().get(0);
+        Assert.assertEquals(popular.getName(), social.getName());
+        Assert.assertNotSame(popular, social);
+        Assert.assertSame(popular.getName(), social.getName());
+        Assert.assertSame(popular.getDescription(), social.getDescription());
+
+        // Languages are canonical even when they come from different lines, urls are rebuilt from the name.
+        Repository repository = first.getStaffRepositoryList().get(4);
+        Assert.assertSame("Ruby", repository.getType());
+        Assert.assertEquals("https://github.com/carlosgaldino/alfred-emoji-workflow", repository.getUrl());
+        Repository other = new Repository.Builder().name("a/b").url("https://example.com/a/b").build();
+        Assert.assertEquals("https://example.com/a/b", pool.intern(other).getUrl());
+        Repository equal = new Repository.Builder().name("a/b").url("https://example.com/a/b").build();
+        Assert.assertNotSame(other, pool.intern(other));
+        Assert.assertSame(pool.intern(other), pool.intern(equal));
+
+        // The pool never grows past its bound.
+        pool = new RepositoryPool(2);
+        new GithubExploreMessageParser.Builder().repositoryPool(pool).build().parse("src/test/resources/Example.msg");
+        Assert.assertEquals(2, pool.size());
+    }
+
+    @Test
+    public void testPrefilter() throws IOException {
+        String example = new String(MailboxIngesterTest.readExample(), "UTF-8");
+        MessagePrefilter prefilter = new MessagePrefilter();
+        Assert.assertTrue(prefilter.accept(utf8(example)));
+        Assert.assertFalse(prefilter.accept(utf8(example.replace("From: GitHub <noreply@github.com>", "From: someone@example.com"))));
+        Assert.assertFalse(prefilter.accept(utf8(example.replace("Subject: GitHub explore", "Subject: Re: GitHub explore"))));
+        Assert.assertTrue(prefilter.accept(utf8(example.replace("From: GitHub <noreply@github.com>", "FROM:   github <NOREPLY@github.com>  "))));
+        // Anything that needs decoding or unfolding is left for the parser.
+        Assert.assertTrue(prefilter.accept(utf8(example.replace("From: GitHub <noreply@github.com>", "From: GitHub\n <noreply@github.com>"))));
+        Assert.assertTrue(prefilter.accept(utf8(example.replace("Subject: GitHub explore", "Subject: =?UTF-8?Q?GitHub_explore?="))));
+        // Only the header counts.
+        Assert.assertTrue(prefilter.accept(utf8("Subject: GitHub explore\r\n\r\nFrom: someone@example.com\r\n")));
+        Assert.assertEquals(5, prefilter.getAccepted());
+        Assert.assertEquals(2, prefilter.getRejected());
+
+        GithubExploreMessageParser parser = new GithubExploreMessageParser.Builder().prefilter(prefilter).build();
+        GithubExploreMessage message = parser.parse(utf8(example.replace("Subject: GitHub explore", "Subject: Lunch?")));
+        Assert.assertNull(message.getTo());
+        Assert.assertNull(message.getPopularRepositoryList());
+        Assert.assertEquals(5, parser.parse(utf8(example)).getPopularRepositoryList().size());
+        Assert.assertEquals(3, prefilter.getRejected());
+    }
+
+    @Test
+    public void testMetrics() throws IOException {
+        String example = new String(MailboxIngesterTest.readExample(), "UTF-8");
+        ParseMetrics metrics = new ParseMetrics();
+        GithubExploreMessageParser parser = new GithubExploreMessageParser.Builder().metrics(metrics).build();
+        GithubExploreMessage message = parser.parse(utf8(example));
+        parser.parse(new StringReader(example.replace("Subject: GitHub explore", "Subject: Lunch?")));
+        parser.parse(new StringReader(example.replace("Date: Tue, 11 Mar 2014 06:07:14 -0700", "Date: soon")));
+
+        int repositories = message.getPopularRepositoryList().size() + sizeOf(message.getSocialRepositoryList())
+                + sizeOf(message.getStaffRepositoryList());
+        Assert.assertEquals(3, metrics.getCount(ParseCounter.MESSAGES));
+        Assert.assertEquals(1, metrics.getCount(ParseCounter.REJECTED));
+        Assert.assertEquals(repositories * 2, metrics.getCount(ParseCounter.REPOSITORIES));
+        Assert.assertEquals(1, metrics.getCount(ParseCounter.ERRORS));
+        Assert.assertTrue(metrics.getLastError() instanceof java.text.ParseException);
+        Assert.assertEquals(3, metrics.getStageCount(ParseStage.HEADERS));
+        // The Date header comes before the Subject, a date that fails to parse isn't timed.
+        Assert.assertEquals(2, metrics.getStageCount(ParseStage.DATE));
+        Assert.assertTrue(metrics.getStageCount(ParseStage.MIME_PART) >= 4);
+        Assert.assertTrue(metrics.getStageCount(ParseStage.REPOSITORY_LIST) >= 2);
+        Assert.assertEquals(3, metrics.getLatency().getCount());
+        Assert.assertTrue(metrics.getLatency().getValueAtPercentile(100) > 0);
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10000; value++) {
+            histogram.record(value);
+        }
+        Assert.assertEquals(10000, histogram.getMax());
+        Assert.assertEquals(5000.5, histogram.getMean(), 0.001);
+        // Within a sixteenth of the real value, and never below it.
+        long median = histogram.getValueAtPercentile(50);
+        Assert.assertTrue(median >= 5000 && median <= 5000 + 5000 / 16);
+        long p99 = histogram.getValueAtPercentile(99);
+        Assert.assertTrue(p99 >= 9900 && p99 <= 9900 + 9900 / 16);
+        Assert.assertEquals(10000, histogram.getValueAtPercentile(100));
+        histogram.record(Long.MAX_VALUE);
+        Assert.assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+    }
+
+    private static int sizeOf(List<?> list) {
+        return list == null ? 0 : list.size();
+    }
+
+    private static ByteBuffer utf8(String message) throws IOException {
+        return ByteBuffer.wrap(message.getBytes("UTF-8"));
+    }
+
+    @Test
+    public void testTransferEncodings() throws IOException {
+        String example = new String(MailboxIngesterTest.readExample(), "UTF-8");
+        String expected = new GithubExploreMessageParser().parse(new StringReader(example)).toString();
+
+        for (String encoding : new String[]{"quoted-printable", "base64"}) {
+            byte[] encoded = encodeParts(example, encoding).getBytes("US-ASCII");
+            Assert.assertEquals(encoding, expected, new GithubExploreMessageParser().parse(ByteBuffer.wrap(encoded)).toString());
+        }
+
+        // The charset of the part is used, not the default.
+        String latin1 = "From: GitHub <noreply@github.com>\nSubject: GitHub explore today\n"
+                + "Content-Type: text/plain; charset=ISO-8859-1\nContent-Transfer-Encoding: 8bit\n\n"
+                + "Trending Repositories\n\n1. https://github.com/a/b Java\nCaf\u00e9\n";
+        GithubExploreMessage message = new GithubExploreMessageParser().parse(ByteBuffer.wrap(latin1.getBytes("ISO-8859-1")));
+        Assert.assertEquals("Caf\u00e9", message.getPopularRepositoryList().get(0).getDescription());
+    }
+
+    @Test
+    public void testParallelParts() throws IOException {
+        String example = new String(MailboxIngesterTest.readExample(), "UTF-8");
+        String[] messages = {
+                example,
+                example.replace("5. https://github.com/carlosgaldino/alfred-emoji-workflow Ruby\n", ""),
+                encodeParts(example, "quoted-printable"),
+                encodeParts(example, "base64")};
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (boolean extractHtml : new boolean[]{true, false}) {
+                GithubExploreMessageParser sequential = new GithubExploreMessageParser.Builder().extractHtml(extractHtml).build();
+                GithubExploreMessageParser parallel = new GithubExploreMessageParser.Builder()
+                        .extractHtml(extractHtml)
+                        .parallelParts(pool)
+                        .build();
+                for (String message : messages) {
+                    byte[] data = message.getBytes("UTF-8");
+                    // The same repositories, in the same lists, in the same order.
+                    Assert.assertEquals(sequential.parse(data).toString(), parallel.parse(data).toString());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Re-encodes the body of every part of the message, the way a relay would.
+     */
+    private static String encodeParts(String message, String encoding) throws IOException {
+        String boundary = "----==_mimepart_531f0a82bc7ab_426d3fc7963d12a46724f";
+        String[] pieces = message.split(java.util.regex.Pattern.quote(boundary), -1);
+        StringBuilder encoded = new StringBuilder(pieces[0]);
+        for (int i = 1; i < pieces.length; i++) {
+            encoded.append(boundary);
+            int bodyStart = pieces[i].indexOf("\n\n");
+            if (bodyStart == -1) {
+                encoded.append(pieces[i]);
+                continue;
+            }
+
+            String headers = pieces[i].substring(0, bodyStart + 2).replace("Content-Transfer-Encoding: 7bit", "Content-Transfer-Encoding: " + encoding);
+            byte[] body = pieces[i].substring(bodyStart + 2, pieces[i].length() - 1).getBytes("UTF-8");
+            encoded.append(headers);
+            encoded.append(encoding.equals("base64") ? base64(body) : quotedPrintable(body));
+            encoded.append('\n');
+        }
+        return encoded.toString();
+    }
+
+    private static String quotedPrintable(byte[] body) {
+        StringBuilder encoded = new StringBuilder();
+        int lineLength = 0;
+        for (byte b : body) {
+            int c = b & 0xff;
+            if (c == '\n') {
+                encoded.append('\n');
+                lineLength = 0;
+                continue;
+            }
+
+            String piece = c == '=' || c > '~' ? String.format("=%02X", c) : String.valueOf((char) c);
+            if (lineLength + piece.length() > 75) {
+                encoded.append("=\n");
+                lineLength = 0;
+            }
+            encoded.append(piece);
+            lineLength += piece.length();
+        }
+        return encoded.toString();
+    }
+
+    private static String base64(byte[] body) {
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        StringBuilder encoded = new StringBuilder();
+        for (int i = 0; i < body.length; i += 3) {
+            int bits = (body[i] & 0xff) << 16 | (i + 1 < body.length ? (body[i + 1] & 0xff) << 8 : 0)
+                    | (i + 2 < body.length ? body[i + 2] & 0xff : 0);
+            encoded.append(alphabet.charAt(bits >> 18 & 63)).append(alphabet.charAt(bits >> 12 & 63));
+            encoded.append(i + 1 < body.length ? alphabet.charAt(bits >> 6 & 63) : '=');
+            encoded.append(i + 2 < body.length ? alphabet.charAt(bits & 63) : '=');
+            if ((i / 3 + 1) % 19 == 0) {
+                encoded.append('\n');
+            }
+        }
+        return encoded.toString();
+    }
 }
@@ -0,0 +1,266 @@
+package com.davidtpate.github.explore.test;
+
+import com.davidtpate.github.explore.GithubExploreMessageParser;
+import com.davidtpate.github.explore.MessagePrefilter;
+import com.davidtpate.github.explore.dedup.DuplicateFilter;
+import com.davidtpate.github.explore.ingest.*;
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class MailboxIngesterTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static final String EXAMPLE_PATH = "src/test/resources/Example.msg";
+    private static final String POSTMARK = "From noreply@github.com Tue Mar 11 13:07:14 2014\n";
+
+    @Test
+    public void testMboxSplitting() throws IOException {
+        File mbox = temporaryFolder.newFile("explore.mbox");
+        writeMbox(mbox, 3);
+
+        MessageSource source = new MboxMessageSource(mbox.getPath());
+        try {
+            int count = 0;
+            RawMessage rawMessage;
+            while ((rawMessage = source.next()) != null) {
+                count++;
+                Assert.assertTrue(new String(rawMessage.getData(), "UTF-8").contains("Subject: GitHub explore today"));
+            }
+            Assert.assertEquals(3, count);
+        } finally {
+            source.close();
+        }
+    }
+
+    @Test
+    public void testIngestMbox() throws IOException, InterruptedException {
+        File mbox = temporaryFolder.newFile("explore.mbox");
+        writeMbox(mbox, 25);
+
+        CollectingListener listener = new CollectingListener();
+        MailboxIngester ingester = new MailboxIngester.Builder().threads(4).maxInFlight(2).listener(listener).build();
+        IngestStats stats = ingester.ingest(mbox.getPath());
+
+        Assert.assertEquals(25, stats.getMessagesRead());
+        Assert.assertEquals(25, stats.getMessagesParsed());
+        Assert.assertEquals(0, stats.getErrors());
+        Assert.assertEquals(25, listener.messages.size());
+        for (GithubExploreMessage message : listener.messages) {
+            Assert.assertEquals(2, message.getSocialRepositoryList().size());
+            Assert.assertEquals(5, message.getPopularRepositoryList().size());
+            Assert.assertEquals(5, message.getStaffRepositoryList().size());
+        }
+        Assert.assertEquals(0, stats.getMessagesRejected());
+        // The blank line before each postmark stays with the message ahead of it.
+        Assert.assertEquals(25 * (readExample().length + "\n\n".length()), stats.getBytesRead());
+        Assert.assertTrue(stats.getElapsedMillis() >= 0);
+    }
+
+    @Test
+    public void testIngestWithParser() throws IOException, InterruptedException {
+        File mbox = temporaryFolder.newFile("explore.mbox");
+        writeMbox(mbox, 3);
+
+        CollectingListener listener = new CollectingListener();
+        GithubExploreMessageParser parser = new GithubExploreMessageParser.Builder().extractHtml(true).build();
+        new MailboxIngester.Builder().parser(parser).listener(listener).build().ingest(mbox.getPath());
+        Assert.assertEquals(3, listener.messages.size());
+        for (GithubExploreMessage message : listener.messages) {
+            Assert.assertEquals(509, message.getPopularRepositoryList().get(0).getStars());
+        }
+    }
+
+    @Test
+    public void testIngestPrefiltered() throws IOException, InterruptedException {
+        File mbox = temporaryFolder.newFile("explore.mbox");
+        writeMbox(mbox, 3);
+        OutputStream output = new FileOutputStream(mbox, true);
+        try {
+            output.write((POSTMARK + "From: someone@example.com\nSubject: Lunch?\n\nNoon?\n\n").getBytes("UTF-8"));
+        } finally {
+            output.close();
+        }
+
+        CollectingListener listener = new CollectingListener();
+        MessagePrefilter prefilter = new MessagePrefilter();
+        IngestStats stats = new MailboxIngester.Builder().listener(listener).prefilter(prefilter).build().ingest(mbox.getPath());
+        Assert.assertEquals(4, stats.getMessagesRead());
+        Assert.assertEquals(3, stats.getMessagesParsed());
+        Assert.assertEquals(1, stats.getMessagesRejected());
+        Assert.assertEquals(3, listener.messages.size());
+        Assert.assertEquals(1, prefilter.getRejected());
+    }
+
+    @Test
+    public void testIngestDuplicates() throws IOException, InterruptedException {
+        File mbox = temporaryFolder.newFile("explore.mbox");
+        writeMbox(mbox, 25);
+        File directory = new File(temporaryFolder.getRoot(), "dedup");
+
+        CollectingListener listener = new CollectingListener();
+        DuplicateFilter filter = new DuplicateFilter(directory);
+        MailboxIngester ingester = new MailboxIngester.Builder().listener(listener).duplicateFilter(filter).build();
+        IngestStats stats = ingester.ingest(mbox.getPath());
+        Assert.assertEquals(25, stats.getMessagesRead());
+        Assert.assertEquals(1, stats.getMessagesParsed());
+        Assert.assertEquals(24, stats.getMessagesDuplicate());
+        Assert.assertEquals(1, listener.messages.size());
+
+        // Ingesting the same mailbox again adds nothing.
+        stats = ingester.ingest(mbox.getPath());
+        Assert.assertEquals(0, stats.getMessagesParsed());
+        Assert.assertEquals(25, stats.getMessagesDuplicate());
+        filter.close();
+    }
+
+    @Test
+    public void testIngestDuplicatesAfterError() throws IOException, InterruptedException {
+        File mbox = temporaryFolder.newFile("explore.mbox");
+        writeMbox(mbox, 1);
+        DuplicateFilter filter = new DuplicateFilter(new File(temporaryFolder.getRoot(), "dedup"));
+
+        // The message never got stored, so it isn't remembered either.
+        IngestListener failing = new IngestListener() {
+            public void onMessage(RawMessage rawMessage, GithubExploreMessage message) {
+                throw new IllegalStateException("Store is Unavailable");
+            }
+
+            public void onError(RawMessage rawMessage, Exception e) {
+            }
+        };
+        IngestStats stats = new MailboxIngester.Builder().listener(failing).duplicateFilter(filter).build()
+                .ingest(mbox.getPath());
+        Assert.assertEquals(1, stats.getErrors());
+        Assert.assertEquals(0, filter.size());
+
+        CollectingListener listener = new CollectingListener();
+        stats = new MailboxIngester.Builder().listener(listener).duplicateFilter(filter).build().ingest(mbox.getPath());
+        Assert.assertEquals(1, stats.getMessagesParsed());
+        Assert.assertEquals(0, stats.getMessagesDuplicate());
+        Assert.assertEquals(1, filter.size());
+        filter.close();
+    }
+
+    @Test
+    public void testIngestMaildir() throws IOException, InterruptedException {
+        File maildir = temporaryFolder.newFolder("explore.maildir");
+        File newDirectory = new File(maildir, "new");
+        newDirectory.mkdirs();
+        File tmpDirectory = new File(maildir, "tmp");
+        tmpDirectory.mkdirs();
+        byte[] example = readExample();
+        for (int i = 0; i < 3; i++) {
+            write(new File(newDirectory, "message" + i), example);
+        }
+        // Half delivered messages in tmp shouldn't be picked up.
+        write(new File(tmpDirectory, "partial"), example);
+
+        CollectingListener listener = new CollectingListener();
+        IngestStats stats = new MailboxIngester.Builder().threads(2).listener(listener).build().ingest(maildir.getPath());
+
+        Assert.assertEquals(3, stats.getMessagesParsed());
+        Assert.assertEquals(3, listener.messages.size());
+    }
+
+    @Test
+    public void testFollow() throws IOException {
+        File mbox = temporaryFolder.newFile("explore.mbox");
+        writeMbox(mbox, 2);
+
+        CollectingListener listener = new CollectingListener();
+        MboxFollower follower = new MboxFollower.Builder().path(mbox.getPath()).listener(listener).build();
+        // The last message could still be arriving, it waits until the spool stops growing.
+        Assert.assertEquals(1, follower.poll());
+        Assert.assertEquals(1, follower.poll());
+        Assert.assertEquals(0, follower.poll());
+        Assert.assertEquals(mbox.length(), follower.getOffset());
+
+        // Only what was appended is read.
+        writeMbox(mbox, 3, true);
+        Assert.assertEquals(2, follower.poll());
+        Assert.assertEquals(1, follower.poll());
+        Assert.assertEquals(5, listener.messages.size());
+        Assert.assertEquals("GitHub explore today Mar 11", listener.messages.get(4).getSubject());
+
+        // Picking up from a saved offset doesn't hand anything out twice.
+        MboxFollower resumed = new MboxFollower.Builder().path(mbox.getPath()).offset(follower.getOffset()).build();
+        Assert.assertEquals(0, resumed.poll());
+
+        // A rotated spool is read from the start.
+        writeMbox(mbox, 1);
+        follower.poll();
+        Assert.assertEquals(1, follower.poll());
+        Assert.assertEquals(6, listener.messages.size());
+
+        // The parser given is the one used.
+        CollectingListener htmlListener = new CollectingListener();
+        MboxFollower htmlFollower = new MboxFollower.Builder().path(mbox.getPath()).listener(htmlListener)
+                .parser(new GithubExploreMessageParser.Builder().extractHtml(true).build()).build();
+        htmlFollower.poll();
+        Assert.assertEquals(1, htmlFollower.poll());
+        Assert.assertEquals(509, htmlListener.messages.get(0).getPopularRepositoryList().get(0).getStars());
+    }
+
+    private static void writeMbox(File mbox, int copies) throws IOException {
+        writeMbox(mbox, copies, false);
+    }
+
+    private static void writeMbox(File mbox, int copies, boolean append) throws IOException {
+        byte[] example = readExample();
+        OutputStream output = new FileOutputStream(mbox, append);
+        try {
+            for (int i = 0; i < copies; i++) {
+                output.write(POSTMARK.getBytes("UTF-8"));
+                output.write(example);
+                output.write("\n\n".getBytes("UTF-8"));
+            }
+        } finally {
+            output.close();
+        }
+    }
+
+    private static void write(File file, byte[] data) throws IOException {
+        OutputStream output = new FileOutputStream(file);
+        try {
+            output.write(data);
+        } finally {
+            output.close();
+        }
+    }
+
+    static byte[] readExample() throws IOException {
+        InputStream input = new FileInputStream(EXAMPLE_PATH);
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = input.read(buffer)) != -1) {
+                output.write(buffer, 0, count);
+            }
+            return output.toByteArray();
+        } finally {
+            input.close();
+        }
+    }
+
+    private static class CollectingListener implements IngestListener {
+        final List<GithubExploreMessage> messages = Collections.synchronizedList(new ArrayList<GithubExploreMessage>());
+
+        public void onMessage(RawMessage rawMessage, GithubExploreMessage message) {
+            messages.add(message);
+        }
+
+        public void onError(RawMessage rawMessage, Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
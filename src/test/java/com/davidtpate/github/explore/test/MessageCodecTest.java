@@ -0,0 +1,91 @@
+package com.davidtpate.github.explore.test;
+
+import com.davidtpate.github.explore.GithubExploreMessageParser;
+import com.davidtpate.github.explore.codec.MessageCodec;
+import com.davidtpate.github.explore.codec.MessageView;
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+import com.davidtpate.github.explore.model.Message;
+import com.davidtpate.github.explore.model.Repository;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.nio.ByteBuffer;
+
+public class MessageCodecTest {
+    @Test
+    public void testRoundTrip() throws FileNotFoundException {
+        GithubExploreMessage message = new GithubExploreMessageParser().parse("src/test/resources/Example.msg");
+        byte[] encoded = MessageCodec.encode(message);
+        GithubExploreMessage decoded = MessageCodec.decode(ByteBuffer.wrap(encoded));
+        Assert.assertEquals(message.toString(), decoded.toString());
+        // The same repository in two lists shares its strings.
+        Assert.assertSame(decoded.getPopularRepositoryList().get(0).getName(), decoded.getStaffRepositoryList().get(0).getName());
+
+        // Nulls, odd urls, negative numbers and text that isn't ASCII all come back as they went in.
+        GithubExploreMessage odd = new GithubExploreMessage.Builder()
+                .subject("Caf\u00e9 \u2615")
+                .date(Message.NO_DATE)
+                .staffRepository(new Repository.Builder().name("a/b").url("https://example.com/a/b").rank(-3).build())
+                .staffRepository(new Repository.Builder().description("\u65e5\u672c").build())
+                .build();
+        decoded = MessageCodec.decode(ByteBuffer.wrap(MessageCodec.encode(odd)));
+        Assert.assertEquals(odd.toString(), decoded.toString());
+        Assert.assertNull(decoded.getSocialRepositoryList());
+
+        // A view of text that isn't ASCII has the characters, not the bytes.
+        MessageView view = new MessageView(ByteBuffer.wrap(MessageCodec.encode(odd)));
+        Assert.assertEquals("Caf\u00e9 \u2615", view.getSubject().toString());
+        Assert.assertEquals(6, view.getSubject().length());
+        Assert.assertEquals('\u00e9', view.getSubject().charAt(3));
+        Assert.assertEquals("\u65e5\u672c",
+                view.getRepositoryDescription(GithubExploreMessageParser.RepositoryListType.STAFF, 1).toString());
+    }
+
+    @Test
+    public void testView() throws FileNotFoundException {
+        GithubExploreMessageParser parser = new GithubExploreMessageParser.Builder().extractHtml(true).build();
+        GithubExploreMessage message = parser.parse("src/test/resources/Example.msg");
+        byte[] encoded = MessageCodec.encode(message);
+
+        // The view reads from wherever the buffer's position is.
+        ByteBuffer buffer = ByteBuffer.allocate(encoded.length + 3);
+        buffer.position(3);
+        buffer.put(encoded);
+        buffer.position(3);
+        MessageView view = new MessageView(buffer);
+
+        Assert.assertEquals(message.getDateMillis(), view.getDateMillis());
+        Assert.assertEquals("GitHub explore today Mar 11", view.getSubject().toString());
+        Assert.assertNull(view.getListId());
+        Assert.assertEquals(5, view.getRepositoryCount(GithubExploreMessageParser.RepositoryListType.POPULAR));
+        Assert.assertEquals("janpaepke/ScrollMagic", view.getRepositoryName(GithubExploreMessageParser.RepositoryListType.POPULAR, 3).toString());
+        Assert.assertEquals("https://github.com/janpaepke/ScrollMagic", view.getRepositoryUrl(GithubExploreMessageParser.RepositoryListType.POPULAR, 3).toString());
+        Assert.assertEquals("JavaScript", view.getRepositoryType(GithubExploreMessageParser.RepositoryListType.POPULAR, 3).toString());
+        Assert.assertNull(view.getRepositoryType(GithubExploreMessageParser.RepositoryListType.POPULAR, 4));
+        Assert.assertEquals(385, view.getRepositoryStars(GithubExploreMessageParser.RepositoryListType.POPULAR, 3));
+        Assert.assertEquals(4, view.getRepositoryRank(GithubExploreMessageParser.RepositoryListType.POPULAR, 3));
+        Assert.assertEquals(3, buffer.position());
+    }
+
+    @Test
+    public void testBadInput() throws FileNotFoundException {
+        byte[] encoded = MessageCodec.encode(new GithubExploreMessageParser().parse("src/test/resources/Example.msg"));
+
+        assertRejected(ByteBuffer.wrap(new byte[] {'G', 'E'}));
+        assertRejected(ByteBuffer.wrap(encoded, 1, encoded.length - 1));
+        assertRejected(ByteBuffer.wrap(encoded, 0, encoded.length / 2));
+        byte[] future = encoded.clone();
+        future[4]++;
+        assertRejected(ByteBuffer.wrap(future));
+    }
+
+    private static void assertRejected(ByteBuffer buffer) {
+        try {
+            new MessageView(buffer);
+            Assert.fail("Expected the buffer to be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+}
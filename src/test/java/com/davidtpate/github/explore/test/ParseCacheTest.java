@@ -0,0 +1,124 @@
+package com.davidtpate.github.explore.test;
+
+import com.davidtpate.github.explore.GithubExploreMessageParser;
+import com.davidtpate.github.explore.cache.CachingMessageParser;
+import com.davidtpate.github.explore.cache.ParseCache;
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+import com.davidtpate.github.explore.model.Repository;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+public class ParseCacheTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testCachedParse() throws IOException {
+        File directory = temporaryFolder.getRoot();
+        File message = new File(directory, "Example.msg");
+        byte[] example = MailboxIngesterTest.readExample();
+        write(message, example);
+
+        CachingMessageParser parser = new CachingMessageParser(new GithubExploreMessageParser(), new ParseCache(new File(directory, "cache")));
+        GithubExploreMessage parsed = parser.parse(message.getPath());
+        Assert.assertEquals(1, parser.getCache().size());
+        String expected = parsed.toString();
+
+        // Same size and modification time, the stored message comes back without even reading the file.
+        long lastModified = message.lastModified();
+        byte[] garbage = new byte[example.length];
+        Arrays.fill(garbage, (byte) 'x');
+        write(message, garbage);
+        message.setLastModified(lastModified);
+        Assert.assertEquals(expected, parser.parse(message.getPath()).toString());
+
+        // Touched but the same contents, the hash still finds it.
+        write(message, example);
+        message.setLastModified(lastModified - 60000);
+        Assert.assertEquals(expected, parser.parseMapped(message.getPath()).toString());
+        Assert.assertEquals(1, parser.getCache().size());
+
+        // A new cache over the same directory picks up where the last one left off.
+        parser.getCache().flush();
+        ParseCache reopened = new ParseCache(new File(directory, "cache"));
+        Assert.assertEquals(1, reopened.size());
+        Assert.assertEquals(expected, reopened.get(reopened.fingerprint(message), 0).toString());
+    }
+
+    @Test
+    public void testConfigurations() throws IOException {
+        File directory = temporaryFolder.getRoot();
+        File message = new File(directory, "Example.msg");
+        write(message, MailboxIngesterTest.readExample());
+
+        // Sharing a directory, each parser only gets back what one set up like it stored.
+        ParseCache cache = new ParseCache(new File(directory, "cache"));
+        CachingMessageParser plain = new CachingMessageParser(new GithubExploreMessageParser(), cache);
+        CachingMessageParser html =
+            new CachingMessageParser(new GithubExploreMessageParser.Builder().extractHtml(true).build(), cache);
+        Assert.assertEquals(Repository.NO_STARS, stars(plain, message));
+        Assert.assertEquals(509, stars(html, message));
+        Assert.assertEquals(Repository.NO_STARS, stars(plain, message));
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        File directory = temporaryFolder.getRoot();
+        File first = new File(directory, "first.msg");
+        File second = new File(directory, "second.msg");
+        byte[] example = MailboxIngesterTest.readExample();
+        write(first, example);
+        write(second, new String(example, "UTF-8").replace("Mar 11", "Mar 12").getBytes("UTF-8"));
+
+        ParseCache cache = new ParseCache(new File(directory, "cache"));
+        CachingMessageParser parser = new CachingMessageParser(new GithubExploreMessageParser(), cache);
+        parser.parse(first.getPath());
+        long entryBytes = cache.bytes();
+
+        // Only room for one, the first is pushed out by the second.
+        cache = new ParseCache(new File(directory, "small"), entryBytes + entryBytes / 2);
+        parser = new CachingMessageParser(new GithubExploreMessageParser(), cache);
+        parser.parse(first.getPath());
+        GithubExploreMessage message = parser.parse(second.getPath());
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals("GitHub explore today Mar 12", message.getSubject());
+        Assert.assertNull(cache.get(cache.fingerprint(first), 0));
+        Assert.assertNotNull(cache.get(cache.fingerprint(second), 0));
+    }
+
+    @Test
+    public void testDamagedIndex() throws IOException {
+        File directory = temporaryFolder.getRoot();
+        File message = new File(directory, "Example.msg");
+        write(message, MailboxIngesterTest.readExample());
+        CachingMessageParser parser = new CachingMessageParser(new GithubExploreMessageParser(), new ParseCache(new File(directory, "cache")));
+        parser.parse(message.getPath());
+
+        write(new File(directory, "cache/index"), new byte[] {1, 2, 3});
+        ParseCache cache = new ParseCache(new File(directory, "cache"));
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(1, new File(directory, "cache").list().length);
+    }
+
+    private static int stars(CachingMessageParser parser, File message) throws IOException {
+        return parser.parse(message.getPath()).getPopularRepositoryList().get(0).getStars();
+    }
+
+    private static void write(File file, byte[] data) throws IOException {
+        OutputStream output = new FileOutputStream(file);
+        try {
+            output.write(data);
+        } finally {
+            output.close();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.davidtpate.github.explore.test;
+
+import com.davidtpate.github.explore.GithubExploreMessageParser;
+import com.davidtpate.github.explore.index.RepositoryIndex;
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+import com.davidtpate.github.explore.model.Repository;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+public class RepositoryIndexTest {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final long WEEK = 7 * DAY;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testQueries() throws IOException {
+        File directory = temporaryFolder.getRoot();
+        GithubExploreMessage example = new GithubExploreMessageParser().parse("src/test/resources/Example.msg");
+        long start = example.getDateMillis();
+
+        RepositoryIndex index = new RepositoryIndex(directory);
+        // A digest a day for two weeks, on the last day 2048 drops out of the popular list.
+        for (int day = 0; day < 14; day++) {
+            GithubExploreMessage.Builder builder = new GithubExploreMessage.Builder().date(start + day * DAY);
+            for (Repository repository : example.getSocialRepositoryList()) {
+                builder.socialRepository(repository);
+            }
+            for (Repository repository : example.getPopularRepositoryList()) {
+                if (day < 13 || !"gabrielecirulli/2048".equals(repository.getName())) {
+                    builder.popularRepository(repository);
+                }
+            }
+            index.append(builder.build());
+        }
+        Assert.assertEquals(14 * 7 - 1, index.size());
+
+        Map<String, Integer> trending = index.repositoriesListedAtLeast(GithubExploreMessageParser.RepositoryListType.POPULAR, start, start + 2 * WEEK, 14);
+        Assert.assertEquals(4, trending.size());
+        Assert.assertEquals(Integer.valueOf(14), trending.get("scoutapp/scout_realtime"));
+        Assert.assertNull(trending.get("gabrielecirulli/2048"));
+
+        int[] counts = index.countByRepository(null, start, start + 2 * WEEK);
+        Assert.assertEquals(14 + 13, counts[index.getRepositoryId("gabrielecirulli/2048")]);
+
+        int[][] weekly = index.countByLanguage(GithubExploreMessageParser.RepositoryListType.SOCIAL, start, start + 2 * WEEK, WEEK);
+        Assert.assertEquals(2, weekly.length);
+        int css = languageId(index, "CSS");
+        int java = languageId(index, "Java");
+        Assert.assertEquals(7, weekly[0][css]);
+        Assert.assertEquals(7, weekly[1][java]);
+
+        // Nothing is lost when the index is opened again.
+        index.close();
+        index = new RepositoryIndex(directory);
+        Assert.assertEquals(14 * 7 - 1, index.size());
+        Assert.assertEquals(13, index.countByRepository(GithubExploreMessageParser.RepositoryListType.POPULAR, start, start + 2 * WEEK)[index.getRepositoryId("gabrielecirulli/2048")]);
+        Assert.assertEquals(0, index.countByLanguage(null, start + 2 * WEEK, start + 3 * WEEK)[css]);
+        index.append(example);
+        Assert.assertEquals(14 * 7 + 11, index.size());
+        index.close();
+    }
+
+    private static int languageId(RepositoryIndex index, String language) {
+        for (int id = 0; id < index.getLanguageCount(); id++) {
+            if (language.equals(index.getLanguage(id))) {
+                return id;
+            }
+        }
+        return RepositoryIndex.NO_LANGUAGE;
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.davidtpate.github.explore.test;
+
+import com.davidtpate.github.explore.GithubExploreMessageParser;
+import com.davidtpate.github.explore.index.HeavyHitters;
+import com.davidtpate.github.explore.index.TrendingWindow;
+import com.davidtpate.github.explore.model.GithubExploreMessage;
+import com.davidtpate.github.explore.model.Repository;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class TrendingWindowTest {
+    private static final long DAY = TrendingWindow.DEFAULT_PERIOD;
+
+    @Test
+    public void testHeavyHitters() {
+        // Skewed, a handful of items take most of the stream and a long tail takes the rest.
+        Random random = new Random(42);
+        Map<String, Long> exact = new HashMap<String, Long>();
+        HeavyHitters heavyHitters = new HeavyHitters(50);
+        for (int i = 0; i < 100000; i++) {
+            String item = random.nextInt(4) == 0 ? "tail/" + random.nextInt(10000) : "head/" + random.nextInt(10);
+            heavyHitters.offer(item);
+            Long count = exact.get(item);
+            exact.put(item, count == null ? 1 : count + 1);
+        }
+
+        Assert.assertEquals(100000, heavyHitters.getTotal());
+        Assert.assertEquals(50, heavyHitters.size());
+        List<HeavyHitters.Entry> top = heavyHitters.top(10);
+        Assert.assertEquals(10, top.size());
+        for (HeavyHitters.Entry entry : top) {
+            Assert.assertTrue(entry.getItem().startsWith("head/"));
+            long real = exact.get(entry.getItem());
+            Assert.assertTrue(entry.getCount() >= real);
+            Assert.assertTrue(entry.getGuaranteedCount() <= real);
+        }
+    }
+
+    @Test
+    public void testWindow() throws IOException {
+        GithubExploreMessage message = new GithubExploreMessageParser().parse("src/test/resources/Example.msg");
+        long date = message.getDateMillis();
+        TrendingWindow window = new TrendingWindow.Builder().periods(3).capacity(100).build();
+
+        // The example on three days, plus one repository that's only listed on the first.
+        window.add(message);
+        window.add(date, GithubExploreMessageParser.RepositoryListType.POPULAR, repository("someone/once"));
+        GithubExploreMessageParser parser = new GithubExploreMessageParser();
+        for (int day = 1; day <= 2; day++) {
+            String shifted = "Date: Tue, " + (11 + day) + " Mar 2014 06:07:14 -0700";
+            parser.parse(new StringReader(readExample().replace("Date: Tue, 11 Mar 2014 06:07:14 -0700", shifted)),
+                    window.newHandler());
+        }
+
+        List<HeavyHitters.Entry> popular = window.top(GithubExploreMessageParser.RepositoryListType.POPULAR, 10);
+        Assert.assertEquals(6, popular.size());
+        Assert.assertEquals(3, popular.get(0).getCount());
+        Assert.assertEquals("someone/once", popular.get(5).getItem());
+        Assert.assertEquals(1, popular.get(5).getCount());
+        // Three repositories are in two lists every day, ties go by name.
+        Assert.assertEquals("gabrielecirulli/2048", window.top(null, 1).get(0).getItem());
+        Assert.assertEquals(6, window.top(null, 1).get(0).getCount());
+        Assert.assertEquals(5, window.top(GithubExploreMessageParser.RepositoryListType.POPULAR, 10, 1).size());
+
+        // Three days on, the first has slid out of the window and a listing from it is too old to count.
+        window.add(date + 3 * DAY, GithubExploreMessageParser.RepositoryListType.POPULAR, repository("someone/later"));
+        window.add(date, GithubExploreMessageParser.RepositoryListType.POPULAR, repository("someone/once"));
+        popular = window.top(GithubExploreMessageParser.RepositoryListType.POPULAR, 10);
+        Assert.assertEquals(2, popular.get(0).getCount());
+        Assert.assertEquals(6, popular.size());
+        Assert.assertEquals(1, window.getDropped());
+    }
+
+    private static Repository repository(String name) {
+        return new Repository.Builder().name(name).build();
+    }
+
+    private static String readExample() throws IOException {
+        return new String(MailboxIngesterTest.readExample(), "UTF-8");
+    }
+}